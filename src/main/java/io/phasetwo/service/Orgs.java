@@ -15,5 +15,11 @@ public class Orgs {
   public static final String ORG_CONFIG_CREATE_ADMIN_USER_KEY =
       "_providerConfig.orgs.config.createAdminUser";
   public static final String ORG_CONFIG_SHARED_IDPS_KEY = "_providerConfig.orgs.config.sharedIdps";
+  public static final String ORG_CONFIG_TOKEN_ROLES_KEY = "_providerConfig.orgs.config.tokenRoles";
+  public static final String ORG_CONFIG_TOKEN_ROLES_MAX_AGE_KEY =
+      "_providerConfig.orgs.config.tokenRolesMaxAge";
+  public static final int ORG_CONFIG_TOKEN_ROLES_MAX_AGE_DEFAULT = 300;
+  public static final String ORG_CONFIG_INVITATION_TTL_KEY =
+      "_providerConfig.orgs.config.invitationTtl";
   public static final String ORG_SHARED_IDP_KEY = "home.idp.discovery.shared";
 }
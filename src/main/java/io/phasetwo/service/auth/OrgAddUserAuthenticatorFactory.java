@@ -8,10 +8,13 @@ import com.google.auto.service.AutoService;
 import io.phasetwo.service.model.InvitationModel;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationProvider;
-import io.phasetwo.service.model.OrganizationRoleModel;
 import io.phasetwo.service.util.Domains;
 import io.phasetwo.service.util.IdentityProviders;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.authentication.AuthenticationFlowContext;
 import org.keycloak.authentication.Authenticator;
@@ -58,6 +61,7 @@ public class OrgAddUserAuthenticatorFactory extends BaseAuthenticatorFactory
       OrganizationProvider orgs = context.getSession().getProvider(OrganizationProvider.class);
       var orgIds = IdentityProviders.getAttributeMultivalued(idpConfig, ORG_OWNER_CONFIG_KEY);
 
+      Set<String> memberOrgIds = new HashSet<>();
       orgIds.forEach(
           orgId -> {
             OrganizationModel org = orgs.getOrganizationById(context.getRealm(), orgId);
@@ -69,27 +73,9 @@ public class OrgAddUserAuthenticatorFactory extends BaseAuthenticatorFactory
 
             handleOrganizationMembership(context, org, idpIsShared);
 
-            if (org.hasMembership(context.getUser())) {
-              orgs.getUserInvitationsStream(context.getRealm(), context.getUser())
-                  .filter(
-                      invitationModel ->
-                          invitationModel.getOrganization().getId().equals(org.getId()))
-                  .forEach(
-                      invitationModel -> {
-                        addRolesFromInvitation(invitationModel, context.getUser());
-
-                        invitationModel.getOrganization().revokeInvitation(invitationModel.getId());
-                        context
-                            .getEvent()
-                            .clone()
-                            .event(IDENTITY_PROVIDER_POST_LOGIN)
-                            .detail("org_id", invitationModel.getOrganization().getId())
-                            .detail("invitation_id", invitationModel.getId())
-                            .user(context.getUser())
-                            .error("User invitation revoked.");
-                      });
-            }
+            if (org.hasMembership(context.getUser())) memberOrgIds.add(org.getId());
           });
+      acceptInvitations(context, orgs, memberOrgIds);
     } else {
       log.infof("No organization owns IdP %s", brokerContext.getIdpConfig().getAlias());
     }
@@ -124,18 +110,31 @@ public class OrgAddUserAuthenticatorFactory extends BaseAuthenticatorFactory
     }
   }
 
-  void addRolesFromInvitation(InvitationModel invitation, UserModel user) {
-    invitation
-        .getRoles()
+  /**
+   * Accepts the invitations of the user to the organizations, which grants the roles they carry,
+   * with a fixed number of statements whatever the number of invitations.
+   */
+  private static void acceptInvitations(
+      AuthenticationFlowContext context, OrganizationProvider orgs, Set<String> orgIds) {
+    RealmModel realm = context.getRealm();
+    UserModel user = context.getUser();
+    if (orgIds.isEmpty() || !orgs.hasUserInvitations(realm, user)) return;
+    List<String> invitationIds =
+        orgs.getUserInvitationsStream(realm, user)
+            .filter(i -> orgIds.contains(i.getOrganizationId()))
+            .map(InvitationModel::getId)
+            .collect(Collectors.toList());
+    orgs.acceptInvitations(realm, user, invitationIds)
         .forEach(
-            r -> {
-              OrganizationRoleModel role = invitation.getOrganization().getRoleByName(r);
-              if (role == null) {
-                log.debugf("No org role found for invitation role %s. Skipping...", r);
-              } else {
-                role.grantRole(user);
-              }
-            });
+            (invitationId, orgId) ->
+                context
+                    .getEvent()
+                    .clone()
+                    .event(IDENTITY_PROVIDER_POST_LOGIN)
+                    .detail("org_id", orgId)
+                    .detail("invitation_id", invitationId)
+                    .user(user)
+                    .error("User invitation revoked."));
   }
 
   @Override
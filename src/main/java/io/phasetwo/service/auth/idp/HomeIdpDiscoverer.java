@@ -105,11 +105,7 @@ final class HomeIdpDiscoverer {
         // Overidden lookup mechanism to lookup via organization domain
         OrganizationProvider orgs = context.getSession().getProvider(OrganizationProvider.class);
         List<IdentityProviderModel> enabledIdpsWithMatchingDomain =
-            orgs.getOrganizationsStreamForDomain(
-                    context.getRealm(), domain.toString(), config.requireVerifiedDomain())
-                .flatMap(o -> o.getIdentityProvidersStream())
-                .filter(IdentityProviderModel::isEnabled)
-                .collect(Collectors.toList());
+            getEnabledOrganizationIdps(orgs, domain, config);
 
         // Prefer linked IdP with matching domain first
         List<IdentityProviderModel> homeIdps = getLinkedIdpsFrom(enabledIdpsWithMatchingDomain, linkedIdps);
@@ -133,6 +129,14 @@ final class HomeIdpDiscoverer {
         return homeIdps;
     }
 
+    private List<IdentityProviderModel> getEnabledOrganizationIdps(OrganizationProvider orgs, Domain domain, HomeIdpDiscoveryConfig config) {
+        return orgs.getOrganizationsStreamForDomain(
+                context.getRealm(), domain.toString(), config.requireVerifiedDomain(), config.matchParentDomains())
+            .flatMap(o -> o.getIdentityProvidersStream())
+            .filter(IdentityProviderModel::isEnabled)
+            .collect(Collectors.toList());
+    }
+
     private void logFoundIdps(String idpQualifier, String domainQualifier, List<IdentityProviderModel> homeIdps, Domain domain, String username) {
         String homeIdpsString = homeIdps.stream()
             .map(IdentityProviderModel::getAlias)
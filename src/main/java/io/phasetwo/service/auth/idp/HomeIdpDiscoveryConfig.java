@@ -13,6 +13,7 @@ final class HomeIdpDiscoveryConfig {
     static final String BYPASS_LOGIN_PAGE = "bypassLoginPage";
     static final String USER_ATTRIBUTE = "userAttribute";
     static final String FORWARD_TO_FIRST_MATCH = "forwardToFirstMatch";
+    static final String MATCH_PARENT_DOMAINS = "matchParentDomains";
 
     private final AuthenticatorConfigModel authenticatorConfigModel;
 
@@ -36,6 +37,12 @@ final class HomeIdpDiscoveryConfig {
             .orElse(false);
     }
 
+    boolean matchParentDomains() {
+        return Optional.ofNullable(authenticatorConfigModel)
+            .map(it -> Boolean.parseBoolean(it.getConfig().getOrDefault(MATCH_PARENT_DOMAINS, "false")))
+            .orElse(false);
+    }
+
     boolean forwardToLinkedIdp() {
         return Optional.ofNullable(authenticatorConfigModel)
             .map(it -> Boolean.parseBoolean(it.getConfig().getOrDefault(FORWARD_TO_LINKED_IDP, "false")))
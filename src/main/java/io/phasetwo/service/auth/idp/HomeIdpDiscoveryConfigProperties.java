@@ -11,6 +11,7 @@ import static io.phasetwo.service.auth.idp.HomeIdpDiscoveryConfig.REQUIRE_VERIFI
 import static io.phasetwo.service.auth.idp.HomeIdpDiscoveryConfig.BYPASS_LOGIN_PAGE;
 import static io.phasetwo.service.auth.idp.HomeIdpDiscoveryConfig.FORWARD_TO_LINKED_IDP;
 import static io.phasetwo.service.auth.idp.HomeIdpDiscoveryConfig.FORWARD_TO_FIRST_MATCH;
+import static io.phasetwo.service.auth.idp.HomeIdpDiscoveryConfig.MATCH_PARENT_DOMAINS;
 import static io.phasetwo.service.auth.idp.HomeIdpDiscoveryConfig.USER_ATTRIBUTE;
 import static org.keycloak.provider.ProviderConfigProperty.BOOLEAN_TYPE;
 import static org.keycloak.provider.ProviderConfigProperty.STRING_TYPE;
@@ -35,6 +36,14 @@ final class HomeIdpDiscoveryConfigProperties {
           false,
           false);
 
+    private static final ProviderConfigProperty MATCH_PARENT_DOMAINS_PROPERTY = new ProviderConfigProperty(
+        MATCH_PARENT_DOMAINS,
+        "Match parent domains",
+        "Whether an email domain also matches the organizations with one of its parent domains, so that user@eng.example.com is forwarded to the identity provider of an organization with example.com.",
+        BOOLEAN_TYPE,
+        false,
+        false);
+
     private static final ProviderConfigProperty FORWARD_TO_LINKED_IDP_PROPERTY = new ProviderConfigProperty(
         FORWARD_TO_LINKED_IDP,
         "Forward to linked IdP",
@@ -71,6 +80,7 @@ final class HomeIdpDiscoveryConfigProperties {
         .property(USER_ATTRIBUTE_PROPERTY)
         .property(REQUIRE_VERIFIED_EMAIL_PROPERTY)
         .property(REQUIRE_VERIFIED_DOMAIN_PROPERTY)
+        .property(MATCH_PARENT_DOMAINS_PROPERTY)
         .property(BYPASS_LOGIN_PAGE_PROPERTY)
         .property(FORWARD_TO_LINKED_IDP_PROPERTY)
         .property(FORWARD_TO_FIRST_MATCH_PROPERTY)
@@ -43,9 +43,9 @@ public class InvitationAuthenticator implements Authenticator {
     // "authenticated" notion, which is interpreted in this case as
     // "they're okay. no need to run the authenticator".
     OrganizationProvider orgs = session.getProvider(OrganizationProvider.class);
-    long cnt = orgs.getUserInvitationsStream(realm, user).count();
-    log.infof("Found %d invites for %s", cnt, user.getEmail());
-    return !(cnt > 0);
+    boolean invited = orgs.hasUserInvitations(realm, user);
+    log.debugf("Found invites for %s? %b", user.getEmail(), invited);
+    return !invited;
   }
 
   @Override
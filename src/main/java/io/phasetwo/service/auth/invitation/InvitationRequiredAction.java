@@ -4,11 +4,11 @@ import static org.keycloak.events.EventType.CUSTOM_REQUIRED_ACTION;
 
 import io.phasetwo.service.model.InvitationModel;
 import io.phasetwo.service.model.OrganizationProvider;
-import io.phasetwo.service.model.OrganizationRoleModel;
 import jakarta.ws.rs.core.MultivaluedMap;
 import jakarta.ws.rs.core.Response;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.jbosslog.JBossLog;
@@ -32,9 +32,10 @@ public class InvitationRequiredAction implements RequiredActionProvider {
         "InvitationRequiredAction.evaluateTriggers called for realm %s and user %s",
         realm.getName(), user.getEmail());
 
-    long cnt = getUserInvites(context, realm, user).count();
-    log.debugf("Found %d invites for %s", cnt, user.getEmail());
-    if (cnt > 0) {
+    OrganizationProvider orgs = context.getSession().getProvider(OrganizationProvider.class);
+    boolean invited = orgs.hasUserInvitations(realm, user);
+    log.debugf("Found invites for %s? %b", user.getEmail(), invited);
+    if (invited) {
       log.debugf("Adding InvitationRequiredActionFactory for %s", user.getEmail());
       user.addRequiredAction(InvitationRequiredActionFactory.PROVIDER_ID);
     }
@@ -85,51 +86,44 @@ public class InvitationRequiredAction implements RequiredActionProvider {
     log.infof("Form Parameters: %s", mapToString(formData));
     OrganizationProvider orgs = context.getSession().getProvider(OrganizationProvider.class);
     List<String> selected = formData.get("orgs");
-    orgs.getUserInvitationsStream(realm, user)
-        .forEach(
-            i -> {
-              if (selected != null && selected.contains(i.getOrganization().getId())) {
-                // add membership
-                log.infof("selected %s", i.getOrganization().getId());
-                memberFromInvitation(i, user);
-                event
-                    .clone()
-                    .event(CUSTOM_REQUIRED_ACTION)
-                    .user(user)
-                    .detail("org_id", i.getOrganization().getId())
-                    .detail("invitation_id", i.getId())
-                    .success();
-              }
-              // revoke invitation
-              i.getOrganization().revokeInvitation(i.getId());
-              event
-                  .clone()
-                  .event(CUSTOM_REQUIRED_ACTION)
-                  .detail("org_id", i.getOrganization().getId())
-                  .detail("invitation_id", i.getId())
-                  .user(user)
-                  .error("User invitation revoked.");
-            });
+    List<InvitationModel> invitations =
+        orgs.getUserInvitationsStream(realm, user).collect(Collectors.toList());
+    // the selected invitations are accepted and the others declined, each with a fixed number of
+    // statements
+    Map<Boolean, List<String>> choices =
+        invitations.stream()
+            .collect(
+                Collectors.partitioningBy(
+                    i -> selected != null && selected.contains(i.getOrganizationId()),
+                    Collectors.mapping(InvitationModel::getId, Collectors.toList())));
+    Map<String, String> accepted = orgs.acceptInvitations(realm, user, choices.get(true));
+    Set<String> declined = orgs.declineInvitations(realm, user, choices.get(false));
+
+    invitations.forEach(
+        i -> {
+          if (accepted.containsKey(i.getId())) {
+            log.infof("selected %s", i.getOrganizationId());
+            event
+                .clone()
+                .event(CUSTOM_REQUIRED_ACTION)
+                .user(user)
+                .detail("org_id", i.getOrganizationId())
+                .detail("invitation_id", i.getId())
+                .success();
+          } else if (declined.contains(i.getId())) {
+            event
+                .clone()
+                .event(CUSTOM_REQUIRED_ACTION)
+                .detail("org_id", i.getOrganizationId())
+                .detail("invitation_id", i.getId())
+                .user(user)
+                .error("User invitation revoked.");
+          }
+        });
 
     context.success();
   }
 
-  void memberFromInvitation(InvitationModel invitation, UserModel user) {
-    // membership
-    invitation.getOrganization().grantMembership(user);
-    // roles
-    invitation.getRoles().stream()
-        .forEach(
-            r -> {
-              OrganizationRoleModel role = invitation.getOrganization().getRoleByName(r);
-              if (role == null) {
-                log.debugf("No org role found for invitation role %s. Skipping...", r);
-              } else {
-                role.grantRole(user);
-              }
-            });
-  }
-
   @Override
   public void close() {}
 
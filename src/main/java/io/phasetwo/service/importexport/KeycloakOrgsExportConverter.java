@@ -1,7 +1,5 @@
 package io.phasetwo.service.importexport;
 
-import static io.phasetwo.service.Orgs.ORG_OWNER_CONFIG_KEY;
-
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.phasetwo.service.importexport.representation.InvitationRepresentation;
@@ -13,7 +11,6 @@ import io.phasetwo.service.model.InvitationModel;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationRoleModel;
 import io.phasetwo.service.resource.OrganizationResourceProviderFactory;
-import io.phasetwo.service.util.IdentityProviders;
 import org.keycloak.models.IdentityProviderModel;
 
 public final class KeycloakOrgsExportConverter {
@@ -30,8 +27,6 @@ public final class KeycloakOrgsExportConverter {
     var idpOptional =
         organizationModel
             .getIdentityProvidersStream()
-            .filter(
-                identityProviderModel -> idpInOrg(identityProviderModel, organizationModel.getId()))
             .map(IdentityProviderModel::getAlias)
             .findFirst();
 
@@ -103,10 +98,4 @@ public final class KeycloakOrgsExportConverter {
     o.setAttributes(e.getAttributes());
     return o;
   }
-
-  private static boolean idpInOrg(IdentityProviderModel provider, String orgId) {
-    var orgs =
-        IdentityProviders.getAttributeMultivalued(provider.getConfig(), ORG_OWNER_CONFIG_KEY);
-    return orgs.contains(orgId);
-  }
 }
@@ -0,0 +1,65 @@
+package io.phasetwo.service.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Strings;
+import java.util.Base64;
+
+/**
+ * Position after the last item of a page, made of the sort key and the id of that item. It is
+ * exchanged with clients as an opaque url-safe string.
+ */
+public class Cursor {
+
+  private static final char SEPARATOR = '\n';
+
+  private final String key;
+  private final String id;
+
+  private Cursor(String key, String id) {
+    this.key = key;
+    this.id = id;
+  }
+
+  public static Cursor of(String key, String id) {
+    if (key == null || id == null) {
+      throw new IllegalArgumentException("Cursor requires a key and an id");
+    }
+    return new Cursor(key, id);
+  }
+
+  /**
+   * @return the decoded cursor, or null for an empty value
+   * @throws IllegalArgumentException if the value is not a valid cursor
+   */
+  public static Cursor decode(String value) {
+    if (Strings.isNullOrEmpty(value)) return null;
+    String decoded = new String(Base64.getUrlDecoder().decode(value), UTF_8);
+    int i = decoded.lastIndexOf(SEPARATOR);
+    if (i < 0) throw new IllegalArgumentException("Invalid cursor");
+    return new Cursor(decoded.substring(0, i), decoded.substring(i + 1));
+  }
+
+  public String encode() {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString((key + SEPARATOR + id).getBytes(UTF_8));
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /** The key as a timestamp, for pages sorted by creation time. */
+  public long getKeyAsLong() {
+    try {
+      return Long.parseLong(key);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+  }
+
+  public String getId() {
+    return id;
+  }
+}
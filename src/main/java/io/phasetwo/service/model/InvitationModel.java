@@ -7,10 +7,20 @@ import org.keycloak.models.UserModel;
 
 public interface InvitationModel extends WithAttributes {
 
+  /** State of the invitation email. */
+  enum EmailStatus {
+    PENDING,
+    SENT,
+    FAILED
+  }
+
   String getId();
 
   OrganizationModel getOrganization();
 
+  /** Id of the organization, without loading it. */
+  String getOrganizationId();
+
   String getEmail();
 
   void setEmail(String email);
@@ -27,7 +37,23 @@ public interface InvitationModel extends WithAttributes {
 
   void setCreatedAt(Date date);
 
+  /** When the invitation expires, or null if it doesn't. */
+  Date getExpiresAt();
+
+  void setExpiresAt(Date date);
+
   Set<String> getRoles();
 
   void setRoles(Collection<String> roles);
+
+  /** Status of the last requested invitation email, or null if none was requested. */
+  EmailStatus getEmailStatus();
+
+  void setEmailStatus(EmailStatus status);
+
+  /**
+   * Queues the invitation email in the current transaction. It is sent in the background once the
+   * transaction commits, and retried if sending fails.
+   */
+  void queueEmail(UserModel inviter);
 }
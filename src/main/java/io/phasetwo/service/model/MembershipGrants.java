@@ -0,0 +1,27 @@
+package io.phasetwo.service.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** What a bulk grant of memberships added: the new members, and the new roles of each user. */
+public class MembershipGrants {
+
+  private final Set<String> memberIds;
+  private final Map<String, List<String>> roles;
+
+  public MembershipGrants(Set<String> memberIds, Map<String, List<String>> roles) {
+    this.memberIds = memberIds;
+    this.roles = roles;
+  }
+
+  /** Ids of the users who weren't members before. */
+  public Set<String> getMemberIds() {
+    return memberIds;
+  }
+
+  /** Names of the roles granted, by user id, leaving out the ones the users already had. */
+  public Map<String, List<String>> getRoles() {
+    return roles;
+  }
+}
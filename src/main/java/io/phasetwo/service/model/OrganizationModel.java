@@ -1,7 +1,11 @@
 package io.phasetwo.service.model;
 
 import com.google.common.collect.MoreCollectors;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.keycloak.models.IdentityProviderModel;
 import org.keycloak.models.KeycloakSession;
@@ -41,19 +45,56 @@ public interface OrganizationModel extends WithAttributes {
 
   Stream<UserModel> searchForMembersStream(String search, Integer firstResult, Integer maxResults);
 
+  Long searchForMembersCount(String search);
+
+  /**
+   * Same search as {@link #searchForMembersStream searchForMembersStream}, sorted by membership
+   * creation time and id, returning the members after the cursor. A null cursor returns the first
+   * page.
+   */
+  Page<UserModel> searchForMembersPage(String search, Cursor after, int maxResults);
+
   boolean hasMembership(UserModel user);
 
   void grantMembership(UserModel user);
 
   void revokeMembership(UserModel user);
 
+  /**
+   * Grants membership to each of the users, and the named roles to each of them, in batches. Users
+   * who are already members only get the roles they are missing. Unknown role names are ignored.
+   * Returns the new members, and the roles that were granted.
+   */
+  MembershipGrants grantMemberships(Map<UserModel, ? extends Collection<String>> memberRoles);
+
+  /**
+   * Revokes the memberships of the users, with their roles in the organization and their
+   * invitations to it, in a fixed number of statements per batch of users. Users who aren't members
+   * are ignored. Returns the ids of the users whose membership was revoked.
+   */
+  Set<String> revokeMemberships(Collection<UserModel> users);
+
+  /** Ids of the given users whose active organization attribute is this organization. */
+  Set<String> getActiveMemberIds(Collection<String> userIds);
+
   Long getInvitationsCount();
 
   Stream<InvitationModel> getInvitationsStream();
 
-  default Stream<InvitationModel> getInvitationsByEmail(String email) {
-    return getInvitationsStream().filter(i -> i.getEmail().equals(email));
-  }
+  /** Invitations for the email that haven't expired. */
+  Stream<InvitationModel> getInvitationsByEmail(String email);
+
+  /** Invitations whose email contains the search, sorted by creation time and id. */
+  Stream<InvitationModel> searchForInvitationsStream(
+      String search, Integer firstResult, Integer maxResults);
+
+  Long searchForInvitationsCount(String search);
+
+  /**
+   * Invitations whose email contains the search, sorted by creation time and id, after the cursor.
+   * A null cursor returns the first page.
+   */
+  Page<InvitationModel> searchForInvitationsPage(String search, Cursor after, int maxResults);
 
   InvitationModel getInvitation(String id);
 
@@ -63,6 +104,23 @@ public interface OrganizationModel extends WithAttributes {
 
   InvitationModel addInvitation(String email, UserModel inviter);
 
+  /**
+   * Invites each of the emails, with the inviter it maps to, in batches. The emails must be lower
+   * case, and must not have an unexpired invitation already. Expired ones are replaced. The
+   * initializer is called on each new invitation before they are written, so that its changes are
+   * written in the same batches. Returns the invitations in the order of the map.
+   */
+  List<InvitationModel> addInvitations(
+      Map<String, UserModel> invitations, Consumer<InvitationModel> initializer);
+
+  /** The emails, among the given lower case emails, that already have an unexpired invitation. */
+  Set<String> getInvitedEmails(Collection<String> emails);
+
+  /**
+   * The emails, among the given lower case emails, that are the email or the username of a member.
+   */
+  Set<String> getMemberEmails(Collection<String> emails);
+
   Stream<OrganizationRoleModel> getRolesStream();
 
   Stream<OrganizationRoleModel> getRolesByUserStream(UserModel user);
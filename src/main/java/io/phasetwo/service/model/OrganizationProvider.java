@@ -2,9 +2,14 @@ package io.phasetwo.service.model;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.keycloak.models.IdentityProviderModel;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.provider.Provider;
@@ -16,11 +21,40 @@ public interface OrganizationProvider extends Provider {
 
   OrganizationModel getOrganizationById(RealmModel realm, String id);
 
+  /**
+   * Organizations that own the domain. When {@code verified} is true, only verified domains match.
+   */
+  default Stream<OrganizationModel> getOrganizationsStreamForDomain(
+      RealmModel realm, String domain, boolean verified) {
+    return getOrganizationsStreamForDomain(realm, domain, verified, false);
+  }
+
+  /**
+   * Organizations that own the domain, and when {@code parentDomains} is true, those that own one
+   * of its parent domains, most specific domain first. When {@code verified} is true, only verified
+   * domains match.
+   */
   Stream<OrganizationModel> getOrganizationsStreamForDomain(
-      RealmModel realm, String domain, boolean verified);
+      RealmModel realm, String domain, boolean verified, boolean parentDomains);
+
+  /** Domains of every organization in the realm. */
+  Stream<DomainModel> getDomainsStream(RealmModel realm);
 
   Stream<OrganizationModel> getUserOrganizationsStream(RealmModel realm, UserModel user);
 
+  /**
+   * Organizations of which the user is a member, keyed by organization id, with the names of the
+   * roles granted to the user in each of them.
+   */
+  Map<String, UserOrganizationRoles> getUserOrganizationRoles(RealmModel realm, UserModel user);
+
+  /**
+   * Attributes with the given names of the organizations of which the user is a member, keyed by
+   * organization id. Organizations that have none of the attributes are left out.
+   */
+  Map<String, Map<String, List<String>>> getUserOrganizationAttributes(
+      RealmModel realm, UserModel user, Set<String> names);
+
   Stream<OrganizationModel> searchForOrganizationStream(
       RealmModel realm,
       Map<String, String> attributes,
@@ -28,14 +62,85 @@ public interface OrganizationProvider extends Provider {
       Integer maxResults,
       Optional<UserModel> member);
 
+  /**
+   * Same search as {@link #searchForOrganizationStream searchForOrganizationStream}, sorted by name
+   * and id, returning the organizations after the cursor. A null cursor returns the first page.
+   */
+  Page<OrganizationModel> searchForOrganizationPage(
+      RealmModel realm,
+      Map<String, String> attributes,
+      Cursor after,
+      int maxResults,
+      Optional<UserModel> member);
+
   Long getOrganizationsCount(RealmModel realm, String search);
 
   boolean removeOrganization(RealmModel realm, String id);
 
+  /**
+   * Removes every organization of the realm, when the realm itself is removed. Unlike {@link
+   * #removeOrganization removeOrganization}, it doesn't publish an {@link
+   * OrganizationModel.OrganizationRemovedEvent} per organization, as what the listeners clean up
+   * goes with the realm.
+   */
   void removeOrganizations(RealmModel realm);
 
   Stream<InvitationModel> getUserInvitationsStream(RealmModel realm, UserModel user);
 
+  /** Whether an organization of the realm has an invitation for the email of the user. */
+  boolean hasUserInvitations(RealmModel realm, UserModel user);
+
+  /**
+   * Accepts the invitations of the user with the given ids, in a fixed number of statements
+   * whatever their number. Grants the memberships of their organizations, and the roles they carry
+   * that exist, and then removes them. Ids of invitations that aren't for the email of the user, or
+   * that have expired, are ignored. Returns the organization id of each accepted invitation, by
+   * invitation id.
+   */
+  Map<String, String> acceptInvitations(
+      RealmModel realm, UserModel user, Collection<String> invitationIds);
+
+  /**
+   * Removes the invitations of the user with the given ids. Ids of invitations that aren't for the
+   * email of the user, or that have expired, are ignored. The purge removes the expired ones.
+   * Returns the ids of the removed invitations.
+   */
+  Set<String> declineInvitations(
+      RealmModel realm, UserModel user, Collection<String> invitationIds);
+
+  /**
+   * Removes up to {@code max} expired invitations, of any realm. Returns the lower case emails of
+   * the removed invitations by realm id, which is empty once there are none left.
+   */
+  Map<String, Set<String>> removeExpiredInvitations(int max);
+
+  /** Ids of the organizations that the identity provider belongs to. */
+  Set<String> getIdentityProviderOrganizationIds(RealmModel realm, IdentityProviderModel idp);
+
+  /**
+   * Updates the organizations of the identity provider to match its {@code home.idp.discovery.org}
+   * config. Called whenever an identity provider is created or updated.
+   */
+  void syncIdentityProvider(RealmModel realm, IdentityProviderModel idp);
+
+  /** Removes the identity provider from all organizations. */
+  void removeIdentityProvider(RealmModel realm, IdentityProviderModel idp);
+
+  /**
+   * Identity providers of the realm that have a {@code home.idp.discovery.org} config but don't
+   * belong to any organization yet. Keycloak publishes no event when an identity provider is
+   * created through its own admin API or imported with the realm, so they are synced on realm
+   * creation and by a scheduled task.
+   */
+  Stream<IdentityProviderModel> getUnlinkedIdentityProvidersStream(RealmModel realm);
+
+  /** Adds the identity providers that aren't linked yet to the organizations of their config. */
+  default void syncIdentityProviders(RealmModel realm) {
+    getUnlinkedIdentityProvidersStream(realm)
+        .collect(Collectors.toList())
+        .forEach(idp -> syncIdentityProvider(realm, idp));
+  }
+
   // deprecated methods
 
   /**
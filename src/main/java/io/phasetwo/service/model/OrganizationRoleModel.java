@@ -17,6 +17,12 @@ public interface OrganizationRoleModel {
 
   Stream<UserModel> getUserMappingsStream();
 
+  /**
+   * Users granted the role, sorted by grant time and id, after the cursor. A null cursor returns
+   * the first page.
+   */
+  Page<UserModel> getUserMappingsPage(Cursor after, int maxResults);
+
   void grantRole(UserModel user);
 
   void revokeRole(UserModel user);
@@ -0,0 +1,44 @@
+package io.phasetwo.service.model;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/** A page of results, and the cursor to fetch the next one if there are more. */
+public class Page<T> {
+
+  private final List<T> items;
+  private final Cursor next;
+
+  public Page(List<T> items, Cursor next) {
+    this.items = items;
+    this.next = next;
+  }
+
+  /**
+   * Builds a page from a query that fetched up to {@code maxResults + 1} rows, the extra row only
+   * telling that there is a next page. Rows the mapper can't resolve are left out of the items.
+   */
+  public static <R, T> Page<T> of(
+      List<R> rows, int maxResults, Function<R, Cursor> cursor, Function<R, T> mapper) {
+    Cursor next = null;
+    if (rows.size() > maxResults) {
+      rows = rows.subList(0, maxResults);
+      if (maxResults > 0) next = cursor.apply(rows.get(maxResults - 1));
+    }
+    List<T> items = rows.stream().map(mapper).filter(Objects::nonNull).collect(Collectors.toList());
+    return new Page<>(items, next);
+  }
+
+  public List<T> getItems() {
+    return items;
+  }
+
+  /**
+   * @return the cursor of the next page, or null if this is the last page
+   */
+  public Cursor getNext() {
+    return next;
+  }
+}
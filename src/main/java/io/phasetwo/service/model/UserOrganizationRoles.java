@@ -0,0 +1,29 @@
+package io.phasetwo.service.model;
+
+import java.util.List;
+
+/** Projection of an organization a user is a member of, and the roles granted in it. */
+public class UserOrganizationRoles {
+
+  private final String organizationId;
+  private final String organizationName;
+  private final List<String> roles;
+
+  public UserOrganizationRoles(String organizationId, String organizationName, List<String> roles) {
+    this.organizationId = organizationId;
+    this.organizationName = organizationName;
+    this.roles = roles;
+  }
+
+  public String getOrganizationId() {
+    return organizationId;
+  }
+
+  public String getOrganizationName() {
+    return organizationName;
+  }
+
+  public List<String> getRoles() {
+    return roles;
+  }
+}
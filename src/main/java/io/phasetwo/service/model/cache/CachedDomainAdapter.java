@@ -0,0 +1,42 @@
+package io.phasetwo.service.model.cache;
+
+import io.phasetwo.service.model.DomainModel;
+import io.phasetwo.service.model.OrganizationModel;
+
+/** Domain backed by the cached organization snapshot. */
+public class CachedDomainAdapter implements DomainModel {
+
+  protected final CachedOrganizationAdapter org;
+  protected final String domain;
+  protected boolean verified;
+
+  public CachedDomainAdapter(CachedOrganizationAdapter org, String domain, boolean verified) {
+    this.org = org;
+    this.domain = domain;
+    this.verified = verified;
+  }
+
+  @Override
+  public String getDomain() {
+    return domain;
+  }
+
+  @Override
+  public boolean isVerified() {
+    return verified;
+  }
+
+  @Override
+  public void setVerified(boolean verified) {
+    org.provider.registerDomainInvalidation(org.realm.getId(), org.getId());
+    DomainModel delegate = org.getDelegateForUpdate().getDomain(domain);
+    if (delegate == null) throw new IllegalStateException("Not found in database");
+    delegate.setVerified(verified);
+    this.verified = verified;
+  }
+
+  @Override
+  public OrganizationModel getOrganization() {
+    return org;
+  }
+}
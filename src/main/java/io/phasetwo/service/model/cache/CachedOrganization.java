@@ -0,0 +1,121 @@
+package io.phasetwo.service.model.cache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.phasetwo.service.model.jpa.entity.DomainEntity;
+import io.phasetwo.service.model.jpa.entity.ExtOrganizationEntity;
+import io.phasetwo.service.model.jpa.entity.OrganizationAttributeEntity;
+import io.phasetwo.service.model.jpa.entity.OrganizationIdentityProviderEntity;
+import java.util.List;
+import java.util.Map;
+import org.keycloak.common.util.MultivaluedHashMap;
+
+/** Immutable snapshot of the organization state that is read on hot paths. */
+public class CachedOrganization {
+
+  private final String id;
+  private final String realmId;
+  private final String name;
+  private final String displayName;
+  private final String url;
+  private final String createdBy;
+  private final Map<String, Boolean> domains;
+  private final Map<String, List<String>> attributes;
+  private final List<CachedOrganizationRole> roles;
+  private final List<String> identityProviders;
+
+  public CachedOrganization(ExtOrganizationEntity org) {
+    this.id = org.getId();
+    this.realmId = org.getRealmId();
+    this.name = org.getName();
+    this.displayName = org.getDisplayName();
+    this.url = org.getUrl();
+    this.createdBy = org.getCreatedBy();
+    ImmutableMap.Builder<String, Boolean> domains = ImmutableMap.builder();
+    for (DomainEntity d : org.getDomains()) {
+      domains.put(d.getDomain(), d.isVerified());
+    }
+    this.domains = domains.buildKeepingLast();
+    MultivaluedHashMap<String, String> attributes = new MultivaluedHashMap<>();
+    for (OrganizationAttributeEntity attr : org.getAttributes()) {
+      attributes.add(attr.getName(), attr.getValue());
+    }
+    ImmutableMap.Builder<String, List<String>> immutableAttributes = ImmutableMap.builder();
+    attributes.forEach((k, v) -> immutableAttributes.put(k, ImmutableList.copyOf(v)));
+    this.attributes = immutableAttributes.build();
+    this.roles =
+        org.getRoles().stream()
+            .map(r -> new CachedOrganizationRole(r.getId(), r.getName(), r.getDescription()))
+            .collect(ImmutableList.toImmutableList());
+    this.identityProviders =
+        org.getIdentityProviders().stream()
+            .map(OrganizationIdentityProviderEntity::getIdpAlias)
+            .collect(ImmutableList.toImmutableList());
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getRealmId() {
+    return realmId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDisplayName() {
+    return displayName;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public String getCreatedBy() {
+    return createdBy;
+  }
+
+  /** Domain name to verification status. */
+  public Map<String, Boolean> getDomains() {
+    return domains;
+  }
+
+  public Map<String, List<String>> getAttributes() {
+    return attributes;
+  }
+
+  public List<CachedOrganizationRole> getRoles() {
+    return roles;
+  }
+
+  /** Aliases of the identity providers of the organization. */
+  public List<String> getIdentityProviders() {
+    return identityProviders;
+  }
+
+  public static class CachedOrganizationRole {
+    private final String id;
+    private final String name;
+    private final String description;
+
+    public CachedOrganizationRole(String id, String name, String description) {
+      this.id = id;
+      this.name = name;
+      this.description = description;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+  }
+}
@@ -0,0 +1,355 @@
+package io.phasetwo.service.model.cache;
+
+import io.phasetwo.service.model.Cursor;
+import io.phasetwo.service.model.DomainModel;
+import io.phasetwo.service.model.InvitationModel;
+import io.phasetwo.service.model.MembershipGrants;
+import io.phasetwo.service.model.OrganizationModel;
+import io.phasetwo.service.model.OrganizationRoleModel;
+import io.phasetwo.service.model.Page;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.keycloak.common.util.MultivaluedHashMap;
+import org.keycloak.models.IdentityProviderModel;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Reads come from the {@link CachedOrganization} snapshot until the organization is updated in this
+ * session. Updates go through {@link #getDelegateForUpdate()}, which registers the invalidation and
+ * switches the adapter over to the JPA model.
+ */
+public class CachedOrganizationAdapter implements OrganizationModel {
+
+  protected final CachedOrganizationProvider provider;
+  protected final RealmModel realm;
+  protected final CachedOrganization cached;
+  protected OrganizationModel delegate;
+  protected OrganizationModel updated;
+
+  public CachedOrganizationAdapter(
+      CachedOrganizationProvider provider, RealmModel realm, CachedOrganization cached) {
+    this.provider = provider;
+    this.realm = realm;
+    this.cached = cached;
+  }
+
+  /** Adapter for an organization that was already invalidated in this session. */
+  public CachedOrganizationAdapter(
+      CachedOrganizationProvider provider, RealmModel realm, OrganizationModel updated) {
+    this.provider = provider;
+    this.realm = realm;
+    this.cached = null;
+    this.delegate = updated;
+    this.updated = updated;
+  }
+
+  /** The JPA model, for reads that aren't cached. Doesn't invalidate anything. */
+  protected OrganizationModel getDelegate() {
+    if (delegate == null) {
+      delegate = provider.getDelegate().getOrganizationById(realm, getId());
+      if (delegate == null) throw new IllegalStateException("Not found in database");
+    }
+    return delegate;
+  }
+
+  /** The JPA model, for updates to the cached organization state. */
+  protected OrganizationModel getDelegateForUpdate() {
+    if (updated == null) {
+      provider.registerOrganizationInvalidation(getId());
+      updated = getDelegate();
+    }
+    return updated;
+  }
+
+  protected boolean isUpdated() {
+    return updated != null;
+  }
+
+  @Override
+  public String getId() {
+    return cached != null ? cached.getId() : updated.getId();
+  }
+
+  @Override
+  public String getName() {
+    if (isUpdated()) return updated.getName();
+    return cached.getName();
+  }
+
+  @Override
+  public void setName(String name) {
+    getDelegateForUpdate().setName(name);
+  }
+
+  @Override
+  public String getDisplayName() {
+    if (isUpdated()) return updated.getDisplayName();
+    return cached.getDisplayName();
+  }
+
+  @Override
+  public void setDisplayName(String displayName) {
+    getDelegateForUpdate().setDisplayName(displayName);
+  }
+
+  @Override
+  public Set<String> getDomains() {
+    if (isUpdated()) return updated.getDomains();
+    return new HashSet<>(cached.getDomains().keySet());
+  }
+
+  @Override
+  public void setDomains(Set<String> domains) {
+    provider.registerDomainInvalidation(realm.getId(), getId());
+    getDelegateForUpdate().setDomains(domains);
+  }
+
+  @Override
+  public DomainModel getDomain(String name) {
+    if (isUpdated()) {
+      DomainModel domain = updated.getDomain(name);
+      return domain == null
+          ? null
+          : new CachedDomainAdapter(this, domain.getDomain(), domain.isVerified());
+    }
+    return cached.getDomains().entrySet().stream()
+        .filter(e -> e.getKey().equalsIgnoreCase(name))
+        .findFirst()
+        .map(e -> new CachedDomainAdapter(this, e.getKey(), e.getValue()))
+        .orElse(null);
+  }
+
+  @Override
+  public String getUrl() {
+    if (isUpdated()) return updated.getUrl();
+    return cached.getUrl();
+  }
+
+  @Override
+  public void setUrl(String url) {
+    getDelegateForUpdate().setUrl(url);
+  }
+
+  @Override
+  public RealmModel getRealm() {
+    if (isUpdated()) return updated.getRealm();
+    if (realm.getId().equals(cached.getRealmId())) return realm;
+    return provider.session.realms().getRealm(cached.getRealmId());
+  }
+
+  @Override
+  public UserModel getCreatedBy() {
+    if (isUpdated()) return updated.getCreatedBy();
+    return provider.session.users().getUserById(realm, cached.getCreatedBy());
+  }
+
+  @Override
+  public Map<String, List<String>> getAttributes() {
+    if (isUpdated()) return updated.getAttributes();
+    MultivaluedHashMap<String, String> result = new MultivaluedHashMap<>();
+    cached.getAttributes().forEach((k, v) -> result.put(k, new ArrayList<>(v)));
+    return result;
+  }
+
+  @Override
+  public void removeAttributes() {
+    getDelegateForUpdate().removeAttributes();
+  }
+
+  @Override
+  public void removeAttribute(String name) {
+    getDelegateForUpdate().removeAttribute(name);
+  }
+
+  @Override
+  public void setAttribute(String name, List<String> values) {
+    getDelegateForUpdate().setAttribute(name, values);
+  }
+
+  @Override
+  public Long getMembersCount() {
+    return getDelegate().getMembersCount();
+  }
+
+  @Override
+  public Stream<UserModel> getMembersStream() {
+    return getDelegate().getMembersStream();
+  }
+
+  @Override
+  public Stream<UserModel> searchForMembersStream(
+      String search, Integer firstResult, Integer maxResults) {
+    return getDelegate().searchForMembersStream(search, firstResult, maxResults);
+  }
+
+  @Override
+  public Long searchForMembersCount(String search) {
+    return getDelegate().searchForMembersCount(search);
+  }
+
+  @Override
+  public Page<UserModel> searchForMembersPage(String search, Cursor after, int maxResults) {
+    return getDelegate().searchForMembersPage(search, after, maxResults);
+  }
+
+  @Override
+  public boolean hasMembership(UserModel user) {
+    return provider.getUserOrganizationIds(realm, user).contains(getId());
+  }
+
+  @Override
+  public void grantMembership(UserModel user) {
+    provider.registerMembershipInvalidation(realm.getId(), getId(), user.getId());
+    getDelegate().grantMembership(user);
+  }
+
+  @Override
+  public MembershipGrants grantMemberships(
+      Map<UserModel, ? extends Collection<String>> memberRoles) {
+    memberRoles
+        .keySet()
+        .forEach(u -> provider.registerMembershipInvalidation(realm.getId(), getId(), u.getId()));
+    return getDelegate().grantMemberships(memberRoles);
+  }
+
+  @Override
+  public Set<String> revokeMemberships(Collection<UserModel> users) {
+    users.forEach(
+        u -> {
+          provider.registerMembershipInvalidation(realm.getId(), getId(), u.getId());
+          provider.registerInvitationInvalidation(realm.getId(), u.getEmail());
+        });
+    return getDelegate().revokeMemberships(users);
+  }
+
+  @Override
+  public Set<String> getActiveMemberIds(Collection<String> userIds) {
+    return getDelegate().getActiveMemberIds(userIds);
+  }
+
+  @Override
+  public void revokeMembership(UserModel user) {
+    provider.registerMembershipInvalidation(realm.getId(), getId(), user.getId());
+    // revoking a membership also revokes the invitations of the user
+    provider.registerInvitationInvalidation(realm.getId(), user.getEmail());
+    getDelegate().revokeMembership(user);
+  }
+
+  @Override
+  public Long getInvitationsCount() {
+    return getDelegate().getInvitationsCount();
+  }
+
+  @Override
+  public Stream<InvitationModel> getInvitationsStream() {
+    return getDelegate().getInvitationsStream();
+  }
+
+  @Override
+  public Stream<InvitationModel> getInvitationsByEmail(String email) {
+    return getDelegate().getInvitationsByEmail(email);
+  }
+
+  @Override
+  public Stream<InvitationModel> searchForInvitationsStream(
+      String search, Integer firstResult, Integer maxResults) {
+    return getDelegate().searchForInvitationsStream(search, firstResult, maxResults);
+  }
+
+  @Override
+  public Long searchForInvitationsCount(String search) {
+    return getDelegate().searchForInvitationsCount(search);
+  }
+
+  @Override
+  public Page<InvitationModel> searchForInvitationsPage(
+      String search, Cursor after, int maxResults) {
+    return getDelegate().searchForInvitationsPage(search, after, maxResults);
+  }
+
+  @Override
+  public InvitationModel getInvitation(String id) {
+    return getDelegate().getInvitation(id);
+  }
+
+  @Override
+  public void revokeInvitation(String id) {
+    InvitationModel invitation = getDelegate().getInvitation(id);
+    if (invitation != null) {
+      provider.registerInvitationInvalidation(realm.getId(), invitation.getEmail());
+    }
+    getDelegate().revokeInvitation(id);
+  }
+
+  @Override
+  public void revokeInvitations(String email) {
+    provider.registerInvitationInvalidation(realm.getId(), email);
+    getDelegate().revokeInvitations(email);
+  }
+
+  @Override
+  public InvitationModel addInvitation(String email, UserModel inviter) {
+    provider.registerInvitationInvalidation(realm.getId(), email);
+    return getDelegate().addInvitation(email, inviter);
+  }
+
+  @Override
+  public List<InvitationModel> addInvitations(
+      Map<String, UserModel> invitations, Consumer<InvitationModel> initializer) {
+    invitations
+        .keySet()
+        .forEach(email -> provider.registerInvitationInvalidation(realm.getId(), email));
+    return getDelegate().addInvitations(invitations, initializer);
+  }
+
+  @Override
+  public Set<String> getInvitedEmails(Collection<String> emails) {
+    return getDelegate().getInvitedEmails(emails);
+  }
+
+  @Override
+  public Set<String> getMemberEmails(Collection<String> emails) {
+    return getDelegate().getMemberEmails(emails);
+  }
+
+  @Override
+  public Stream<OrganizationRoleModel> getRolesStream() {
+    if (isUpdated()) {
+      return updated.getRolesStream().map(r -> new CachedOrganizationRoleAdapter(this, r));
+    }
+    return cached.getRoles().stream().map(r -> new CachedOrganizationRoleAdapter(this, r));
+  }
+
+  @Override
+  public Stream<OrganizationRoleModel> getRolesByUserStream(UserModel user) {
+    Set<String> roleIds = provider.getUserRoleIds(this, user);
+    return getRolesStream().filter(r -> roleIds.contains(r.getId()));
+  }
+
+  @Override
+  public void removeRole(String name) {
+    getDelegateForUpdate().removeRole(name);
+  }
+
+  @Override
+  public OrganizationRoleModel addRole(String name) {
+    return new CachedOrganizationRoleAdapter(this, getDelegateForUpdate().addRole(name));
+  }
+
+  @Override
+  public Stream<IdentityProviderModel> getIdentityProvidersStream() {
+    if (isUpdated()) return updated.getIdentityProvidersStream();
+    RealmModel realm = getRealm();
+    return cached.getIdentityProviders().stream()
+        .map(realm::getIdentityProviderByAlias)
+        .filter(Objects::nonNull);
+  }
+}
@@ -0,0 +1,458 @@
+package io.phasetwo.service.model.cache;
+
+import static io.phasetwo.service.Orgs.ORG_OWNER_CONFIG_KEY;
+import static io.phasetwo.service.model.cache.OrganizationCache.domainIndexKey;
+import static io.phasetwo.service.model.cache.OrganizationCache.domainPrefix;
+import static io.phasetwo.service.model.cache.OrganizationCache.invitationsKey;
+import static io.phasetwo.service.model.cache.OrganizationCache.invitationsPrefix;
+import static io.phasetwo.service.model.cache.OrganizationCache.membershipsKey;
+import static io.phasetwo.service.model.cache.OrganizationCache.membershipsPrefix;
+import static io.phasetwo.service.model.cache.OrganizationCache.organizationKey;
+import static io.phasetwo.service.model.cache.OrganizationCache.organizationPrefix;
+import static io.phasetwo.service.model.cache.OrganizationCache.roleMappingsKey;
+import static io.phasetwo.service.model.cache.OrganizationCache.roleMappingsPrefix;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.InternetDomainName;
+import io.phasetwo.service.model.Cursor;
+import io.phasetwo.service.model.DomainModel;
+import io.phasetwo.service.model.InvitationModel;
+import io.phasetwo.service.model.OrganizationModel;
+import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.Page;
+import io.phasetwo.service.model.UserOrganizationRoles;
+import io.phasetwo.service.model.jpa.JpaOrganizationProviderFactory;
+import io.phasetwo.service.model.jpa.entity.DomainEntity;
+import io.phasetwo.service.model.jpa.entity.ExtOrganizationEntity;
+import io.phasetwo.service.util.IdentityProviders;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.IdentityProviderModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.jpa.JpaModel;
+
+/**
+ * {@link OrganizationProvider} that serves organization, domain, membership and role mapping reads
+ * from the {@link OrganizationCache}, and delegates everything else to the JPA provider. Mutations
+ * record the affected cache keys for the session. Those keys bypass the cache until the transaction
+ * ends, and are then evicted locally and on the other cluster nodes.
+ */
+@JBossLog
+public class CachedOrganizationProvider implements OrganizationProvider {
+
+  protected final KeycloakSession session;
+  protected final OrganizationCache cache;
+  protected final long startupRevision;
+  protected final Set<String> invalidations = new HashSet<>();
+  protected final Set<String> invalidationPrefixes = new HashSet<>();
+  protected OrganizationProvider delegate;
+  protected boolean transactionActive;
+
+  public CachedOrganizationProvider(KeycloakSession session, OrganizationCache cache) {
+    this.session = session;
+    this.cache = cache;
+    this.startupRevision = cache.getCurrentRevision();
+  }
+
+  public OrganizationProvider getDelegate() {
+    if (delegate == null) {
+      delegate =
+          session.getProvider(
+              OrganizationProvider.class, JpaOrganizationProviderFactory.PROVIDER_ID);
+    }
+    return delegate;
+  }
+
+  @Override
+  public OrganizationModel createOrganization(
+      RealmModel realm, String name, UserModel createdBy, boolean admin) {
+    OrganizationModel org = getDelegate().createOrganization(realm, name, createdBy, admin);
+    registerOrganizationInvalidation(org.getId());
+    registerMembershipInvalidation(realm.getId(), org.getId(), createdBy.getId());
+    return wrap(realm, org);
+  }
+
+  @Override
+  public OrganizationModel getOrganizationById(RealmModel realm, String id) {
+    String key = organizationKey(id);
+    if (isInvalid(key)) {
+      OrganizationModel org = getDelegate().getOrganizationById(realm, id);
+      return org == null ? null : new CachedOrganizationAdapter(this, realm, org);
+    }
+    CachedOrganization cached = cache.get(key, CachedOrganization.class);
+    if (cached == null) {
+      OrganizationModel org = getDelegate().getOrganizationById(realm, id);
+      if (org == null) return null;
+      cached = cacheOrganization(org);
+    }
+    if (!cached.getRealmId().equals(realm.getId())) return null;
+    return new CachedOrganizationAdapter(this, realm, cached);
+  }
+
+  @Override
+  public Stream<OrganizationModel> getOrganizationsStreamForDomain(
+      RealmModel realm, String domain, boolean verified, boolean parentDomains) {
+    String key = domainIndexKey(realm.getId());
+    if (isInvalid(key)) {
+      return getDelegate()
+          .getOrganizationsStreamForDomain(realm, domain, verified, parentDomains)
+          .map(o -> wrap(realm, o));
+    }
+    DomainIndex index = cache.get(key, DomainIndex.class);
+    if (index == null) {
+      index = loadDomainIndex(realm);
+      cache.put(key, index, startupRevision, domainPrefix(realm.getId()));
+    }
+    return index
+        .lookup(InternetDomainName.from(domain).toString(), verified, parentDomains)
+        .stream()
+        .map(id -> getOrganizationById(realm, id))
+        .filter(Objects::nonNull);
+  }
+
+  @Override
+  public Stream<DomainModel> getDomainsStream(RealmModel realm) {
+    return getDelegate().getDomainsStream(realm);
+  }
+
+  @Override
+  public Stream<OrganizationModel> getUserOrganizationsStream(RealmModel realm, UserModel user) {
+    return getUserOrganizationIds(realm, user).stream()
+        .map(id -> getOrganizationById(realm, id))
+        .filter(Objects::nonNull);
+  }
+
+  @Override
+  public Map<String, UserOrganizationRoles> getUserOrganizationRoles(
+      RealmModel realm, UserModel user) {
+    // served from the cache only when every part of the projection is cached
+    String key = membershipsKey(realm.getId(), user.getId());
+    Set<String> orgIds = isInvalid(key) ? null : getCached(key);
+    if (orgIds == null) return getDelegate().getUserOrganizationRoles(realm, user);
+    Map<String, UserOrganizationRoles> result = new LinkedHashMap<>();
+    for (String orgId : orgIds) {
+      String orgKey = organizationKey(orgId);
+      String rolesKey = roleMappingsKey(orgId, user.getId());
+      CachedOrganization org =
+          isInvalid(orgKey) ? null : cache.get(orgKey, CachedOrganization.class);
+      Set<String> roleIds = isInvalid(rolesKey) ? null : getCached(rolesKey);
+      if (org == null || roleIds == null) {
+        return getDelegate().getUserOrganizationRoles(realm, user);
+      }
+      if (!org.getRealmId().equals(realm.getId())) continue;
+      List<String> roles =
+          org.getRoles().stream()
+              .filter(r -> roleIds.contains(r.getId()))
+              .map(CachedOrganization.CachedOrganizationRole::getName)
+              .collect(Collectors.toList());
+      result.put(orgId, new UserOrganizationRoles(orgId, org.getName(), roles));
+    }
+    return result;
+  }
+
+  @Override
+  public Map<String, Map<String, List<String>>> getUserOrganizationAttributes(
+      RealmModel realm, UserModel user, Set<String> names) {
+    // served from the cache only when the memberships and every organization are cached
+    String key = membershipsKey(realm.getId(), user.getId());
+    Set<String> orgIds = isInvalid(key) ? null : getCached(key);
+    if (orgIds == null) return getDelegate().getUserOrganizationAttributes(realm, user, names);
+    Map<String, Map<String, List<String>>> result = new LinkedHashMap<>();
+    for (String orgId : orgIds) {
+      String orgKey = organizationKey(orgId);
+      CachedOrganization org =
+          isInvalid(orgKey) ? null : cache.get(orgKey, CachedOrganization.class);
+      if (org == null) return getDelegate().getUserOrganizationAttributes(realm, user, names);
+      if (!org.getRealmId().equals(realm.getId())) continue;
+      Map<String, List<String>> attributes = new LinkedHashMap<>();
+      org.getAttributes()
+          .forEach(
+              (name, values) -> {
+                if (names.contains(name)) attributes.put(name, values);
+              });
+      if (!attributes.isEmpty()) result.put(orgId, attributes);
+    }
+    return result;
+  }
+
+  @Override
+  public Stream<OrganizationModel> searchForOrganizationStream(
+      RealmModel realm,
+      Map<String, String> attributes,
+      Integer firstResult,
+      Integer maxResults,
+      Optional<UserModel> member) {
+    return getDelegate()
+        .searchForOrganizationStream(realm, attributes, firstResult, maxResults, member)
+        .map(o -> wrap(realm, o));
+  }
+
+  @Override
+  public Page<OrganizationModel> searchForOrganizationPage(
+      RealmModel realm,
+      Map<String, String> attributes,
+      Cursor after,
+      int maxResults,
+      Optional<UserModel> member) {
+    Page<OrganizationModel> page =
+        getDelegate().searchForOrganizationPage(realm, attributes, after, maxResults, member);
+    return new Page<>(
+        page.getItems().stream().map(o -> wrap(realm, o)).collect(Collectors.toList()),
+        page.getNext());
+  }
+
+  @Override
+  public Long getOrganizationsCount(RealmModel realm, String search) {
+    return getDelegate().getOrganizationsCount(realm, search);
+  }
+
+  @Override
+  public boolean removeOrganization(RealmModel realm, String id) {
+    registerOrganizationInvalidation(id);
+    registerInvalidationPrefix(invitationsPrefix(realm.getId()));
+    registerInvalidationPrefix(domainPrefix(realm.getId()));
+    registerInvalidationPrefix(membershipsPrefix(realm.getId()));
+    registerInvalidationPrefix(roleMappingsPrefix(id));
+    return getDelegate().removeOrganization(realm, id);
+  }
+
+  @Override
+  public void removeOrganizations(RealmModel realm) {
+    // organization keys don't include the realm, and removing a realm is rare enough to evict them
+    // all rather than load every id
+    registerInvalidationPrefix(organizationPrefix());
+    registerInvalidationPrefix(roleMappingsPrefix());
+    registerInvalidationPrefix(domainPrefix(realm.getId()));
+    registerInvalidationPrefix(membershipsPrefix(realm.getId()));
+    registerInvalidationPrefix(invitationsPrefix(realm.getId()));
+    getDelegate().removeOrganizations(realm);
+  }
+
+  @Override
+  public Stream<InvitationModel> getUserInvitationsStream(RealmModel realm, UserModel user) {
+    return getDelegate().getUserInvitationsStream(realm, user);
+  }
+
+  @Override
+  public boolean hasUserInvitations(RealmModel realm, UserModel user) {
+    if (user.getEmail() == null) return false;
+    // most users have no invitation, so the negative result is what saves a query at login
+    String key = invitationsKey(realm.getId(), user.getEmail().toLowerCase());
+    if (isInvalid(key)) return getDelegate().hasUserInvitations(realm, user);
+    Boolean has = cache.get(key, Boolean.class);
+    if (has == null) {
+      has = getDelegate().hasUserInvitations(realm, user);
+      cache.put(key, has, startupRevision, invitationsPrefix(realm.getId()));
+    }
+    return has;
+  }
+
+  @Override
+  public Map<String, String> acceptInvitations(
+      RealmModel realm, UserModel user, Collection<String> invitationIds) {
+    registerInvitationInvalidation(realm.getId(), user.getEmail());
+    Map<String, String> accepted = getDelegate().acceptInvitations(realm, user, invitationIds);
+    new HashSet<>(accepted.values())
+        .forEach(orgId -> registerMembershipInvalidation(realm.getId(), orgId, user.getId()));
+    return accepted;
+  }
+
+  @Override
+  public Set<String> declineInvitations(
+      RealmModel realm, UserModel user, Collection<String> invitationIds) {
+    registerInvitationInvalidation(realm.getId(), user.getEmail());
+    return getDelegate().declineInvitations(realm, user, invitationIds);
+  }
+
+  @Override
+  public Map<String, Set<String>> removeExpiredInvitations(int max) {
+    Map<String, Set<String>> removed = getDelegate().removeExpiredInvitations(max);
+    removed.forEach(
+        (realmId, emails) -> emails.forEach(e -> registerInvitationInvalidation(realmId, e)));
+    return removed;
+  }
+
+  @Override
+  public Set<String> getIdentityProviderOrganizationIds(
+      RealmModel realm, IdentityProviderModel idp) {
+    return getDelegate().getIdentityProviderOrganizationIds(realm, idp);
+  }
+
+  @Override
+  public void syncIdentityProvider(RealmModel realm, IdentityProviderModel idp) {
+    // the organizations losing the identity provider and the ones gaining it
+    Set<String> orgIds = new HashSet<>(getIdentityProviderOrganizationIds(realm, idp));
+    orgIds.addAll(IdentityProviders.getAttributeMultivalued(idp.getConfig(), ORG_OWNER_CONFIG_KEY));
+    orgIds.forEach(this::registerOrganizationInvalidation);
+    getDelegate().syncIdentityProvider(realm, idp);
+  }
+
+  @Override
+  public void removeIdentityProvider(RealmModel realm, IdentityProviderModel idp) {
+    getIdentityProviderOrganizationIds(realm, idp).forEach(this::registerOrganizationInvalidation);
+    getDelegate().removeIdentityProvider(realm, idp);
+  }
+
+  @Override
+  public Stream<IdentityProviderModel> getUnlinkedIdentityProvidersStream(RealmModel realm) {
+    return getDelegate().getUnlinkedIdentityProvidersStream(realm);
+  }
+
+  @Override
+  public void close() {}
+
+  /** Ids of the organizations the user is a member of. */
+  Set<String> getUserOrganizationIds(RealmModel realm, UserModel user) {
+    String key = membershipsKey(realm.getId(), user.getId());
+    Set<String> ids = isInvalid(key) ? null : getCached(key);
+    if (ids == null) {
+      ids =
+          getDelegate()
+              .getUserOrganizationsStream(realm, user)
+              .map(OrganizationModel::getId)
+              .collect(ImmutableSet.toImmutableSet());
+      if (!isInvalid(key)) {
+        cache.put(key, ids, startupRevision, membershipsPrefix(realm.getId()));
+      }
+    }
+    return ids;
+  }
+
+  /** Ids of the organization roles granted to the user. */
+  Set<String> getUserRoleIds(CachedOrganizationAdapter org, UserModel user) {
+    String key = roleMappingsKey(org.getId(), user.getId());
+    Set<String> ids = isInvalid(key) ? null : getCached(key);
+    if (ids == null) {
+      ids =
+          org.getDelegate()
+              .getRolesByUserStream(user)
+              .map(r -> r.getId())
+              .collect(ImmutableSet.toImmutableSet());
+      if (!isInvalid(key)) {
+        cache.put(key, ids, startupRevision, roleMappingsPrefix(org.getId()), roleMappingsPrefix());
+      }
+    }
+    return ids;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<String> getCached(String key) {
+    return cache.get(key, Set.class);
+  }
+
+  OrganizationModel wrap(RealmModel realm, OrganizationModel org) {
+    String key = organizationKey(org.getId());
+    if (isInvalid(key)) return new CachedOrganizationAdapter(this, realm, org);
+    CachedOrganization cached = cache.get(key, CachedOrganization.class);
+    if (cached == null) cached = cacheOrganization(org);
+    return new CachedOrganizationAdapter(this, realm, cached);
+  }
+
+  @SuppressWarnings("unchecked")
+  private DomainIndex loadDomainIndex(RealmModel realm) {
+    DomainIndex.Builder builder = DomainIndex.builder();
+    try (Stream<DomainModel> domains = getDelegate().getDomainsStream(realm)) {
+      domains
+          .map(d -> ((JpaModel<DomainEntity>) d).getEntity())
+          .forEach(e -> builder.add(e.getDomain(), e.getOrganization().getId(), e.isVerified()));
+    }
+    return builder.build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private CachedOrganization cacheOrganization(OrganizationModel org) {
+    CachedOrganization cached =
+        new CachedOrganization(((JpaModel<ExtOrganizationEntity>) org).getEntity());
+    cache.put(organizationKey(cached.getId()), cached, startupRevision, organizationPrefix());
+    return cached;
+  }
+
+  boolean isInvalid(String key) {
+    return invalidations.contains(key) || invalidationPrefixes.stream().anyMatch(key::startsWith);
+  }
+
+  void registerOrganizationInvalidation(String orgId) {
+    registerInvalidation(organizationKey(orgId));
+  }
+
+  void registerDomainInvalidation(String realmId, String orgId) {
+    registerInvalidation(organizationKey(orgId));
+    registerInvalidationPrefix(domainPrefix(realmId));
+  }
+
+  void registerMembershipInvalidation(String realmId, String orgId, String userId) {
+    registerInvalidation(membershipsKey(realmId, userId));
+    registerRoleMappingInvalidation(orgId, userId);
+  }
+
+  void registerRoleMappingInvalidation(String orgId, String userId) {
+    registerInvalidation(roleMappingsKey(orgId, userId));
+  }
+
+  void registerInvitationInvalidation(String realmId, String email) {
+    if (email != null) registerInvalidation(invitationsKey(realmId, email.toLowerCase()));
+  }
+
+  private void registerInvalidation(String key) {
+    invalidations.add(key);
+    enlistInvalidationTransaction();
+  }
+
+  private void registerInvalidationPrefix(String prefix) {
+    invalidationPrefixes.add(prefix);
+    enlistInvalidationTransaction();
+  }
+
+  private void enlistInvalidationTransaction() {
+    if (transactionActive) return;
+    transactionActive = true;
+    session
+        .getTransactionManager()
+        .enlistAfterCompletion(
+            new AbstractKeycloakTransaction() {
+              @Override
+              protected void commitImpl() {
+                runInvalidations();
+              }
+
+              @Override
+              protected void rollbackImpl() {
+                invalidations.clear();
+                invalidationPrefixes.clear();
+                transactionActive = false;
+              }
+            });
+  }
+
+  private void runInvalidations() {
+    Set<String> keys = new HashSet<>(invalidations);
+    Set<String> prefixes = new HashSet<>(invalidationPrefixes);
+    invalidations.clear();
+    invalidationPrefixes.clear();
+    transactionActive = false;
+    cache.invalidate(keys, prefixes);
+    ClusterProvider cluster = session.getProvider(ClusterProvider.class);
+    if (cluster != null) {
+      cluster.notify(
+          CachedOrganizationProviderFactory.ORGANIZATION_INVALIDATION_EVENTS,
+          new OrganizationInvalidationEvent(keys, prefixes),
+          true,
+          ClusterProvider.DCNotify.ALL_DCS);
+    } else {
+      log.debug("No ClusterProvider available. Organization invalidations are local only.");
+    }
+  }
+}
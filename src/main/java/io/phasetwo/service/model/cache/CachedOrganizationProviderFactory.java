@@ -0,0 +1,79 @@
+package io.phasetwo.service.model.cache;
+
+import com.google.auto.service.AutoService;
+import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.OrganizationProviderFactory;
+import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.Config.Scope;
+import org.keycloak.cluster.ClusterProvider;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+
+/**
+ * Caching decorator for the JPA organization provider. Enable it with
+ * `--spi-organization-provider-provider=cached-organization`.
+ */
+@JBossLog
+@AutoService(OrganizationProviderFactory.class)
+public class CachedOrganizationProviderFactory implements OrganizationProviderFactory {
+
+  public static final String PROVIDER_ID = "cached-organization";
+  public static final String ORGANIZATION_INVALIDATION_EVENTS = "ORGANIZATION_INVALIDATION_EVENTS";
+
+  private static final long DEFAULT_MAX_SIZE = 100000L;
+  private static final long DEFAULT_EXPIRATION_SECONDS = 3600L;
+
+  private volatile OrganizationCache cache;
+  private long maxSize;
+  private long expirationSeconds;
+
+  @Override
+  public String getId() {
+    return PROVIDER_ID;
+  }
+
+  @Override
+  public OrganizationProvider create(KeycloakSession session) {
+    lazyInit(session);
+    return new CachedOrganizationProvider(session, cache);
+  }
+
+  private void lazyInit(KeycloakSession session) {
+    if (cache == null) {
+      synchronized (this) {
+        if (cache == null) {
+          OrganizationCache c = new OrganizationCache(maxSize, expirationSeconds);
+          ClusterProvider cluster = session.getProvider(ClusterProvider.class);
+          if (cluster != null) {
+            cluster.registerListener(
+                ORGANIZATION_INVALIDATION_EVENTS,
+                event -> {
+                  if (event instanceof OrganizationInvalidationEvent) {
+                    OrganizationInvalidationEvent e = (OrganizationInvalidationEvent) event;
+                    log.debugf("Received %s", e);
+                    c.invalidate(e.getKeys(), e.getPrefixes());
+                  }
+                });
+          } else {
+            log.warn("No ClusterProvider available. Organization cache is not cluster aware.");
+          }
+          cache = c;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void init(Scope config) {
+    maxSize = config.getLong("maxSize", DEFAULT_MAX_SIZE);
+    expirationSeconds = config.getLong("expirationSeconds", DEFAULT_EXPIRATION_SECONDS);
+  }
+
+  @Override
+  public void postInit(KeycloakSessionFactory factory) {}
+
+  @Override
+  public void close() {
+    if (cache != null) cache.clear();
+  }
+}
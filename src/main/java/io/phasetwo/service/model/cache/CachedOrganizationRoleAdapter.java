@@ -0,0 +1,105 @@
+package io.phasetwo.service.model.cache;
+
+import io.phasetwo.service.model.Cursor;
+import io.phasetwo.service.model.OrganizationRoleModel;
+import io.phasetwo.service.model.Page;
+import java.util.stream.Stream;
+import org.keycloak.models.UserModel;
+
+/**
+ * Organization role backed by the cached organization snapshot. Role grants are checked against the
+ * cached role mappings of the user.
+ */
+public class CachedOrganizationRoleAdapter implements OrganizationRoleModel {
+
+  protected final CachedOrganizationAdapter org;
+  protected final String id;
+  protected final String name;
+  protected final String description;
+  protected OrganizationRoleModel delegate;
+
+  public CachedOrganizationRoleAdapter(
+      CachedOrganizationAdapter org, CachedOrganization.CachedOrganizationRole role) {
+    this.org = org;
+    this.id = role.getId();
+    this.name = role.getName();
+    this.description = role.getDescription();
+  }
+
+  public CachedOrganizationRoleAdapter(CachedOrganizationAdapter org, OrganizationRoleModel role) {
+    this.org = org;
+    this.id = role.getId();
+    this.name = role.getName();
+    this.description = role.getDescription();
+    this.delegate = role;
+  }
+
+  protected OrganizationRoleModel getDelegate() {
+    if (delegate == null) {
+      delegate =
+          org.getDelegate()
+              .getRolesStream()
+              .filter(r -> id.equals(r.getId()))
+              .findFirst()
+              .orElseThrow(() -> new IllegalStateException("Not found in database"));
+    }
+    return delegate;
+  }
+
+  protected OrganizationRoleModel getDelegateForUpdate() {
+    org.getDelegateForUpdate();
+    return getDelegate();
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public String getName() {
+    return delegate != null ? delegate.getName() : name;
+  }
+
+  @Override
+  public void setName(String name) {
+    getDelegateForUpdate().setName(name);
+  }
+
+  @Override
+  public String getDescription() {
+    return delegate != null ? delegate.getDescription() : description;
+  }
+
+  @Override
+  public void setDescription(String description) {
+    getDelegateForUpdate().setDescription(description);
+  }
+
+  @Override
+  public Stream<UserModel> getUserMappingsStream() {
+    return getDelegate().getUserMappingsStream();
+  }
+
+  @Override
+  public Page<UserModel> getUserMappingsPage(Cursor after, int maxResults) {
+    return getDelegate().getUserMappingsPage(after, maxResults);
+  }
+
+  @Override
+  public void grantRole(UserModel user) {
+    org.provider.registerRoleMappingInvalidation(org.getId(), user.getId());
+    getDelegate().grantRole(user);
+  }
+
+  @Override
+  public void revokeRole(UserModel user) {
+    org.provider.registerRoleMappingInvalidation(org.getId(), user.getId());
+    getDelegate().revokeRole(user);
+  }
+
+  @Override
+  public boolean hasRole(UserModel user) {
+    return org.provider.getUserRoleIds(org, user).contains(id);
+  }
+}
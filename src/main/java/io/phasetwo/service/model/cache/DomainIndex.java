@@ -0,0 +1,80 @@
+package io.phasetwo.service.model.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Domains of the organizations in a realm, in a trie keyed on the reversed DNS labels. {@code
+ * a.example.com} is stored under {@code com -> example -> a}, so finding the organizations that own
+ * a domain or any of its parents walks one node per label. Built once per realm and replaced as a
+ * whole when any domain in the realm changes.
+ */
+public class DomainIndex {
+
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    // organization id to verification state of the domain ending at this node
+    private final Map<String, Boolean> organizations = new LinkedHashMap<>();
+  }
+
+  private final Node root = new Node();
+
+  public static class Builder {
+    private final DomainIndex index = new DomainIndex();
+
+    public Builder add(String domain, String orgId, boolean verified) {
+      Node node = index.root;
+      List<String> labels = labels(domain);
+      for (int i = labels.size() - 1; i >= 0; i--) {
+        node = node.children.computeIfAbsent(labels.get(i), k -> new Node());
+      }
+      node.organizations.merge(orgId, verified, Boolean::logicalOr);
+      return this;
+    }
+
+    public DomainIndex build() {
+      return index;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Ids of the organizations owning the domain, and when {@code parentDomains} is true, one of its
+   * parent domains, most specific domain first. When {@code verified} is true, only verified
+   * domains match.
+   */
+  public List<String> lookup(String domain, boolean verified, boolean parentDomains) {
+    List<List<String>> matches = new ArrayList<>();
+    Node node = root;
+    List<String> labels = labels(domain);
+    for (int i = labels.size() - 1; i >= 0; i--) {
+      node = node.children.get(labels.get(i));
+      if (node == null) break;
+      // without parent domains, only the node of the whole domain matches
+      if (!parentDomains && i > 0) continue;
+      List<String> ids = new ArrayList<>();
+      node.organizations.forEach(
+          (id, v) -> {
+            if (v || !verified) ids.add(id);
+          });
+      matches.add(ids);
+    }
+    Set<String> result = new LinkedHashSet<>();
+    for (int i = matches.size() - 1; i >= 0; i--) {
+      result.addAll(matches.get(i));
+    }
+    return new ArrayList<>(result);
+  }
+
+  private static List<String> labels(String domain) {
+    return List.of(domain.toLowerCase().split("\\."));
+  }
+}
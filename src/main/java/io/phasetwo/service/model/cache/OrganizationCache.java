@@ -0,0 +1,140 @@
+package io.phasetwo.service.model.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.jbosslog.JBossLog;
+
+/**
+ * Node-local cache of organization snapshots, memberships, role mappings, domain lookups and
+ * whether emails have pending invitations. Entries are keyed by strings built with the static key
+ * methods, so that a single invalidation event can name exactly what has to be evicted. A revision
+ * counter is bumped on every invalidation, and loads that started before the last invalidation are
+ * not cached, so that a slow reader can't put stale data back after a concurrent writer committed.
+ * Every entry is indexed under the prefixes it can be invalidated by, so that a prefix invalidation
+ * evicts the indexed keys instead of scanning the whole cache.
+ */
+@JBossLog
+public class OrganizationCache {
+
+  /** A cached value, and the prefixes its key is indexed under. */
+  private record Entry(Object value, String[] prefixes) {}
+
+  private final Cache<String, Entry> cache;
+  private final ConcurrentMap<String, Set<String>> keysByPrefix = new ConcurrentHashMap<>();
+  private final AtomicLong revision = new AtomicLong();
+
+  public OrganizationCache(long maxSize, long expireSeconds) {
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+            .removalListener(this::onRemoval)
+            .build();
+  }
+
+  public static String organizationKey(String orgId) {
+    return organizationPrefix() + orgId;
+  }
+
+  /** Prefix of every cached organization. */
+  public static String organizationPrefix() {
+    return "org.";
+  }
+
+  public static String membershipsKey(String realmId, String userId) {
+    return membershipsPrefix(realmId) + userId;
+  }
+
+  public static String membershipsPrefix(String realmId) {
+    return "memberships." + realmId + ".";
+  }
+
+  public static String roleMappingsKey(String orgId, String userId) {
+    return roleMappingsPrefix(orgId) + userId;
+  }
+
+  public static String roleMappingsPrefix(String orgId) {
+    return roleMappingsPrefix() + orgId + ".";
+  }
+
+  /** Prefix of the cached role mappings of every organization. */
+  public static String roleMappingsPrefix() {
+    return "roles.";
+  }
+
+  /** Key of the {@link DomainIndex} of the realm. */
+  public static String domainIndexKey(String realmId) {
+    return domainPrefix(realmId) + "index";
+  }
+
+  public static String domainPrefix(String realmId) {
+    return "domains." + realmId + ".";
+  }
+
+  /** Key of whether the realm has invitations for the lowercase email. */
+  public static String invitationsKey(String realmId, String email) {
+    return invitationsPrefix(realmId) + email;
+  }
+
+  public static String invitationsPrefix(String realmId) {
+    return "invitations." + realmId + ".";
+  }
+
+  public long getCurrentRevision() {
+    return revision.get();
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T get(String key, Class<T> type) {
+    Entry e = cache.getIfPresent(key);
+    return e != null && type.isInstance(e.value()) ? (T) e.value() : null;
+  }
+
+  /**
+   * Caches the value unless an invalidation happened after {@code startRevision}. The key is
+   * evicted by the invalidation of any of the {@code prefixes}, and only by those.
+   */
+  public void put(String key, Object value, long startRevision, String... prefixes) {
+    if (value == null || revision.get() != startRevision) return;
+    cache.put(key, new Entry(value, prefixes));
+    for (String prefix : prefixes) {
+      keysByPrefix.computeIfAbsent(prefix, p -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+    // an invalidation may have raced with the put
+    if (revision.get() != startRevision) cache.invalidate(key);
+  }
+
+  public void invalidate(Collection<String> keys, Collection<String> prefixes) {
+    revision.incrementAndGet();
+    cache.invalidateAll(keys);
+    for (String prefix : prefixes) {
+      Set<String> indexed = keysByPrefix.remove(prefix);
+      if (indexed != null) cache.invalidateAll(indexed);
+    }
+    log.tracef("invalidated keys %s and prefixes %s", keys, prefixes);
+  }
+
+  private void onRemoval(RemovalNotification<String, Entry> notification) {
+    // a replaced key is still cached, under the same prefixes
+    if (notification.getCause() == RemovalCause.REPLACED || notification.getValue() == null) return;
+    String key = notification.getKey();
+    for (String prefix : notification.getValue().prefixes()) {
+      keysByPrefix.computeIfPresent(
+          prefix, (p, indexed) -> indexed.remove(key) && indexed.isEmpty() ? null : indexed);
+    }
+  }
+
+  public void clear() {
+    revision.incrementAndGet();
+    cache.invalidateAll();
+    keysByPrefix.clear();
+  }
+}
@@ -0,0 +1,32 @@
+package io.phasetwo.service.model.cache;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.keycloak.cluster.ClusterEvent;
+
+/** Cluster event carrying the cache keys and key prefixes that a committed transaction touched. */
+public class OrganizationInvalidationEvent implements ClusterEvent {
+
+  private static final long serialVersionUID = 1L;
+
+  private final HashSet<String> keys;
+  private final HashSet<String> prefixes;
+
+  public OrganizationInvalidationEvent(Set<String> keys, Set<String> prefixes) {
+    this.keys = new HashSet<>(keys);
+    this.prefixes = new HashSet<>(prefixes);
+  }
+
+  public Set<String> getKeys() {
+    return keys;
+  }
+
+  public Set<String> getPrefixes() {
+    return prefixes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("OrganizationInvalidationEvent [ keys=%s, prefixes=%s ]", keys, prefixes);
+  }
+}
@@ -0,0 +1,48 @@
+package io.phasetwo.service.model.jpa;
+
+import io.phasetwo.service.model.OrganizationProvider;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.timer.ScheduledTask;
+
+/**
+ * Removes the expired invitations of every realm. It is scheduled with a cluster aware runner, so
+ * that only one node purges per interval. Each batch is removed in its own transaction, so that the
+ * database never holds locks for a long delete, and a run stops after a bounded number of batches
+ * to leave the rest to the next one.
+ */
+@JBossLog
+public class ExpiredInvitationsPurge implements ScheduledTask {
+
+  static final String TASK_NAME = "orgs-expired-invitations-purge";
+  static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private static final int BATCH_SIZE = 500;
+  private static final int MAX_BATCHES = 100;
+
+  @Override
+  public void run(KeycloakSession session) {
+    KeycloakSessionFactory factory = session.getKeycloakSessionFactory();
+    for (int i = 0; i < MAX_BATCHES; i++) {
+      Map<String, Set<String>> removed =
+          KeycloakModelUtils.runJobInTransactionWithResult(
+              factory,
+              s -> s.getProvider(OrganizationProvider.class).removeExpiredInvitations(BATCH_SIZE));
+      if (removed.isEmpty()) return;
+      log.debugf("Removed expired invitations of realms %s", removed.keySet());
+    }
+    log.debugf(
+        "Removed %d batches of expired invitations, the rest are left for the next run",
+        MAX_BATCHES);
+  }
+
+  @Override
+  public String getTaskName() {
+    return TASK_NAME;
+  }
+}
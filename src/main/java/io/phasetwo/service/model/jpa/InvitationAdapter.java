@@ -5,6 +5,7 @@ import io.phasetwo.service.model.InvitationModel;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationProvider;
 import io.phasetwo.service.model.jpa.entity.InvitationAttributeEntity;
+import io.phasetwo.service.model.jpa.entity.InvitationEmailEntity;
 import io.phasetwo.service.model.jpa.entity.InvitationEntity;
 import jakarta.persistence.EntityManager;
 import java.util.Collection;
@@ -13,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.keycloak.common.util.MultivaluedHashMap;
+import org.keycloak.common.util.Time;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
@@ -51,6 +53,11 @@ public class InvitationAdapter implements InvitationModel, JpaModel<InvitationEn
         .getOrganizationById(realm, invitation.getOrganization().getId());
   }
 
+  @Override
+  public String getOrganizationId() {
+    return invitation.getOrganization().getId();
+  }
+
   @Override
   public String getEmail() {
     return invitation.getEmail();
@@ -58,7 +65,7 @@ public class InvitationAdapter implements InvitationModel, JpaModel<InvitationEn
 
   @Override
   public void setEmail(String email) {
-    invitation.setEmail(email);
+    invitation.setEmail(email.toLowerCase());
   }
 
   @Override
@@ -101,6 +108,16 @@ public class InvitationAdapter implements InvitationModel, JpaModel<InvitationEn
     invitation.setCreatedAt(date);
   }
 
+  @Override
+  public Date getExpiresAt() {
+    return invitation.getExpiresAt();
+  }
+
+  @Override
+  public void setExpiresAt(Date date) {
+    invitation.setExpiresAt(date);
+  }
+
   @Override
   public Set<String> getRoles() {
     return invitation.getRoles();
@@ -111,6 +128,37 @@ public class InvitationAdapter implements InvitationModel, JpaModel<InvitationEn
     invitation.setRoles(Sets.newHashSet(roles));
   }
 
+  @Override
+  public EmailStatus getEmailStatus() {
+    return invitation.getEmailStatus() == null
+        ? null
+        : EmailStatus.valueOf(invitation.getEmailStatus());
+  }
+
+  @Override
+  public void setEmailStatus(EmailStatus status) {
+    invitation.setEmailStatus(status == null ? null : status.name());
+  }
+
+  @Override
+  public void queueEmail(UserModel inviter) {
+    // an email that is still queued is sent once
+    InvitationEmailEntity email = invitation.getEmails().stream().findFirst().orElse(null);
+    if (email == null) {
+      email = new InvitationEmailEntity();
+      email.setId(KeycloakModelUtils.generateId());
+      email.setInvitation(invitation);
+      em.persist(email);
+      invitation.getEmails().add(email);
+    }
+    email.setInviterId(inviter != null ? inviter.getId() : null);
+    email.setAttempts(0);
+    email.setLastError(null);
+    email.setNextAttemptAt(Time.currentTimeMillis());
+    setEmailStatus(EmailStatus.PENDING);
+    InvitationEmailOutbox.signalAfterCommit(session);
+  }
+
   @Override
   public Map<String, List<String>> getAttributes() {
     MultivaluedHashMap<String, String> result = new MultivaluedHashMap<>();
@@ -0,0 +1,222 @@
+package io.phasetwo.service.model.jpa;
+
+import io.phasetwo.service.model.InvitationModel;
+import io.phasetwo.service.model.InvitationModel.EmailStatus;
+import io.phasetwo.service.model.OrganizationModel;
+import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.jpa.entity.InvitationEmailEntity;
+import io.phasetwo.service.model.jpa.entity.InvitationEntity;
+import io.phasetwo.service.util.InvitationEmails;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.common.util.Time;
+import org.keycloak.connections.jpa.JpaConnectionProvider;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Sends the invitation emails queued by {@link InvitationModel#queueEmail} in the background. A
+ * single dispatcher thread reads the due emails and hands them to a bounded pool of virtual
+ * threads. Each email is claimed with a conditional update before it's sent, so the nodes of a
+ * cluster never send the same email twice, and an email claimed by a node that went down is retried
+ * when the claim expires. Failed emails are retried with exponential backoff, until the invitation
+ * email status is {@link EmailStatus#FAILED}.
+ */
+@JBossLog
+public class InvitationEmailOutbox {
+
+  static final int MAX_ATTEMPTS = 8;
+  static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.HOURS.toMillis(1);
+  static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+  static final long POLL_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  static final String TASK_NAME = "orgs-invitation-email-outbox";
+
+  private static final int BATCH_SIZE = 100;
+  private static final int MAX_ERROR_LENGTH = 1024;
+  private static final String SIGNAL_KEY = InvitationEmailOutbox.class.getName() + ".signal";
+
+  private static volatile InvitationEmailOutbox instance;
+
+  private final KeycloakSessionFactory factory;
+  private final ThreadPoolExecutor dispatcher;
+  private final ExecutorService workers;
+
+  private InvitationEmailOutbox(KeycloakSessionFactory factory, int workers) {
+    this.factory = factory;
+    AtomicInteger count = new AtomicInteger();
+    // one running dispatch and at most one queued, which sees everything signalled after it
+    this.dispatcher =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1),
+            r -> {
+              Thread t = new Thread(r, TASK_NAME + "-" + count.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            },
+            new ThreadPoolExecutor.DiscardPolicy());
+    this.workers =
+        Executors.newFixedThreadPool(
+            workers, Thread.ofVirtual().name("orgs-invitation-email-", 0).factory());
+  }
+
+  static synchronized void start(KeycloakSessionFactory factory, int workers) {
+    if (instance == null) instance = new InvitationEmailOutbox(factory, workers);
+  }
+
+  static synchronized void stop() {
+    if (instance == null) return;
+    instance.dispatcher.shutdownNow();
+    instance.workers.shutdownNow();
+    instance = null;
+  }
+
+  /** Sends the due emails in the background. */
+  static void signal() {
+    InvitationEmailOutbox outbox = instance;
+    if (outbox == null) return;
+    try {
+      outbox.dispatcher.execute(outbox::dispatch);
+    } catch (RejectedExecutionException e) {
+      log.debug("Invitation email outbox is stopped");
+    }
+  }
+
+  /** Sends the due emails in the background, once the transaction of the session commits. */
+  static void signalAfterCommit(KeycloakSession session) {
+    if (session.getAttribute(SIGNAL_KEY) != null) return;
+    session.setAttribute(SIGNAL_KEY, Boolean.TRUE);
+    session
+        .getTransactionManager()
+        .enlistAfterCompletion(
+            new AbstractKeycloakTransaction() {
+              @Override
+              protected void commitImpl() {
+                signal();
+              }
+
+              @Override
+              protected void rollbackImpl() {}
+            });
+  }
+
+  private void dispatch() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        long now = Time.currentTimeMillis();
+        List<String> ids =
+            KeycloakModelUtils.runJobInTransactionWithResult(
+                factory,
+                session ->
+                    em(session)
+                        .createNamedQuery("getDueInvitationEmailIds", String.class)
+                        .setParameter("now", now)
+                        .setMaxResults(BATCH_SIZE)
+                        .getResultList());
+        if (ids.isEmpty()) return;
+        // stop when every due email was claimed by another node, or couldn't be claimed
+        List<CompletableFuture<Boolean>> sends =
+            ids.stream()
+                .map(id -> CompletableFuture.supplyAsync(() -> process(id), workers))
+                .collect(Collectors.toList());
+        if (!sends.stream().map(CompletableFuture::join).reduce(false, Boolean::logicalOr)) return;
+      }
+    } catch (Exception e) {
+      log.warn("Error sending invitation emails", e);
+    }
+  }
+
+  private boolean process(String id) {
+    try {
+      long now = Time.currentTimeMillis();
+      boolean claimed =
+          KeycloakModelUtils.runJobInTransactionWithResult(
+              factory,
+              session ->
+                  em(session)
+                          .createNamedQuery("claimInvitationEmail")
+                          .setParameter("id", id)
+                          .setParameter("now", now)
+                          .setParameter("lease", now + LEASE_MILLIS)
+                          .executeUpdate()
+                      == 1);
+      if (claimed) KeycloakModelUtils.runJobInTransaction(factory, session -> send(session, id));
+      return claimed;
+    } catch (Exception e) {
+      log.warnf(e, "Error sending invitation email %s", id);
+      return false;
+    }
+  }
+
+  private static void send(KeycloakSession session, String id) {
+    EntityManager em = em(session);
+    InvitationEmailEntity email = em.find(InvitationEmailEntity.class, id);
+    // the invitation was revoked
+    if (email == null) return;
+    InvitationEntity entity = email.getInvitation();
+    RealmModel realm = session.realms().getRealm(entity.getOrganization().getRealmId());
+    if (realm == null) return;
+    session.getContext().setRealm(realm);
+    OrganizationModel organization =
+        session
+            .getProvider(OrganizationProvider.class)
+            .getOrganizationById(realm, entity.getOrganization().getId());
+    InvitationModel invitation = organization.getInvitation(entity.getId());
+    UserModel inviter =
+        email.getInviterId() != null
+            ? session.users().getUserById(realm, email.getInviterId())
+            : null;
+    if (inviter == null) inviter = invitation.getInviter();
+
+    try {
+      InvitationEmails.send(session, realm, invitation, inviter);
+      log.debugf("Sent invitation email %s to %s", id, invitation.getEmail());
+      invitation.setEmailStatus(EmailStatus.SENT);
+      entity.getEmails().remove(email);
+    } catch (Exception e) {
+      int attempts = email.getAttempts() + 1;
+      email.setAttempts(attempts);
+      email.setLastError(truncate(e.getMessage()));
+      if (attempts >= MAX_ATTEMPTS) {
+        log.warnf(e, "Giving up sending invitation email %s after %d attempts", id, attempts);
+        invitation.setEmailStatus(EmailStatus.FAILED);
+        entity.getEmails().remove(email);
+      } else {
+        log.debugf(e, "Error sending invitation email %s, attempt %d", id, attempts);
+        email.setNextAttemptAt(Time.currentTimeMillis() + retryDelay(attempts));
+      }
+    }
+  }
+
+  /** Doubles the delay after each failed attempt, up to the maximum. */
+  static long retryDelay(int attempts) {
+    return Math.min(RETRY_DELAY_MILLIS << Math.min(attempts - 1, 20), MAX_RETRY_DELAY_MILLIS);
+  }
+
+  private static String truncate(String message) {
+    if (message == null || message.length() <= MAX_ERROR_LENGTH) return message;
+    return message.substring(0, MAX_ERROR_LENGTH);
+  }
+
+  private static EntityManager em(KeycloakSession session) {
+    return session.getProvider(JpaConnectionProvider.class).getEntityManager();
+  }
+}
@@ -1,21 +1,33 @@
 package io.phasetwo.service.model.jpa;
 
+import static io.phasetwo.service.Orgs.ORG_OWNER_CONFIG_KEY;
 import static org.keycloak.models.jpa.PaginationUtils.paginateQuery;
 import static org.keycloak.utils.StreamsUtil.closing;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.net.InternetDomainName;
+import io.phasetwo.service.model.Cursor;
+import io.phasetwo.service.model.DomainModel;
 import io.phasetwo.service.model.InvitationModel;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.Page;
+import io.phasetwo.service.model.UserOrganizationRoles;
 import io.phasetwo.service.model.jpa.entity.DomainEntity;
 import io.phasetwo.service.model.jpa.entity.ExtOrganizationEntity;
 import io.phasetwo.service.model.jpa.entity.InvitationEntity;
 import io.phasetwo.service.model.jpa.entity.OrganizationAttributeEntity;
+import io.phasetwo.service.model.jpa.entity.OrganizationIdentityProviderEntity;
 import io.phasetwo.service.model.jpa.entity.OrganizationMemberEntity;
+import io.phasetwo.service.model.jpa.entity.OrganizationRoleEntity;
+import io.phasetwo.service.model.jpa.entity.UserOrganizationRoleMappingEntity;
 import io.phasetwo.service.resource.OrganizationAdminAuth;
+import io.phasetwo.service.util.Domains;
+import io.phasetwo.service.util.IdentityProviders;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceUnitUtil;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
@@ -23,12 +35,23 @@ import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.keycloak.common.util.Time;
+import org.keycloak.models.IdentityProviderModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
@@ -36,6 +59,33 @@ import org.keycloak.models.utils.KeycloakModelUtils;
 
 public class JpaOrganizationProvider implements OrganizationProvider {
 
+  /** Ids per IN query when looking up users. */
+  private static final int QUERY_BATCH_SIZE = 1000;
+
+  /** Organizations removed per set of delete statements. */
+  private static final int REMOVE_BATCH_SIZE = 500;
+
+  /** Deletes of an organization's children, in dependency order, and then of the organization. */
+  private static final String[] REMOVE_QUERIES = {
+    "deleteMappingsByOrganizationIds",
+    "removeOrganizationRolesByOrganizationIds",
+    "removeOrganizationMembersByOrganizationIds",
+    "removeInvitationAttributesByOrganizationIds",
+    "removeInvitationEmailsByOrganizationIds",
+    "removeInvitationsByOrganizationIds",
+    "removeOrganizationAttributesByOrganizationIds",
+    "removeDomainsByOrganizationIds",
+    "removeOrganizationIdentityProvidersByOrganizationIds",
+    "removeOrganizationsByIds"
+  };
+
+  /** Deletes of invitations' children, and then of the invitations. */
+  private static final String[] REMOVE_INVITATION_QUERIES = {
+    "removeInvitationAttributesByInvitationIds",
+    "removeInvitationEmailsByInvitationIds",
+    "removeInvitationsByIds"
+  };
+
   protected final KeycloakSession session;
   protected final EntityManager em;
 
@@ -59,10 +109,7 @@ public class JpaOrganizationProvider implements OrganizationProvider {
 
     // creator if admin, but not a service account
     if (admin && createdBy.getServiceAccountClientLink() == null) {
-      org.grantMembership(createdBy);
-      for (String role : OrganizationAdminAuth.DEFAULT_ORG_ROLES) {
-        org.getRoleByName(role).grantRole(createdBy);
-      }
+      org.grantMemberships(Map.of(createdBy, List.of(OrganizationAdminAuth.DEFAULT_ORG_ROLES)));
     }
 
     return org;
@@ -80,19 +127,29 @@ public class JpaOrganizationProvider implements OrganizationProvider {
 
   @Override
   public Stream<OrganizationModel> getOrganizationsStreamForDomain(
-      RealmModel realm, String domain, boolean verified) {
+      RealmModel realm, String domain, boolean verified, boolean parentDomains) {
     domain = InternetDomainName.from(domain).toString();
+    List<String> domains = parentDomains ? Domains.withParentDomains(domain) : List.of(domain);
     TypedQuery<DomainEntity> query =
         em.createNamedQuery(
             verified ? "getVerifiedDomainsByName" : "getDomainsByName", DomainEntity.class);
-    query.setParameter("domain", domain);
+    query.setParameter("domains", domains);
     query.setParameter("realmId", realm.getId());
     if (verified) {
       query.setParameter("verified", verified);
     }
-    return query
-        .getResultStream()
-        .map(de -> new OrganizationAdapter(session, realm, em, de.getOrganization()));
+    return query.getResultList().stream()
+        .sorted(Comparator.comparingInt(de -> domains.indexOf(de.getDomain())))
+        .map(DomainEntity::getOrganization)
+        .distinct()
+        .map(e -> new OrganizationAdapter(session, realm, em, e));
+  }
+
+  @Override
+  public Stream<DomainModel> getDomainsStream(RealmModel realm) {
+    TypedQuery<DomainEntity> query = em.createNamedQuery("getDomainsByRealmId", DomainEntity.class);
+    query.setParameter("realmId", realm.getId());
+    return query.getResultStream().map(de -> new DomainAdapter(session, realm, em, de));
   }
 
   public static String createSearchString(String search) {
@@ -112,6 +169,50 @@ public class JpaOrganizationProvider implements OrganizationProvider {
         .map(e -> new OrganizationAdapter(session, realm, em, e.getOrganization()));
   }
 
+  @Override
+  public Map<String, UserOrganizationRoles> getUserOrganizationRoles(
+      RealmModel realm, UserModel user) {
+    TypedQuery<Object[]> query =
+        em.createNamedQuery("getOrganizationRolesByUserId", Object[].class);
+    query.setParameter("id", user.getId());
+    query.setParameter("realmId", realm.getId());
+    Map<String, String> names = new LinkedHashMap<>();
+    Map<String, List<String>> roles = new HashMap<>();
+    query
+        .getResultStream()
+        .forEach(
+            row -> {
+              String orgId = (String) row[0];
+              names.putIfAbsent(orgId, (String) row[1]);
+              List<String> orgRoles = roles.computeIfAbsent(orgId, k -> new ArrayList<>());
+              if (row[2] != null) orgRoles.add((String) row[2]);
+            });
+    Map<String, UserOrganizationRoles> result = new LinkedHashMap<>();
+    names.forEach((id, name) -> result.put(id, new UserOrganizationRoles(id, name, roles.get(id))));
+    return result;
+  }
+
+  @Override
+  public Map<String, Map<String, List<String>>> getUserOrganizationAttributes(
+      RealmModel realm, UserModel user, Set<String> names) {
+    Map<String, Map<String, List<String>>> result = new LinkedHashMap<>();
+    if (names.isEmpty()) return result;
+    TypedQuery<Object[]> query =
+        em.createNamedQuery("getOrganizationAttributesByUserId", Object[].class);
+    query.setParameter("id", user.getId());
+    query.setParameter("realmId", realm.getId());
+    query.setParameter("names", names);
+    query
+        .getResultStream()
+        .forEach(
+            row ->
+                result
+                    .computeIfAbsent((String) row[0], k -> new LinkedHashMap<>())
+                    .computeIfAbsent((String) row[1], k -> new ArrayList<>())
+                    .add((String) row[2]));
+    return result;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public Stream<OrganizationModel> searchForOrganizationStream(
@@ -120,27 +221,51 @@ public class JpaOrganizationProvider implements OrganizationProvider {
       Integer firstResult,
       Integer maxResults,
       Optional<UserModel> member) {
-    if (attributes == null) {
-      attributes = ImmutableMap.of();
-    }
     CriteriaBuilder builder = em.getCriteriaBuilder();
     CriteriaQuery<ExtOrganizationEntity> queryBuilder =
         builder.createQuery(ExtOrganizationEntity.class);
     Root<ExtOrganizationEntity> root = queryBuilder.from(ExtOrganizationEntity.class);
 
-    List<Predicate> predicates = attributePredicates(attributes, root);
-
-    predicates.add(builder.equal(root.get("realmId"), realm.getId()));
-
-    member.ifPresent(u -> predicates.add(memberPredicate(u, root)));
+    List<Predicate> predicates = searchPredicates(realm, attributes, member, queryBuilder, root);
 
     queryBuilder.where(predicates.toArray(new Predicate[0])).orderBy(builder.asc(root.get("name")));
 
     TypedQuery<ExtOrganizationEntity> query = em.createQuery(queryBuilder);
 
     return closing(paginateQuery(query, firstResult, maxResults).getResultStream())
-        .map(orgEntity -> getOrganizationById(realm, orgEntity.getId()))
-        .filter(Objects::nonNull);
+        .map(e -> new OrganizationAdapter(session, realm, em, e));
+  }
+
+  @Override
+  public Page<OrganizationModel> searchForOrganizationPage(
+      RealmModel realm,
+      Map<String, String> attributes,
+      Cursor after,
+      int maxResults,
+      Optional<UserModel> member) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<ExtOrganizationEntity> queryBuilder =
+        builder.createQuery(ExtOrganizationEntity.class);
+    Root<ExtOrganizationEntity> root = queryBuilder.from(ExtOrganizationEntity.class);
+
+    List<Predicate> predicates = searchPredicates(realm, attributes, member, queryBuilder, root);
+    if (after != null) {
+      predicates.add(
+          Keysets.after(
+              builder, root.<String>get("name"), root.get("id"), after.getKey(), after.getId()));
+    }
+
+    queryBuilder
+        .where(predicates.toArray(new Predicate[0]))
+        .orderBy(builder.asc(root.get("name")), builder.asc(root.get("id")));
+
+    TypedQuery<ExtOrganizationEntity> query = em.createQuery(queryBuilder);
+    query.setMaxResults(maxResults + 1);
+    return Page.of(
+        query.getResultList(),
+        maxResults,
+        e -> Cursor.of(e.getName(), e.getId()),
+        e -> new OrganizationAdapter(session, realm, em, e));
   }
 
   @Override
@@ -154,18 +279,38 @@ public class JpaOrganizationProvider implements OrganizationProvider {
 
   @Override
   public boolean removeOrganization(RealmModel realm, String id) {
-    OrganizationModel org = getOrganizationById(realm, id);
-    ExtOrganizationEntity e = em.find(ExtOrganizationEntity.class, id);
-    em.remove(e);
+    OrganizationAdapter org = (OrganizationAdapter) getOrganizationById(realm, id);
+    if (org == null) return false;
     session.getKeycloakSessionFactory().publish(orgRemovedEvent(realm, org));
-    em.flush();
+    removeOrganizations(List.of(id));
     return true;
   }
 
   @Override
   public void removeOrganizations(RealmModel realm) {
-    searchForOrganizationStream(realm, null, null, null, Optional.empty())
-        .forEach(o -> removeOrganization(realm, o.getId()));
+    // the identity providers and users of the realm go with it, so there is nothing for the
+    // listeners to clean up, and the organizations are removed without loading them
+    TypedQuery<String> query = em.createNamedQuery("getOrganizationIdsByRealmId", String.class);
+    query.setParameter("realmId", realm.getId());
+    for (List<String> ids : Lists.partition(query.getResultList(), REMOVE_BATCH_SIZE)) {
+      removeOrganizations(ids);
+    }
+  }
+
+  /**
+   * Deletes the organizations and everything that belongs to them with one statement per table,
+   * instead of letting the cascades load and delete every child entity.
+   */
+  private void removeOrganizations(List<String> ids) {
+    if (ids.isEmpty()) return;
+    // pending changes, including those made by the removal listeners, go first
+    em.flush();
+    for (String name : REMOVE_QUERIES) {
+      em.createNamedQuery(name).setParameter("ids", ids).executeUpdate();
+    }
+    // the bulk deletes bypass the persistence context, so drop what it still holds. the reference
+    // is the managed entity when there is one, and an uninitialized proxy otherwise
+    ids.forEach(id -> em.detach(em.getReference(ExtOrganizationEntity.class, id)));
   }
 
   @Override
@@ -174,9 +319,199 @@ public class JpaOrganizationProvider implements OrganizationProvider {
         em.createNamedQuery("getInvitationsByRealmAndEmail", InvitationEntity.class);
     query.setParameter("realmId", realm.getId());
     query.setParameter("search", user.getEmail());
+    query.setParameter("now", new Date(Time.currentTimeMillis()));
     return query.getResultStream().map(i -> new InvitationAdapter(session, realm, em, i));
   }
 
+  @Override
+  public boolean hasUserInvitations(RealmModel realm, UserModel user) {
+    if (user.getEmail() == null) return false;
+    // invitation emails are stored lowercase, so this uses the email index
+    TypedQuery<String> query = em.createNamedQuery("getInvitationIdsByRealmAndEmail", String.class);
+    query.setParameter("realmId", realm.getId());
+    query.setParameter("email", user.getEmail().toLowerCase());
+    query.setParameter("now", new Date(Time.currentTimeMillis()));
+    query.setMaxResults(1);
+    return !query.getResultList().isEmpty();
+  }
+
+  @Override
+  public Map<String, String> acceptInvitations(
+      RealmModel realm, UserModel user, Collection<String> invitationIds) {
+    if (user.getEmail() == null || invitationIds.isEmpty()) return Map.of();
+
+    // the organization and roles of each invitation of the user
+    Map<String, String> accepted = new HashMap<>();
+    Map<String, Set<String>> orgRoles = new HashMap<>();
+    em.createNamedQuery("getInvitationRolesByRealmAndEmail", Object[].class)
+        .setParameter("realmId", realm.getId())
+        .setParameter("email", user.getEmail().toLowerCase())
+        .setParameter("ids", invitationIds)
+        .setParameter("now", new Date(Time.currentTimeMillis()))
+        .getResultStream()
+        .forEach(
+            row -> {
+              String orgId = (String) row[1];
+              accepted.put((String) row[0], orgId);
+              Set<String> roles = orgRoles.computeIfAbsent(orgId, k -> new HashSet<>());
+              if (row[2] != null) roles.add((String) row[2]);
+            });
+    if (accepted.isEmpty()) return accepted;
+
+    // memberships, and then role mappings, so that the inserts are batched per table
+    Set<String> members =
+        new HashSet<>(
+            em.createNamedQuery("getOrganizationIdsByMemberAndIds", String.class)
+                .setParameter("userId", user.getId())
+                .setParameter("ids", orgRoles.keySet())
+                .getResultList());
+    PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+    for (String orgId : orgRoles.keySet()) {
+      if (members.contains(orgId)) continue;
+      ExtOrganizationEntity org = em.getReference(ExtOrganizationEntity.class, orgId);
+      OrganizationMemberEntity m = new OrganizationMemberEntity();
+      m.setId(KeycloakModelUtils.generateId());
+      m.setUserId(user.getId());
+      m.setOrganization(org);
+      em.persist(m);
+      if (util.isLoaded(org, "members")) org.getMembers().add(m);
+    }
+    Set<String> names = orgRoles.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
+    if (!names.isEmpty()) {
+      em.createNamedQuery("getOrganizationRolesNotGrantedToUser", OrganizationRoleEntity.class)
+          .setParameter("ids", orgRoles.keySet())
+          .setParameter("names", names)
+          .setParameter("userId", user.getId())
+          .getResultStream()
+          // the name is granted by an invitation to this organization
+          .filter(r -> orgRoles.get(r.getOrganization().getId()).contains(r.getName()))
+          .forEach(
+              r -> {
+                UserOrganizationRoleMappingEntity m = new UserOrganizationRoleMappingEntity();
+                m.setId(KeycloakModelUtils.generateId());
+                m.setUserId(user.getId());
+                m.setRole(r);
+                em.persist(m);
+                if (util.isLoaded(r, "userMappings")) r.getUserMappings().add(m);
+              });
+    }
+
+    removeInvitations(em, accepted.keySet());
+    return accepted;
+  }
+
+  @Override
+  public Set<String> declineInvitations(
+      RealmModel realm, UserModel user, Collection<String> invitationIds) {
+    if (user.getEmail() == null || invitationIds.isEmpty()) return Set.of();
+    List<String> ids =
+        em.createNamedQuery("getInvitationIdsByRealmEmailAndIds", String.class)
+            .setParameter("realmId", realm.getId())
+            .setParameter("email", user.getEmail().toLowerCase())
+            .setParameter("ids", invitationIds)
+            .setParameter("now", new Date(Time.currentTimeMillis()))
+            .getResultList();
+    if (!ids.isEmpty()) removeInvitations(em, ids);
+    return new HashSet<>(ids);
+  }
+
+  /** Deletes the invitations and their children with one statement per table. */
+  static void removeInvitations(EntityManager em, Collection<String> ids) {
+    for (String name : REMOVE_INVITATION_QUERIES) {
+      em.createNamedQuery(name).setParameter("ids", ids).executeUpdate();
+    }
+  }
+
+  @Override
+  public Map<String, Set<String>> removeExpiredInvitations(int max) {
+    List<Object[]> expired =
+        em.createNamedQuery("getExpiredInvitations", Object[].class)
+            .setParameter("now", new Date(Time.currentTimeMillis()))
+            .setMaxResults(max)
+            .getResultList();
+    List<String> ids = new ArrayList<>();
+    Map<String, Set<String>> emails = new HashMap<>();
+    for (Object[] row : expired) {
+      ids.add((String) row[0]);
+      emails.computeIfAbsent((String) row[1], k -> new HashSet<>()).add((String) row[2]);
+    }
+    if (!ids.isEmpty()) removeInvitations(em, ids);
+    return emails;
+  }
+
+  @Override
+  public Set<String> getIdentityProviderOrganizationIds(
+      RealmModel realm, IdentityProviderModel idp) {
+    TypedQuery<String> query = em.createNamedQuery("getOrganizationIdsByIdpId", String.class);
+    query.setParameter("idpId", getInternalId(realm, idp));
+    query.setParameter("realmId", realm.getId());
+    return new HashSet<>(query.getResultList());
+  }
+
+  @Override
+  public void syncIdentityProvider(RealmModel realm, IdentityProviderModel idp) {
+    Set<String> orgIds =
+        IdentityProviders.getAttributeMultivalued(idp.getConfig(), ORG_OWNER_CONFIG_KEY);
+    for (OrganizationIdentityProviderEntity e : getOrganizationIdentityProviders(realm, idp)) {
+      if (orgIds.remove(e.getOrganization().getId())) {
+        e.setIdpAlias(idp.getAlias());
+      } else {
+        e.getOrganization().getIdentityProviders().remove(e);
+        em.remove(e);
+      }
+    }
+    for (String orgId : orgIds) {
+      ExtOrganizationEntity org = em.find(ExtOrganizationEntity.class, orgId);
+      if (org == null || !org.getRealmId().equals(realm.getId())) continue;
+      OrganizationIdentityProviderEntity e = new OrganizationIdentityProviderEntity();
+      e.setId(KeycloakModelUtils.generateId());
+      e.setOrganization(org);
+      e.setIdpId(getInternalId(realm, idp));
+      e.setIdpAlias(idp.getAlias());
+      em.persist(e);
+      org.getIdentityProviders().add(e);
+    }
+  }
+
+  @Override
+  public void removeIdentityProvider(RealmModel realm, IdentityProviderModel idp) {
+    for (OrganizationIdentityProviderEntity e : getOrganizationIdentityProviders(realm, idp)) {
+      e.getOrganization().getIdentityProviders().remove(e);
+      em.remove(e);
+    }
+  }
+
+  @Override
+  public Stream<IdentityProviderModel> getUnlinkedIdentityProvidersStream(RealmModel realm) {
+    TypedQuery<String> query =
+        em.createNamedQuery("getUnlinkedIdentityProviderAliases", String.class);
+    query.setParameter("realmId", realm.getId());
+    query.setParameter("key", ORG_OWNER_CONFIG_KEY);
+    return closing(query.getResultStream())
+        .map(realm::getIdentityProviderByAlias)
+        .filter(Objects::nonNull);
+  }
+
+  private List<OrganizationIdentityProviderEntity> getOrganizationIdentityProviders(
+      RealmModel realm, IdentityProviderModel idp) {
+    TypedQuery<OrganizationIdentityProviderEntity> query =
+        em.createNamedQuery(
+            "getOrganizationIdentityProvidersByIdpId", OrganizationIdentityProviderEntity.class);
+    query.setParameter("idpId", getInternalId(realm, idp));
+    query.setParameter("realmId", realm.getId());
+    return query.getResultList();
+  }
+
+  /** Models built from a representation may not carry the internal id. */
+  private static String getInternalId(RealmModel realm, IdentityProviderModel idp) {
+    if (idp.getInternalId() != null) return idp.getInternalId();
+    IdentityProviderModel stored = realm.getIdentityProviderByAlias(idp.getAlias());
+    if (stored == null) {
+      throw new IllegalArgumentException("No identity provider with alias " + idp.getAlias());
+    }
+    return stored.getInternalId();
+  }
+
   @Override
   public void close() {}
 
@@ -220,12 +555,26 @@ public class JpaOrganizationProvider implements OrganizationProvider {
     };
   }
 
+  private List<Predicate> searchPredicates(
+      RealmModel realm,
+      Map<String, String> attributes,
+      Optional<UserModel> member,
+      CriteriaQuery<?> query,
+      Root<ExtOrganizationEntity> root) {
+    if (attributes == null) {
+      attributes = ImmutableMap.of();
+    }
+    List<Predicate> predicates = attributePredicates(attributes, query, root);
+    predicates.add(em.getCriteriaBuilder().equal(root.get("realmId"), realm.getId()));
+    member.ifPresent(u -> predicates.add(memberPredicate(u, root)));
+    return predicates;
+  }
+
   private List<Predicate> attributePredicates(
-      Map<String, String> attributes, Root<ExtOrganizationEntity> root) {
+      Map<String, String> attributes, CriteriaQuery<?> query, Root<ExtOrganizationEntity> root) {
     CriteriaBuilder builder = em.getCriteriaBuilder();
 
     List<Predicate> predicates = new ArrayList<>();
-    List<Predicate> attributePredicates = new ArrayList<>();
 
     for (Map.Entry<String, String> entry : attributes.entrySet()) {
       String key = entry.getKey();
@@ -244,24 +593,31 @@ public class JpaOrganizationProvider implements OrganizationProvider {
                       builder.lower(root.get("displayName")), "%" + value.toLowerCase() + "%")));
           break;
         default:
-          Join<ExtOrganizationEntity, OrganizationAttributeEntity> attributesJoin =
-              root.join("attributes", JoinType.LEFT);
-
-          attributePredicates.add(
-              builder.and(
-                  builder.equal(builder.lower(attributesJoin.get("name")), key.toLowerCase()),
-                  builder.equal(builder.lower(attributesJoin.get("value")), value.toLowerCase())));
+          predicates.add(builder.exists(attributeSubquery(key, value, query, root)));
           break;
       }
     }
 
-    if (!attributePredicates.isEmpty()) {
-      predicates.add(builder.and(attributePredicates.toArray(new Predicate[0])));
-    }
-
     return predicates;
   }
 
+  /**
+   * Attributes of the organization matching the name and value. Used as an EXISTS per filter, so
+   * that filters don't multiply the result rows like joins on the attributes do.
+   */
+  private Subquery<String> attributeSubquery(
+      String name, String value, CriteriaQuery<?> query, Root<ExtOrganizationEntity> root) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    Subquery<String> subquery = query.subquery(String.class);
+    Root<OrganizationAttributeEntity> attribute = subquery.from(OrganizationAttributeEntity.class);
+    return subquery
+        .select(attribute.get("id"))
+        .where(
+            builder.equal(attribute.get("organization"), root),
+            builder.equal(builder.lower(attribute.get("name")), name.toLowerCase()),
+            builder.equal(builder.lower(attribute.get("value")), value.toLowerCase()));
+  }
+
   private Predicate memberPredicate(UserModel member, Root<ExtOrganizationEntity> root) {
     CriteriaBuilder builder = em.getCriteriaBuilder();
 
@@ -4,11 +4,17 @@ import com.google.auto.service.AutoService;
 import io.phasetwo.service.model.OrganizationProvider;
 import io.phasetwo.service.model.OrganizationProviderFactory;
 import jakarta.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.Config.Scope;
 import org.keycloak.connections.jpa.JpaConnectionProvider;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.models.utils.PostMigrationEvent;
+import org.keycloak.provider.ProviderEvent;
+import org.keycloak.services.scheduled.ClusterAwareScheduledTaskRunner;
+import org.keycloak.timer.TimerProvider;
 
 @JBossLog
 @AutoService(OrganizationProviderFactory.class)
@@ -16,6 +22,10 @@ public class JpaOrganizationProviderFactory implements OrganizationProviderFacto
 
   public static final String PROVIDER_ID = "jpa-organization";
 
+  private int invitationEmailWorkers;
+  private long invitationPurgeIntervalMillis;
+  private long identityProviderSyncIntervalMillis;
+
   @Override
   public String getId() {
     return PROVIDER_ID;
@@ -27,12 +37,67 @@ public class JpaOrganizationProviderFactory implements OrganizationProviderFacto
     return new JpaOrganizationProvider(session, em);
   }
 
+  /** Remains the default provider when other organization providers are deployed. */
   @Override
-  public void init(Scope config) {}
+  public int order() {
+    return 1;
+  }
 
   @Override
-  public void postInit(KeycloakSessionFactory factory) {}
+  public void init(Scope config) {
+    invitationEmailWorkers = config.getInt("invitationEmailWorkers", 4);
+    invitationPurgeIntervalMillis =
+        TimeUnit.SECONDS.toMillis(
+            config.getLong(
+                "invitationPurgeInterval",
+                TimeUnit.MILLISECONDS.toSeconds(ExpiredInvitationsPurge.DEFAULT_INTERVAL_MILLIS)));
+    identityProviderSyncIntervalMillis =
+        TimeUnit.SECONDS.toMillis(
+            config.getLong(
+                "identityProviderSyncInterval",
+                TimeUnit.MILLISECONDS.toSeconds(
+                    UnlinkedIdentityProvidersSync.DEFAULT_INTERVAL_MILLIS)));
+  }
 
   @Override
-  public void close() {}
+  public void postInit(KeycloakSessionFactory factory) {
+    factory.register(
+        (ProviderEvent event) -> {
+          if (event instanceof PostMigrationEvent) {
+            log.debugf("starting invitation email outbox with %d workers", invitationEmailWorkers);
+            InvitationEmailOutbox.start(factory, invitationEmailWorkers);
+            KeycloakModelUtils.runJobInTransaction(
+                factory,
+                session -> {
+                  TimerProvider timer = session.getProvider(TimerProvider.class);
+                  timer.scheduleTask(
+                      s -> InvitationEmailOutbox.signal(),
+                      InvitationEmailOutbox.POLL_INTERVAL_MILLIS,
+                      InvitationEmailOutbox.TASK_NAME);
+                  if (invitationPurgeIntervalMillis > 0) {
+                    // the cluster aware runner lets only one node purge per interval
+                    timer.schedule(
+                        new ClusterAwareScheduledTaskRunner(
+                            factory, new ExpiredInvitationsPurge(), invitationPurgeIntervalMillis),
+                        invitationPurgeIntervalMillis,
+                        ExpiredInvitationsPurge.TASK_NAME);
+                  }
+                  if (identityProviderSyncIntervalMillis > 0) {
+                    timer.schedule(
+                        new ClusterAwareScheduledTaskRunner(
+                            factory,
+                            new UnlinkedIdentityProvidersSync(),
+                            identityProviderSyncIntervalMillis),
+                        identityProviderSyncIntervalMillis,
+                        UnlinkedIdentityProvidersSync.TASK_NAME);
+                  }
+                });
+          }
+        });
+  }
+
+  @Override
+  public void close() {
+    InvitationEmailOutbox.stop();
+  }
 }
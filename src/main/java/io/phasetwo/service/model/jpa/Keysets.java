@@ -0,0 +1,23 @@
+package io.phasetwo.service.model.jpa;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+
+/** Criteria helpers for keyset pagination over a sort key and an id. */
+final class Keysets {
+
+  private Keysets() {}
+
+  /** Rows sorted after {@code (afterKey, afterId)} in ascending (key, id) order. */
+  static <K extends Comparable<? super K>> Predicate after(
+      CriteriaBuilder builder,
+      Expression<? extends K> key,
+      Expression<String> id,
+      K afterKey,
+      String afterId) {
+    return builder.or(
+        builder.greaterThan(key, afterKey),
+        builder.and(builder.equal(key, afterKey), builder.greaterThan(id, afterId)));
+  }
+}
@@ -1,37 +1,69 @@
 package io.phasetwo.service.model.jpa;
 
 import static io.phasetwo.service.Orgs.*;
+import static org.keycloak.models.jpa.PaginationUtils.paginateQuery;
+import static org.keycloak.utils.StreamsUtil.closing;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import io.phasetwo.service.model.Cursor;
 import io.phasetwo.service.model.DomainModel;
 import io.phasetwo.service.model.InvitationModel;
+import io.phasetwo.service.model.MembershipGrants;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationRoleModel;
+import io.phasetwo.service.model.Page;
 import io.phasetwo.service.model.jpa.entity.DomainEntity;
 import io.phasetwo.service.model.jpa.entity.ExtOrganizationEntity;
 import io.phasetwo.service.model.jpa.entity.InvitationEntity;
 import io.phasetwo.service.model.jpa.entity.OrganizationAttributeEntity;
+import io.phasetwo.service.model.jpa.entity.OrganizationIdentityProviderEntity;
 import io.phasetwo.service.model.jpa.entity.OrganizationMemberEntity;
 import io.phasetwo.service.model.jpa.entity.OrganizationRoleEntity;
 import io.phasetwo.service.model.jpa.entity.UserOrganizationRoleMappingEntity;
-import io.phasetwo.service.util.IdentityProviders;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.hibernate.Session;
 import org.keycloak.common.util.MultivaluedHashMap;
+import org.keycloak.common.util.Time;
 import org.keycloak.models.IdentityProviderModel;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.jpa.JpaModel;
+import org.keycloak.models.jpa.entities.UserEntity;
 import org.keycloak.models.utils.KeycloakModelUtils;
 
 public class OrganizationAdapter implements OrganizationModel, JpaModel<ExtOrganizationEntity> {
 
+  /** Users per IN query when checking existing memberships. */
+  private static final int QUERY_BATCH_SIZE = 1000;
+
+  /** Inserts per JDBC batch when granting memberships in bulk. */
+  private static final int JDBC_BATCH_SIZE = 500;
+
   protected final KeycloakSession session;
   protected final ExtOrganizationEntity org;
   protected final EntityManager em;
@@ -123,6 +155,7 @@ public class OrganizationAdapter implements OrganizationModel, JpaModel<ExtOrgan
 
   @Override
   public RealmModel getRealm() {
+    if (realm != null && realm.getId().equals(org.getRealmId())) return realm;
     return session.realms().getRealm(org.getRealmId());
   }
 
@@ -167,25 +200,94 @@ public class OrganizationAdapter implements OrganizationModel, JpaModel<ExtOrgan
   @Override
   public Stream<UserModel> searchForMembersStream(
       String search, Integer firstResult, Integer maxResults) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<String> queryBuilder = builder.createQuery(String.class);
+    Root<OrganizationMemberEntity> member = queryBuilder.from(OrganizationMemberEntity.class);
+    Root<UserEntity> user = queryBuilder.from(UserEntity.class);
+    queryBuilder
+        .select(user.get("id"))
+        .where(memberSearchPredicates(search, member, user))
+        .orderBy(builder.asc(member.get("createdAt")), builder.asc(member.get("id")));
+
+    TypedQuery<String> query = em.createQuery(queryBuilder);
+    return closing(paginateQuery(query, firstResult, maxResults).getResultStream())
+        .map(uid -> session.users().getUserById(realm, uid))
+        .filter(Objects::nonNull);
+  }
+
+  @Override
+  public Long searchForMembersCount(String search) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<Long> queryBuilder = builder.createQuery(Long.class);
+    Root<OrganizationMemberEntity> member = queryBuilder.from(OrganizationMemberEntity.class);
+    Root<UserEntity> user = queryBuilder.from(UserEntity.class);
+    queryBuilder.select(builder.count(member)).where(memberSearchPredicates(search, member, user));
+    return em.createQuery(queryBuilder).getSingleResult();
+  }
+
+  @Override
+  public Page<UserModel> searchForMembersPage(String search, Cursor after, int maxResults) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<Tuple> queryBuilder = builder.createTupleQuery();
+    Root<OrganizationMemberEntity> member = queryBuilder.from(OrganizationMemberEntity.class);
+    Root<UserEntity> user = queryBuilder.from(UserEntity.class);
+    List<Predicate> predicates =
+        new ArrayList<>(Arrays.asList(memberSearchPredicates(search, member, user)));
+    if (after != null) {
+      predicates.add(
+          Keysets.after(
+              builder,
+              member.<Date>get("createdAt"),
+              member.get("id"),
+              new Date(after.getKeyAsLong()),
+              after.getId()));
+    }
+    queryBuilder
+        .multiselect(member.get("createdAt"), member.get("id"), user.get("id"))
+        .where(predicates.toArray(new Predicate[0]))
+        .orderBy(builder.asc(member.get("createdAt")), builder.asc(member.get("id")));
+
+    TypedQuery<Tuple> query = em.createQuery(queryBuilder);
+    query.setMaxResults(maxResults + 1);
+    return Page.of(
+        query.getResultList(),
+        maxResults,
+        t -> Cursor.of(Long.toString(t.get(0, Date.class).getTime()), t.get(1, String.class)),
+        t -> session.users().getUserById(realm, t.get(2, String.class)));
+  }
+
+  /**
+   * Members joined to their users, excluding service accounts. The search is a comma separated list
+   * of terms, any of which can match the email, username, first or last name.
+   */
+  private Predicate[] memberSearchPredicates(
+      String search, Root<OrganizationMemberEntity> member, Root<UserEntity> user) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(builder.equal(member.get("organization"), org));
+    predicates.add(builder.equal(member.get("userId"), user.get("id")));
+    predicates.add(builder.equal(user.get("realmId"), realm.getId()));
+    predicates.add(builder.isNull(user.get("serviceAccountClientLink")));
+
     String[] searchTerms = Strings.isNullOrEmpty(search) ? new String[0] : search.split(",");
-    // TODO this could be optimized for large member lists with a query
-    return getMembersStream()
-        .filter(
-            (m) -> {
-              for (String searchTerm : searchTerms) {
-                String term = searchTerm.trim().toLowerCase();
-                if (term.isEmpty()) continue;
-                if ((m.getEmail() != null && m.getEmail().toLowerCase().contains(term))
-                    || (m.getUsername() != null && m.getUsername().toLowerCase().contains(term))
-                    || (m.getFirstName() != null && m.getFirstName().toLowerCase().contains(term))
-                    || (m.getLastName() != null && m.getLastName().toLowerCase().contains(term))) {
-                  return true;
-                }
-              }
-              return searchTerms.length == 0;
-            })
-        .skip(firstResult)
-        .limit(maxResults);
+    if (searchTerms.length > 0) {
+      List<Predicate> termPredicates = new ArrayList<>();
+      for (String searchTerm : searchTerms) {
+        String term = searchTerm.trim().toLowerCase();
+        if (term.isEmpty()) continue;
+        String pattern = "%" + escapeLike(term) + "%";
+        for (String field : new String[] {"email", "username", "firstName", "lastName"}) {
+          termPredicates.add(builder.like(builder.lower(user.get(field)), pattern, '\\'));
+        }
+      }
+      // a search made only of empty terms matches nothing
+      predicates.add(builder.or(termPredicates.toArray(new Predicate[0])));
+    }
+    return predicates.toArray(new Predicate[0]);
+  }
+
+  private static String escapeLike(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
   }
 
   @Override
@@ -205,7 +307,22 @@ public class OrganizationAdapter implements OrganizationModel, JpaModel<ExtOrgan
 
   @Override
   public boolean hasMembership(UserModel user) {
-    return org.getMembers().stream().anyMatch(m -> m.getUserId().equals(user.getId()));
+    return getMember(user) != null;
+  }
+
+  /** Looks up a single membership by the (ORGANIZATION_ID, USER_ID) index. */
+  private OrganizationMemberEntity getMember(UserModel user) {
+    TypedQuery<OrganizationMemberEntity> query =
+        em.createNamedQuery("getOrganizationMemberByUserId", OrganizationMemberEntity.class);
+    query.setParameter("organization", org);
+    query.setParameter("id", user.getId());
+    query.setMaxResults(1);
+    return query.getResultStream().findFirst().orElse(null);
+  }
+
+  /** Whether the members collection was loaded, and has to be kept in sync with the table. */
+  private boolean isMembersLoaded() {
+    return em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(org, "members");
   }
 
   @Override
@@ -216,17 +333,173 @@ public class OrganizationAdapter implements OrganizationModel, JpaModel<ExtOrgan
     m.setUserId(user.getId());
     m.setOrganization(org);
     em.persist(m);
-    org.getMembers().add(m);
+    if (isMembersLoaded()) org.getMembers().add(m);
+  }
+
+  @Override
+  public MembershipGrants grantMemberships(
+      Map<UserModel, ? extends Collection<String>> memberRoles) {
+    Set<String> granted = new LinkedHashSet<>();
+    Map<String, List<String>> grantedRoles = new LinkedHashMap<>();
+    MembershipGrants grants = new MembershipGrants(granted, grantedRoles);
+    if (memberRoles.isEmpty()) return grants;
+    Map<String, OrganizationRoleEntity> roles =
+        org.getRoles().stream().collect(Collectors.toMap(OrganizationRoleEntity::getName, r -> r));
+
+    // what already exists, with one query per chunk of users
+    Set<String> members = new HashSet<>();
+    Set<List<String>> mappings = new HashSet<>();
+    List<String> userIds = memberRoles.keySet().stream().map(UserModel::getId).toList();
+    for (List<String> ids : Lists.partition(userIds, QUERY_BATCH_SIZE)) {
+      members.addAll(
+          em.createNamedQuery("getOrganizationMemberUserIds", String.class)
+              .setParameter("organization", org)
+              .setParameter("ids", ids)
+              .getResultList());
+      em.createNamedQuery("getMappingsByOrganizationAndUserIds", Object[].class)
+          .setParameter("organization", org)
+          .setParameter("ids", ids)
+          .getResultStream()
+          .forEach(row -> mappings.add(List.of((String) row[0], (String) row[1])));
+    }
+
+    // members are all persisted before the mappings, so that the inserts are batched per table
+    List<UserOrganizationRoleMappingEntity> newMappings = new ArrayList<>();
+    boolean membersLoaded = isMembersLoaded();
+    memberRoles.forEach(
+        (user, roleNames) -> {
+          if (members.add(user.getId())) {
+            OrganizationMemberEntity m = new OrganizationMemberEntity();
+            m.setId(KeycloakModelUtils.generateId());
+            m.setUserId(user.getId());
+            m.setOrganization(org);
+            em.persist(m);
+            if (membersLoaded) org.getMembers().add(m);
+            granted.add(user.getId());
+          }
+          for (String roleName : roleNames) {
+            OrganizationRoleEntity role = roles.get(roleName);
+            if (role == null || !mappings.add(List.of(role.getId(), user.getId()))) continue;
+            UserOrganizationRoleMappingEntity m = new UserOrganizationRoleMappingEntity();
+            m.setId(KeycloakModelUtils.generateId());
+            m.setUserId(user.getId());
+            m.setRole(role);
+            newMappings.add(m);
+            grantedRoles.computeIfAbsent(user.getId(), id -> new ArrayList<>()).add(roleName);
+          }
+        });
+    PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+    for (UserOrganizationRoleMappingEntity m : newMappings) {
+      em.persist(m);
+      if (util.isLoaded(m.getRole(), "userMappings")) m.getRole().getUserMappings().add(m);
+    }
+    flushBatched();
+    return grants;
+  }
+
+  /** Writes the pending changes with JDBC batches, whatever the batch size configured. */
+  private void flushBatched() {
+    Session hibernate = em.unwrap(Session.class);
+    Integer batchSize = hibernate.getJdbcBatchSize();
+    hibernate.setJdbcBatchSize(JDBC_BATCH_SIZE);
+    try {
+      em.flush();
+    } finally {
+      hibernate.setJdbcBatchSize(batchSize);
+    }
   }
 
   @Override
   public void revokeMembership(UserModel user) {
-    if (!hasMembership(user)) return;
-    org.getMembers().removeIf(m -> m.getUserId().equals(user.getId()));
+    OrganizationMemberEntity member = getMember(user);
+    if (member == null) return;
+    if (isMembersLoaded()) org.getMembers().remove(member);
+    em.remove(member);
     getRolesStream().forEach(r -> r.revokeRole(user));
     if (user.getEmail() != null) revokeInvitations(user.getEmail());
   }
 
+  @Override
+  public Set<String> revokeMemberships(Collection<UserModel> users) {
+    Map<String, UserModel> byId = new LinkedHashMap<>();
+    users.forEach(u -> byId.putIfAbsent(u.getId(), u));
+    Set<String> members = new HashSet<>();
+    for (List<String> ids : Lists.partition(List.copyOf(byId.keySet()), QUERY_BATCH_SIZE)) {
+      members.addAll(
+          em.createNamedQuery("getOrganizationMemberUserIds", String.class)
+              .setParameter("organization", org)
+              .setParameter("ids", ids)
+              .getResultList());
+    }
+    Set<String> revoked = new LinkedHashSet<>(byId.keySet());
+    revoked.retainAll(members);
+    if (revoked.isEmpty()) return revoked;
+    Set<String> emails =
+        revoked.stream()
+            .map(id -> byId.get(id).getEmail())
+            .filter(Objects::nonNull)
+            .map(String::toLowerCase)
+            .collect(Collectors.toSet());
+
+    // what the persistence context holds is removed through it, so that it doesn't go stale
+    PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+    if (isMembersLoaded()) removeLoaded(org.getMembers(), m -> revoked.contains(m.getUserId()));
+    if (util.isLoaded(org, "roles")) {
+      for (OrganizationRoleEntity role : org.getRoles()) {
+        if (!util.isLoaded(role, "userMappings")) continue;
+        removeLoaded(role.getUserMappings(), m -> revoked.contains(m.getUserId()));
+      }
+    }
+    if (util.isLoaded(org, "invitations")) {
+      removeLoaded(org.getInvitations(), i -> emails.contains(i.getEmail()));
+    }
+    flushBatched();
+
+    // and the rest with bulk deletes
+    for (List<String> ids : Lists.partition(List.copyOf(revoked), QUERY_BATCH_SIZE)) {
+      em.createNamedQuery("deleteMappingsByOrganizationAndUserIds")
+          .setParameter("organization", org)
+          .setParameter("ids", ids)
+          .executeUpdate();
+      em.createNamedQuery("removeOrganizationMembersByUserIds")
+          .setParameter("organization", org)
+          .setParameter("ids", ids)
+          .executeUpdate();
+    }
+    for (List<String> chunk : Lists.partition(List.copyOf(emails), QUERY_BATCH_SIZE)) {
+      List<String> ids =
+          em.createNamedQuery("getInvitationIdsByOrganizationAndEmails", String.class)
+              .setParameter("organization", org)
+              .setParameter("emails", chunk)
+              .getResultList();
+      if (!ids.isEmpty()) JpaOrganizationProvider.removeInvitations(em, ids);
+    }
+    return revoked;
+  }
+
+  private <T> void removeLoaded(Collection<T> loaded, java.util.function.Predicate<T> revoked) {
+    for (Iterator<T> it = loaded.iterator(); it.hasNext(); ) {
+      T entity = it.next();
+      if (!revoked.test(entity)) continue;
+      it.remove();
+      em.remove(entity);
+    }
+  }
+
+  @Override
+  public Set<String> getActiveMemberIds(Collection<String> userIds) {
+    Set<String> active = new HashSet<>();
+    for (List<String> ids : Lists.partition(List.copyOf(userIds), QUERY_BATCH_SIZE)) {
+      active.addAll(
+          em.createNamedQuery("getUserIdsByAttributeValue", String.class)
+              .setParameter("name", ACTIVE_ORGANIZATION)
+              .setParameter("value", org.getId())
+              .setParameter("ids", ids)
+              .getResultList());
+    }
+    return active;
+  }
+
   @Override
   public Long getInvitationsCount() {
     TypedQuery<Long> query = em.createNamedQuery("getInvitationCount", Long.class);
@@ -248,6 +521,87 @@ public class OrganizationAdapter implements OrganizationModel, JpaModel<ExtOrgan
     return org.getInvitations().stream().map(i -> new InvitationAdapter(session, realm, em, i));
   }
 
+  @Override
+  public Stream<InvitationModel> getInvitationsByEmail(String email) {
+    TypedQuery<InvitationEntity> query =
+        em.createNamedQuery(
+            "getUnexpiredInvitationsByOrganizationAndEmail", InvitationEntity.class);
+    query.setParameter("organization", org);
+    query.setParameter("email", email.toLowerCase());
+    query.setParameter("now", new Date(Time.currentTimeMillis()));
+    return closing(query.getResultStream()).map(i -> new InvitationAdapter(session, realm, em, i));
+  }
+
+  @Override
+  public Stream<InvitationModel> searchForInvitationsStream(
+      String search, Integer firstResult, Integer maxResults) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<InvitationEntity> queryBuilder = builder.createQuery(InvitationEntity.class);
+    Root<InvitationEntity> root = queryBuilder.from(InvitationEntity.class);
+    queryBuilder
+        .where(invitationSearchPredicates(search, root).toArray(new Predicate[0]))
+        .orderBy(builder.asc(root.get("createdAt")), builder.asc(root.get("id")));
+
+    TypedQuery<InvitationEntity> query = em.createQuery(queryBuilder);
+    return closing(paginateQuery(query, firstResult, maxResults).getResultStream())
+        .map(i -> new InvitationAdapter(session, realm, em, i));
+  }
+
+  @Override
+  public Long searchForInvitationsCount(String search) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<Long> queryBuilder = builder.createQuery(Long.class);
+    Root<InvitationEntity> root = queryBuilder.from(InvitationEntity.class);
+    queryBuilder
+        .select(builder.count(root))
+        .where(invitationSearchPredicates(search, root).toArray(new Predicate[0]));
+    return em.createQuery(queryBuilder).getSingleResult();
+  }
+
+  @Override
+  public Page<InvitationModel> searchForInvitationsPage(
+      String search, Cursor after, int maxResults) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<InvitationEntity> queryBuilder = builder.createQuery(InvitationEntity.class);
+    Root<InvitationEntity> root = queryBuilder.from(InvitationEntity.class);
+    List<Predicate> predicates = invitationSearchPredicates(search, root);
+    if (after != null) {
+      predicates.add(
+          Keysets.after(
+              builder,
+              root.<Date>get("createdAt"),
+              root.get("id"),
+              new Date(after.getKeyAsLong()),
+              after.getId()));
+    }
+    queryBuilder
+        .where(predicates.toArray(new Predicate[0]))
+        .orderBy(builder.asc(root.get("createdAt")), builder.asc(root.get("id")));
+
+    TypedQuery<InvitationEntity> query = em.createQuery(queryBuilder);
+    query.setMaxResults(maxResults + 1);
+    return Page.of(
+        query.getResultList(),
+        maxResults,
+        i -> Cursor.of(Long.toString(i.getCreatedAt().getTime()), i.getId()),
+        i -> new InvitationAdapter(session, realm, em, i));
+  }
+
+  /**
+   * Invitations of the organization whose email contains the search. Emails are stored in lower
+   * case, so the email column is compared as is.
+   */
+  private List<Predicate> invitationSearchPredicates(String search, Root<InvitationEntity> root) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(builder.equal(root.get("organization"), org));
+    if (!Strings.isNullOrEmpty(search)) {
+      predicates.add(
+          builder.like(root.get("email"), "%" + escapeLike(search.toLowerCase()) + "%", '\\'));
+    }
+    return predicates;
+  }
+
   @Override
   public InvitationModel getInvitation(String id) {
     InvitationEntity ie = em.find(InvitationEntity.class, id);
@@ -260,26 +614,131 @@ public class OrganizationAdapter implements OrganizationModel, JpaModel<ExtOrgan
 
   @Override
   public void revokeInvitation(String id) {
-    org.getInvitations().removeIf(inv -> inv.getId().equals(id));
+    InvitationEntity inv = em.find(InvitationEntity.class, id);
+    if (inv != null && inv.getOrganization().equals(org)) removeInvitation(inv);
   }
 
   @Override
   public void revokeInvitations(String email) {
-    org.getInvitations().removeIf(inv -> inv.getEmail().equals(email.toLowerCase()));
+    em.createNamedQuery("getInvitationsByOrganizationAndEmail", InvitationEntity.class)
+        .setParameter("organization", org)
+        .setParameter("email", email.toLowerCase())
+        .getResultList()
+        .forEach(this::removeInvitation);
+  }
+
+  /** Removes the invitation without loading the other invitations of the organization. */
+  private void removeInvitation(InvitationEntity inv) {
+    if (em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(org, "invitations")) {
+      org.getInvitations().remove(inv);
+    }
+    em.remove(inv);
   }
 
   @Override
   public InvitationModel addInvitation(String email, UserModel inviter) {
+    removeExpiredInvitations(Set.of(email.toLowerCase()));
     InvitationEntity inv = new InvitationEntity();
     inv.setId(KeycloakModelUtils.generateId());
     inv.setOrganization(org);
     inv.setEmail(email.toLowerCase());
     inv.setInviterId(inviter.getId());
+    inv.setExpiresAt(defaultExpiresAt());
     em.persist(inv);
     org.getInvitations().add(inv);
     return new InvitationAdapter(session, realm, em, inv);
   }
 
+  @Override
+  public List<InvitationModel> addInvitations(
+      Map<String, UserModel> invitations, Consumer<InvitationModel> initializer) {
+    removeExpiredInvitations(invitations.keySet());
+    boolean invitationsLoaded =
+        em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(org, "invitations");
+    List<InvitationModel> added = new ArrayList<>();
+    Date expiresAt = defaultExpiresAt();
+    invitations.forEach(
+        (email, inviter) -> {
+          InvitationEntity inv = new InvitationEntity();
+          inv.setId(KeycloakModelUtils.generateId());
+          inv.setOrganization(org);
+          inv.setEmail(email);
+          inv.setInviterId(inviter.getId());
+          inv.setExpiresAt(expiresAt);
+          em.persist(inv);
+          if (invitationsLoaded) org.getInvitations().add(inv);
+          added.add(new InvitationAdapter(session, realm, em, inv));
+        });
+    added.forEach(initializer);
+    flushBatched();
+    return added;
+  }
+
+  /**
+   * Removes the expired invitations of the emails that the purge hasn't removed yet, so that they
+   * can be invited again.
+   */
+  private void removeExpiredInvitations(Collection<String> emails) {
+    Date now = new Date(Time.currentTimeMillis());
+    Set<String> expired = new HashSet<>();
+    for (List<String> chunk : Lists.partition(List.copyOf(emails), QUERY_BATCH_SIZE)) {
+      expired.addAll(
+          em.createNamedQuery("getExpiredInvitationIdsByOrganizationAndEmails", String.class)
+              .setParameter("organization", org)
+              .setParameter("emails", chunk)
+              .setParameter("now", now)
+              .getResultList());
+    }
+    if (expired.isEmpty()) return;
+    if (em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(org, "invitations")) {
+      removeLoaded(org.getInvitations(), i -> expired.contains(i.getId()));
+    }
+    // the rows have to be gone before the new ones are inserted
+    flushBatched();
+    for (List<String> ids : Lists.partition(List.copyOf(expired), QUERY_BATCH_SIZE)) {
+      JpaOrganizationProvider.removeInvitations(em, ids);
+    }
+  }
+
+  /** Expiry of a new invitation, from the invitation time to live of the realm. */
+  private Date defaultExpiresAt() {
+    int ttl = realm.getAttribute(ORG_CONFIG_INVITATION_TTL_KEY, 0);
+    return ttl > 0 ? new Date(Time.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl)) : null;
+  }
+
+  @Override
+  public Set<String> getInvitedEmails(Collection<String> emails) {
+    Date now = new Date(Time.currentTimeMillis());
+    Set<String> invited = new HashSet<>();
+    for (List<String> chunk : Lists.partition(List.copyOf(emails), QUERY_BATCH_SIZE)) {
+      invited.addAll(
+          em.createNamedQuery("getInvitationEmailsByOrganization", String.class)
+              .setParameter("organization", org)
+              .setParameter("emails", chunk)
+              .setParameter("now", now)
+              .getResultList());
+    }
+    return invited;
+  }
+
+  @Override
+  public Set<String> getMemberEmails(Collection<String> emails) {
+    Set<String> members = new HashSet<>();
+    for (List<String> chunk : Lists.partition(List.copyOf(emails), QUERY_BATCH_SIZE)) {
+      Set<String> requested = new HashSet<>(chunk);
+      em.createNamedQuery("getOrganizationMemberEmails", Object[].class)
+          .setParameter("organization", org)
+          .setParameter("emails", chunk)
+          .getResultStream()
+          .forEach(
+              row -> {
+                if (requested.contains(row[0])) members.add((String) row[0]);
+                if (requested.contains(row[1])) members.add((String) row[1]);
+              });
+    }
+    return members;
+  }
+
   @Override
   public Stream<OrganizationRoleModel> getRolesStream() {
     return org.getRoles().stream()
@@ -319,15 +778,12 @@ public class OrganizationAdapter implements OrganizationModel, JpaModel<ExtOrgan
 
   @Override
   public Stream<IdentityProviderModel> getIdentityProvidersStream() {
-    return getRealm()
-        .getIdentityProvidersStream()
-        // Todo: do we need to apply here a role filter? I believe not since its part of the
-        // HomeIdpDiscoverer
-        .filter(
-            i -> {
-              Map<String, String> config = i.getConfig();
-              var orgs = IdentityProviders.getAttributeMultivalued(config, ORG_OWNER_CONFIG_KEY);
-              return orgs.contains(getId());
-            });
+    RealmModel realm = getRealm();
+    // copied, as updating one of the identity providers changes the collection
+    List<String> aliases =
+        org.getIdentityProviders().stream()
+            .map(OrganizationIdentityProviderEntity::getIdpAlias)
+            .collect(Collectors.toList());
+    return aliases.stream().map(realm::getIdentityProviderByAlias).filter(Objects::nonNull);
   }
 }
@@ -0,0 +1,91 @@
+package io.phasetwo.service.model.jpa;
+
+import static io.phasetwo.service.Orgs.ORG_OWNER_CONFIG_KEY;
+
+import io.phasetwo.service.util.IdentityProviders;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.models.utils.KeycloakModelUtils;
+
+/**
+ * Fills the {@code ORGANIZATION_IDP} table from the {@code home.idp.discovery.org} config of the
+ * existing identity providers. Organization ids that don't exist in the realm of the identity
+ * provider are skipped.
+ */
+@JBossLog
+public class OrganizationIdentityProviderBackfill implements CustomTaskChange {
+
+  private int count;
+
+  @Override
+  public void execute(Database database) throws CustomChangeException {
+    JdbcConnection connection = (JdbcConnection) database.getConnection();
+    String select =
+        String.format(
+            "SELECT P.INTERNAL_ID, P.PROVIDER_ALIAS, P.REALM_ID, C.VALUE FROM %s P JOIN %s C ON C.IDENTITY_PROVIDER_ID = P.INTERNAL_ID WHERE C.NAME = ?",
+            table(database, "IDENTITY_PROVIDER"), table(database, "IDENTITY_PROVIDER_CONFIG"));
+    String insert =
+        String.format(
+            "INSERT INTO %s (ID, ORGANIZATION_ID, IDP_ID, IDP_ALIAS) SELECT ?, O.ID, ?, ? FROM %s O WHERE O.ID = ? AND O.REALM_ID = ?",
+            table(database, "ORGANIZATION_IDP"), table(database, "ORGANIZATION"));
+    try (PreparedStatement query = connection.prepareStatement(select);
+        PreparedStatement update = connection.prepareStatement(insert)) {
+      query.setString(1, ORG_OWNER_CONFIG_KEY);
+      try (ResultSet rs = query.executeQuery()) {
+        while (rs.next()) {
+          String idpId = rs.getString(1);
+          String alias = rs.getString(2);
+          String realmId = rs.getString(3);
+          String value = rs.getString(4);
+          if (value == null) continue;
+          Map<String, String> config = Map.of(ORG_OWNER_CONFIG_KEY, value);
+          for (String orgId :
+              IdentityProviders.getAttributeMultivalued(config, ORG_OWNER_CONFIG_KEY)) {
+            update.setString(1, KeycloakModelUtils.generateId());
+            update.setString(2, idpId);
+            update.setString(3, alias);
+            update.setString(4, orgId);
+            update.setString(5, realmId);
+            update.addBatch();
+          }
+        }
+      }
+      for (int rows : update.executeBatch()) {
+        // ids of organizations that no longer exist insert nothing
+        if (rows > 0) count += rows;
+      }
+    } catch (Exception e) {
+      throw new CustomChangeException("Error copying organization identity providers", e);
+    }
+    log.infof("Copied %d organization identity providers to ORGANIZATION_IDP", count);
+  }
+
+  private static String table(Database database, String name) {
+    return database.escapeTableName(
+        database.getDefaultCatalogName(), database.getDefaultSchemaName(), name);
+  }
+
+  @Override
+  public String getConfirmationMessage() {
+    return String.format("Copied %d organization identity providers", count);
+  }
+
+  @Override
+  public void setUp() {}
+
+  @Override
+  public void setFileOpener(ResourceAccessor resourceAccessor) {}
+
+  @Override
+  public ValidationErrors validate(Database database) {
+    return new ValidationErrors();
+  }
+}
@@ -1,11 +1,20 @@
 package io.phasetwo.service.model.jpa;
 
+import io.phasetwo.service.model.Cursor;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationRoleModel;
+import io.phasetwo.service.model.Page;
 import io.phasetwo.service.model.jpa.entity.OrganizationRoleEntity;
 import io.phasetwo.service.model.jpa.entity.UserOrganizationRoleMappingEntity;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.stream.Stream;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.RealmModel;
@@ -72,6 +81,37 @@ public class OrganizationRoleAdapter
         .map(uid -> session.users().getUserById(realm, uid));
   }
 
+  @Override
+  public Page<UserModel> getUserMappingsPage(Cursor after, int maxResults) {
+    CriteriaBuilder builder = em.getCriteriaBuilder();
+    CriteriaQuery<UserOrganizationRoleMappingEntity> queryBuilder =
+        builder.createQuery(UserOrganizationRoleMappingEntity.class);
+    Root<UserOrganizationRoleMappingEntity> root =
+        queryBuilder.from(UserOrganizationRoleMappingEntity.class);
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(builder.equal(root.get("role"), role));
+    if (after != null) {
+      predicates.add(
+          Keysets.after(
+              builder,
+              root.<Date>get("createdAt"),
+              root.get("id"),
+              new Date(after.getKeyAsLong()),
+              after.getId()));
+    }
+    queryBuilder
+        .where(predicates.toArray(new Predicate[0]))
+        .orderBy(builder.asc(root.get("createdAt")), builder.asc(root.get("id")));
+
+    TypedQuery<UserOrganizationRoleMappingEntity> query = em.createQuery(queryBuilder);
+    query.setMaxResults(maxResults + 1);
+    return Page.of(
+        query.getResultList(),
+        maxResults,
+        m -> Cursor.of(Long.toString(m.getCreatedAt().getTime()), m.getId()),
+        m -> session.users().getUserById(realm, m.getUserId()));
+  }
+
   @Override
   public void grantRole(UserModel user) {
     // user must be a member
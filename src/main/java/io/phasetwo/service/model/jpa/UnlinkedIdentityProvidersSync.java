@@ -0,0 +1,81 @@
+package io.phasetwo.service.model.jpa;
+
+import static io.phasetwo.service.Orgs.ORG_OWNER_CONFIG_KEY;
+
+import io.phasetwo.service.model.OrganizationProvider;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.models.IdentityProviderModel;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
+import org.keycloak.timer.ScheduledTask;
+
+/**
+ * Adds the identity providers that have a {@code home.idp.discovery.org} config but no organization
+ * yet to the organizations of their config. Keycloak publishes no event when an identity provider
+ * is created through its own admin API, so they are picked up here. It is scheduled with a cluster
+ * aware runner, so that only one node syncs per interval. Each identity provider is synced in its
+ * own transaction, so that one that was linked concurrently fails alone, and the config of the ones
+ * that are left without an organization is remembered, so that they are only synced again once
+ * their config changes.
+ */
+@JBossLog
+public class UnlinkedIdentityProvidersSync implements ScheduledTask {
+
+  static final String TASK_NAME = "orgs-unlinked-identity-providers-sync";
+  static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  // config value of the identity providers by internal id, when last synced
+  private final Map<String, String> synced = new ConcurrentHashMap<>();
+
+  @Override
+  public void run(KeycloakSession session) {
+    KeycloakSessionFactory factory = session.getKeycloakSessionFactory();
+    List<String> realmIds =
+        session.realms().getRealmsStream().map(RealmModel::getId).collect(Collectors.toList());
+    for (String realmId : realmIds) {
+      List<IdentityProviderModel> idps =
+          KeycloakModelUtils.runJobInTransactionWithResult(
+              factory,
+              s -> {
+                RealmModel realm = s.realms().getRealm(realmId);
+                if (realm == null) return List.of();
+                return s.getProvider(OrganizationProvider.class)
+                    .getUnlinkedIdentityProvidersStream(realm)
+                    .filter(idp -> !Objects.equals(synced.get(idp.getInternalId()), config(idp)))
+                    .collect(Collectors.toList());
+              });
+      for (IdentityProviderModel idp : idps) {
+        try {
+          KeycloakModelUtils.runJobInTransaction(
+              factory,
+              s -> {
+                RealmModel realm = s.realms().getRealm(realmId);
+                if (realm == null) return;
+                s.getProvider(OrganizationProvider.class).syncIdentityProvider(realm, idp);
+              });
+          synced.put(idp.getInternalId(), config(idp));
+        } catch (RuntimeException e) {
+          // linked by a concurrent update, the next run checks it again
+          log.debugf(e, "Error syncing identity provider %s of realm %s", idp.getAlias(), realmId);
+        }
+      }
+    }
+  }
+
+  private static String config(IdentityProviderModel idp) {
+    return idp.getConfig().get(ORG_OWNER_CONFIG_KEY);
+  }
+
+  @Override
+  public String getTaskName() {
+    return TASK_NAME;
+  }
+}
@@ -7,11 +7,15 @@ import jakarta.persistence.*;
   @NamedQuery(
       name = "getDomainsByName",
       query =
-          "SELECT t FROM DomainEntity t WHERE t.domain = :domain AND t.organization.realmId = :realmId"),
+          "SELECT t FROM DomainEntity t WHERE t.domain IN :domains AND t.organization.realmId = :realmId"),
   @NamedQuery(
       name = "getVerifiedDomainsByName",
       query =
-          "SELECT t FROM DomainEntity t WHERE t.domain = :domain AND t.verified = :verified AND t.organization.realmId = :realmId"),
+          "SELECT t FROM DomainEntity t WHERE t.domain IN :domains AND t.verified = :verified AND t.organization.realmId = :realmId"),
+  @NamedQuery(
+      name = "getDomainsByRealmId",
+      query =
+          "SELECT t FROM DomainEntity t JOIN FETCH t.organization o WHERE o.realmId = :realmId"),
   @NamedQuery(
       name = "getDomainsByOrganization",
       query = "SELECT t FROM DomainEntity t WHERE t.organization = :organization"),
@@ -21,7 +25,10 @@ import jakarta.persistence.*;
           "SELECT t FROM DomainEntity t WHERE t.organization = :organization AND lower(t.domain) LIKE lower(:search)"),
   @NamedQuery(
       name = "getDomainCount",
-      query = "select count(t) from DomainEntity t where t.organization = :organization")
+      query = "select count(t) from DomainEntity t where t.organization = :organization"),
+  @NamedQuery(
+      name = "removeDomainsByOrganizationIds",
+      query = "DELETE FROM DomainEntity t WHERE t.organization.id IN :ids")
 })
 @Entity
 @Table(
@@ -5,6 +5,7 @@ import static io.phasetwo.service.model.jpa.entity.Entities.setCollection;
 import jakarta.persistence.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Nationalized;
 
 /** */
@@ -27,14 +28,24 @@ import org.hibernate.annotations.Nationalized;
       name = "getOrganizationCount",
       query = "select count(o) from ExtOrganizationEntity o where o.realmId = :realmId"),
   @NamedQuery(
-      name = "removeAllOrganizations",
-      query = "delete from ExtOrganizationEntity o where o.realmId = :realmId")
+      name = "getOrganizationIdsByRealmId",
+      query = "SELECT o.id FROM ExtOrganizationEntity o WHERE o.realmId = :realmId ORDER BY o.id"),
+  @NamedQuery(
+      name = "removeOrganizationsByIds",
+      query = "DELETE FROM ExtOrganizationEntity o WHERE o.id IN :ids")
 })
 @Entity
 @Table(
     name = "ORGANIZATION",
     uniqueConstraints = {@UniqueConstraint(columnNames = {"REALM_ID", "NAME"})})
 public class ExtOrganizationEntity {
+
+  /**
+   * Lazy collections of up to this many organizations loaded in the same persistence context are
+   * initialized together, so rendering a page of organizations takes one query per collection.
+   */
+  static final int BATCH_SIZE = 100;
+
   @Id
   @Column(name = "ID", length = 36)
   @Access(
@@ -63,9 +74,11 @@ public class ExtOrganizationEntity {
       cascade = CascadeType.ALL,
       orphanRemoval = true,
       mappedBy = "organization")
+  @BatchSize(size = BATCH_SIZE)
   protected Collection<DomainEntity> domains = new ArrayList<DomainEntity>();
 
   @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, mappedBy = "organization")
+  @BatchSize(size = BATCH_SIZE)
   protected Collection<OrganizationAttributeEntity> attributes =
       new ArrayList<OrganizationAttributeEntity>();
 
@@ -82,6 +95,7 @@ public class ExtOrganizationEntity {
       cascade = CascadeType.ALL,
       orphanRemoval = true,
       mappedBy = "organization")
+  @BatchSize(size = BATCH_SIZE)
   protected Collection<OrganizationRoleEntity> roles = new ArrayList<OrganizationRoleEntity>();
 
   @OneToMany(
@@ -89,8 +103,18 @@ public class ExtOrganizationEntity {
       cascade = CascadeType.ALL,
       orphanRemoval = true,
       mappedBy = "organization")
+  @BatchSize(size = BATCH_SIZE)
   protected Collection<InvitationEntity> invitations = new ArrayList<InvitationEntity>();
 
+  @OneToMany(
+      fetch = FetchType.LAZY,
+      cascade = CascadeType.ALL,
+      orphanRemoval = true,
+      mappedBy = "organization")
+  @BatchSize(size = BATCH_SIZE)
+  protected Collection<OrganizationIdentityProviderEntity> identityProviders =
+      new ArrayList<OrganizationIdentityProviderEntity>();
+
   public String getId() {
     return id;
   }
@@ -139,6 +163,15 @@ public class ExtOrganizationEntity {
     setCollection(invitations, this.invitations);
   }
 
+  public Collection<OrganizationIdentityProviderEntity> getIdentityProviders() {
+    return identityProviders;
+  }
+
+  public void setIdentityProviders(
+      Collection<OrganizationIdentityProviderEntity> identityProviders) {
+    setCollection(identityProviders, this.identityProviders);
+  }
+
   public String getName() {
     return name;
   }
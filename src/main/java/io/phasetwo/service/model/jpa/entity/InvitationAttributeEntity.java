@@ -8,12 +8,23 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedQueries;
+import jakarta.persistence.NamedQuery;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import java.util.Objects;
 import org.hibernate.annotations.Nationalized;
 
 /** */
+@NamedQueries({
+  @NamedQuery(
+      name = "removeInvitationAttributesByOrganizationIds",
+      query =
+          "DELETE FROM InvitationAttributeEntity a WHERE a.invitation IN (SELECT i FROM InvitationEntity i WHERE i.organization.id IN :ids)"),
+  @NamedQuery(
+      name = "removeInvitationAttributesByInvitationIds",
+      query = "DELETE FROM InvitationAttributeEntity a WHERE a.invitation.id IN :ids")
+})
 @Table(
     name = "INVITATION_ATTRIBUTE",
     uniqueConstraints = {@UniqueConstraint(columnNames = {"INVITATION_ID", "NAME"})})
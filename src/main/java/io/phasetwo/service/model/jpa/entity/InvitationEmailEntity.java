@@ -0,0 +1,147 @@
+package io.phasetwo.service.model.jpa.entity;
+
+import jakarta.persistence.Access;
+import jakarta.persistence.AccessType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedQueries;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import java.util.Date;
+
+/** An invitation email waiting in the outbox to be sent, or retried. */
+@NamedQueries({
+  @NamedQuery(
+      name = "getDueInvitationEmailIds",
+      query =
+          "SELECT e.id FROM InvitationEmailEntity e WHERE e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt"),
+  @NamedQuery(
+      name = "claimInvitationEmail",
+      query =
+          "UPDATE InvitationEmailEntity e SET e.nextAttemptAt = :lease WHERE e.id = :id AND e.nextAttemptAt <= :now"),
+  @NamedQuery(
+      name = "removeInvitationEmailsByOrganizationIds",
+      query =
+          "DELETE FROM InvitationEmailEntity e WHERE e.invitation IN (SELECT i FROM InvitationEntity i WHERE i.organization.id IN :ids)"),
+  @NamedQuery(
+      name = "removeInvitationEmailsByInvitationIds",
+      query = "DELETE FROM InvitationEmailEntity e WHERE e.invitation.id IN :ids")
+})
+@Entity
+@Table(name = "INVITATION_EMAIL")
+public class InvitationEmailEntity {
+
+  @Id
+  @Column(name = "ID", length = 36)
+  @Access(
+      AccessType.PROPERTY) // we do this because relationships often fetch id, but not entity.  This
+  // avoids an extra SQL
+  protected String id;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "INVITATION_ID")
+  protected InvitationEntity invitation;
+
+  @Column(name = "INVITER_ID")
+  protected String inviterId;
+
+  @Column(name = "ATTEMPTS")
+  protected int attempts;
+
+  /**
+   * Epoch millis after which the email is due, or the end of the lease of the worker sending it.
+   */
+  @Column(name = "NEXT_ATTEMPT_AT")
+  protected long nextAttemptAt;
+
+  @Column(name = "LAST_ERROR")
+  protected String lastError;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "CREATED_AT")
+  protected Date createdAt;
+
+  @PrePersist
+  protected void onCreate() {
+    if (createdAt == null) createdAt = new Date();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public InvitationEntity getInvitation() {
+    return invitation;
+  }
+
+  public void setInvitation(InvitationEntity invitation) {
+    this.invitation = invitation;
+  }
+
+  public String getInviterId() {
+    return inviterId;
+  }
+
+  public void setInviterId(String inviterId) {
+    this.inviterId = inviterId;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  public long getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public void setNextAttemptAt(long nextAttemptAt) {
+    this.nextAttemptAt = nextAttemptAt;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+
+  public Date getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(Date at) {
+    createdAt = at;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null) return false;
+    if (!(o instanceof InvitationEmailEntity)) return false;
+
+    InvitationEmailEntity that = (InvitationEmailEntity) o;
+
+    return id.equals(that.id);
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+}
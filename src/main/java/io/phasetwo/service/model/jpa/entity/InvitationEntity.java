@@ -19,14 +19,52 @@ import java.util.Set;
   @NamedQuery(
       name = "getInvitationsByOrganizationAndEmail",
       query =
-          "SELECT t FROM InvitationEntity t WHERE t.organization = :organization AND lower(t.email) LIKE lower(:search) ORDER BY t.email"),
+          "SELECT t FROM InvitationEntity t WHERE t.organization = :organization AND t.email = :email ORDER BY t.createdAt"),
+  @NamedQuery(
+      name = "getUnexpiredInvitationsByOrganizationAndEmail",
+      query =
+          "SELECT t FROM InvitationEntity t WHERE t.organization = :organization AND t.email = :email AND (t.expiresAt IS NULL OR t.expiresAt > :now) ORDER BY t.createdAt"),
   @NamedQuery(
       name = "getInvitationsByRealmAndEmail",
       query =
-          "SELECT i FROM InvitationEntity i WHERE i.organization in (SELECT o FROM ExtOrganizationEntity o WHERE o.realmId = :realmId) AND lower(i.email) = lower(:search) ORDER BY i.createdAt"),
+          "SELECT i FROM InvitationEntity i WHERE i.organization in (SELECT o FROM ExtOrganizationEntity o WHERE o.realmId = :realmId) AND lower(i.email) = lower(:search) AND (i.expiresAt IS NULL OR i.expiresAt > :now) ORDER BY i.createdAt"),
+  @NamedQuery(
+      name = "getInvitationIdsByRealmAndEmail",
+      query =
+          "SELECT i.id FROM InvitationEntity i JOIN i.organization o WHERE o.realmId = :realmId AND i.email = :email AND (i.expiresAt IS NULL OR i.expiresAt > :now)"),
+  @NamedQuery(
+      name = "getInvitationEmailsByOrganization",
+      query =
+          "SELECT i.email FROM InvitationEntity i WHERE i.organization = :organization AND i.email IN :emails AND (i.expiresAt IS NULL OR i.expiresAt > :now)"),
+  @NamedQuery(
+      name = "getInvitationIdsByOrganizationAndEmails",
+      query =
+          "SELECT i.id FROM InvitationEntity i WHERE i.organization = :organization AND i.email IN :emails"),
+  @NamedQuery(
+      name = "getExpiredInvitationIdsByOrganizationAndEmails",
+      query =
+          "SELECT i.id FROM InvitationEntity i WHERE i.organization = :organization AND i.email IN :emails AND i.expiresAt <= :now"),
   @NamedQuery(
       name = "getInvitationCount",
-      query = "SELECT COUNT(t) FROM InvitationEntity t WHERE t.organization = :organization")
+      query = "SELECT COUNT(t) FROM InvitationEntity t WHERE t.organization = :organization"),
+  @NamedQuery(
+      name = "getInvitationRolesByRealmAndEmail",
+      query =
+          "SELECT i.id, o.id, r FROM InvitationEntity i JOIN i.organization o LEFT JOIN i.roles r WHERE o.realmId = :realmId AND i.email = :email AND i.id IN :ids AND (i.expiresAt IS NULL OR i.expiresAt > :now)"),
+  @NamedQuery(
+      name = "getInvitationIdsByRealmEmailAndIds",
+      query =
+          "SELECT i.id FROM InvitationEntity i JOIN i.organization o WHERE o.realmId = :realmId AND i.email = :email AND i.id IN :ids AND (i.expiresAt IS NULL OR i.expiresAt > :now)"),
+  @NamedQuery(
+      name = "getExpiredInvitations",
+      query =
+          "SELECT i.id, o.realmId, i.email FROM InvitationEntity i JOIN i.organization o WHERE i.expiresAt <= :now"),
+  @NamedQuery(
+      name = "removeInvitationsByOrganizationIds",
+      query = "DELETE FROM InvitationEntity t WHERE t.organization.id IN :ids"),
+  @NamedQuery(
+      name = "removeInvitationsByIds",
+      query = "DELETE FROM InvitationEntity t WHERE t.id IN :ids")
 })
 @Entity
 @Table(
@@ -54,6 +92,13 @@ public class InvitationEntity {
   @Column(name = "CREATED_AT")
   protected Date createdAt;
 
+  @Column(name = "EMAIL_STATUS")
+  protected String emailStatus;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "EXPIRES_AT")
+  protected Date expiresAt;
+
   @OneToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "ORGANIZATION_ID")
   private ExtOrganizationEntity organization;
@@ -62,6 +107,9 @@ public class InvitationEntity {
   protected Collection<InvitationAttributeEntity> attributes =
       new ArrayList<InvitationAttributeEntity>();
 
+  @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, mappedBy = "invitation")
+  protected Collection<InvitationEmailEntity> emails = new ArrayList<InvitationEmailEntity>();
+
   @ElementCollection
   @Column(name = "ROLE")
   @CollectionTable(
@@ -114,6 +162,22 @@ public class InvitationEntity {
     createdAt = at;
   }
 
+  public String getEmailStatus() {
+    return emailStatus;
+  }
+
+  public void setEmailStatus(String emailStatus) {
+    this.emailStatus = emailStatus;
+  }
+
+  public Date getExpiresAt() {
+    return expiresAt;
+  }
+
+  public void setExpiresAt(Date at) {
+    expiresAt = at;
+  }
+
   public ExtOrganizationEntity getOrganization() {
     return organization;
   }
@@ -138,6 +202,10 @@ public class InvitationEntity {
     setCollection(attributes, this.attributes);
   }
 
+  public Collection<InvitationEmailEntity> getEmails() {
+    return emails;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -25,6 +25,9 @@ import org.hibernate.annotations.Nationalized;
       name = "getOrganizationAttributesByName",
       query =
           "SELECT attr FROM OrganizationAttributeEntity attr WHERE attr.organization = :organization AND attr.name = :name"),
+  @NamedQuery(
+      name = "removeOrganizationAttributesByOrganizationIds",
+      query = "DELETE FROM OrganizationAttributeEntity attr WHERE attr.organization.id IN :ids"),
 })
 @Table(
     name = "ORGANIZATION_ATTRIBUTE",
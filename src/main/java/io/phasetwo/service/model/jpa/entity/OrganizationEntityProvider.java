@@ -15,7 +15,9 @@ public class OrganizationEntityProvider implements JpaEntityProvider {
     OrganizationRoleEntity.class,
     UserOrganizationRoleMappingEntity.class,
     InvitationEntity.class,
-    InvitationAttributeEntity.class
+    InvitationAttributeEntity.class,
+    InvitationEmailEntity.class,
+    OrganizationIdentityProviderEntity.class
   };
 
   @Override
@@ -0,0 +1,96 @@
+package io.phasetwo.service.model.jpa.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Organization that an identity provider belongs to. Mirrors the {@code home.idp.discovery.org}
+ * config of the identity provider, so that it can be looked up in either direction without reading
+ * the config of every identity provider in the realm.
+ */
+@NamedQueries({
+  @NamedQuery(
+      name = "getOrganizationIdentityProvidersByIdpId",
+      query =
+          "SELECT t FROM OrganizationIdentityProviderEntity t JOIN FETCH t.organization o WHERE t.idpId = :idpId AND o.realmId = :realmId"),
+  @NamedQuery(
+      name = "getOrganizationIdsByIdpId",
+      query =
+          "SELECT o.id FROM OrganizationIdentityProviderEntity t JOIN t.organization o WHERE t.idpId = :idpId AND o.realmId = :realmId"),
+  @NamedQuery(
+      name = "getUnlinkedIdentityProviderAliases",
+      query =
+          "SELECT p.alias FROM IdentityProviderEntity p JOIN p.config c WHERE p.realm.id = :realmId AND KEY(c) = :key AND NOT EXISTS (SELECT t FROM OrganizationIdentityProviderEntity t WHERE t.idpId = p.internalId)"),
+  @NamedQuery(
+      name = "removeOrganizationIdentityProvidersByOrganizationIds",
+      query = "DELETE FROM OrganizationIdentityProviderEntity t WHERE t.organization.id IN :ids")
+})
+@Entity
+@Table(
+    name = "ORGANIZATION_IDP",
+    uniqueConstraints = {@UniqueConstraint(columnNames = {"ORGANIZATION_ID", "IDP_ID"})})
+public class OrganizationIdentityProviderEntity {
+  @Id
+  @Column(name = "ID", length = 36)
+  @Access(AccessType.PROPERTY)
+  protected String id;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "ORGANIZATION_ID")
+  protected ExtOrganizationEntity organization;
+
+  @Column(name = "IDP_ID", length = 36, nullable = false)
+  protected String idpId;
+
+  @Column(name = "IDP_ALIAS", nullable = false)
+  protected String idpAlias;
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public ExtOrganizationEntity getOrganization() {
+    return organization;
+  }
+
+  public void setOrganization(ExtOrganizationEntity organization) {
+    this.organization = organization;
+  }
+
+  public String getIdpId() {
+    return idpId;
+  }
+
+  public void setIdpId(String idpId) {
+    this.idpId = idpId;
+  }
+
+  public String getIdpAlias() {
+    return idpAlias;
+  }
+
+  public void setIdpAlias(String idpAlias) {
+    this.idpAlias = idpAlias;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null) return false;
+    if (!(o instanceof OrganizationIdentityProviderEntity)) return false;
+
+    OrganizationIdentityProviderEntity that = (OrganizationIdentityProviderEntity) o;
+
+    if (!id.equals(that.id)) return false;
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+}
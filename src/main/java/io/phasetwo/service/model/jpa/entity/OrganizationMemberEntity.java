@@ -32,9 +32,41 @@ import java.util.Objects;
       name = "getOrganizationMemberByUserId",
       query =
           "SELECT m FROM OrganizationMemberEntity m WHERE m.organization = :organization AND m.userId = :id"),
+  @NamedQuery(
+      name = "getOrganizationMemberUserIds",
+      query =
+          "SELECT m.userId FROM OrganizationMemberEntity m WHERE m.organization = :organization AND m.userId IN :ids"),
+  @NamedQuery(
+      name = "getOrganizationIdsByMemberAndIds",
+      query =
+          "SELECT m.organization.id FROM OrganizationMemberEntity m WHERE m.userId = :userId AND m.organization.id IN :ids"),
+  @NamedQuery(
+      name = "getOrganizationMemberEmails",
+      query =
+          "SELECT u.email, u.username FROM OrganizationMemberEntity m, UserEntity u WHERE m.organization = :organization AND u.id = m.userId AND (u.email IN :emails OR u.username IN :emails)"),
+  @NamedQuery(
+      name = "getUserIdsByAttributeValue",
+      query =
+          "SELECT a.user.id FROM UserAttributeEntity a WHERE a.name = :name AND a.value = :value AND a.user.id IN :ids"),
+  @NamedQuery(
+      name = "removeOrganizationMembersByUserIds",
+      query =
+          "DELETE FROM OrganizationMemberEntity m WHERE m.organization = :organization AND m.userId IN :ids"),
+  @NamedQuery(
+      name = "removeOrganizationMembersByOrganizationIds",
+      query = "DELETE FROM OrganizationMemberEntity m WHERE m.organization.id IN :ids"),
   @NamedQuery(
       name = "getOrganizationMembershipsByUserId",
-      query = "SELECT m FROM OrganizationMemberEntity m WHERE m.userId = :id")
+      query =
+          "SELECT m FROM OrganizationMemberEntity m JOIN FETCH m.organization WHERE m.userId = :id"),
+  @NamedQuery(
+      name = "getOrganizationRolesByUserId",
+      query =
+          "SELECT o.id, o.name, r.name FROM OrganizationMemberEntity m JOIN m.organization o LEFT JOIN OrganizationRoleEntity r ON r.organization = o AND EXISTS (SELECT urm.id FROM UserOrganizationRoleMappingEntity urm WHERE urm.role = r AND urm.userId = m.userId) WHERE m.userId = :id AND o.realmId = :realmId ORDER BY o.name"),
+  @NamedQuery(
+      name = "getOrganizationAttributesByUserId",
+      query =
+          "SELECT o.id, a.name, a.value FROM OrganizationMemberEntity m JOIN m.organization o JOIN o.attributes a WHERE m.userId = :id AND o.realmId = :realmId AND a.name IN :names")
 })
 @Table(
     name = "ORGANIZATION_MEMBER",
@@ -16,10 +16,17 @@ import java.util.Objects;
       name = "getOrganizationRoleByName",
       query =
           "SELECT m FROM OrganizationRoleEntity m WHERE m.organization = :organization AND m.name = :name"),
+  @NamedQuery(
+      name = "getOrganizationRolesNotGrantedToUser",
+      query =
+          "SELECT m FROM OrganizationRoleEntity m WHERE m.organization.id IN :ids AND m.name IN :names AND NOT EXISTS (SELECT u.id FROM UserOrganizationRoleMappingEntity u WHERE u.role = m AND u.userId = :userId)"),
   @NamedQuery(
       name = "removeOrganizationRole",
       query =
-          "DELETE FROM OrganizationRoleEntity m WHERE m.organization = :organization AND m.name = :name")
+          "DELETE FROM OrganizationRoleEntity m WHERE m.organization = :organization AND m.name = :name"),
+  @NamedQuery(
+      name = "removeOrganizationRolesByOrganizationIds",
+      query = "DELETE FROM OrganizationRoleEntity m WHERE m.organization.id IN :ids")
 })
 @Table(
     name = "ORGANIZATION_ROLE",
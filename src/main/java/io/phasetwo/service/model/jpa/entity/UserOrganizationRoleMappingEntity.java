@@ -35,11 +35,23 @@ import java.util.Objects;
   @NamedQuery(
       name = "getMappingsByUser",
       query =
-          "SELECT m FROM UserOrganizationRoleMappingEntity m WHERE m.userId = :userId AND m.role.organization.id = :orgId"),
+          "SELECT m FROM UserOrganizationRoleMappingEntity m JOIN FETCH m.role r WHERE m.userId = :userId AND r.organization.id = :orgId"),
+  @NamedQuery(
+      name = "getMappingsByOrganizationAndUserIds",
+      query =
+          "SELECT m.role.id, m.userId FROM UserOrganizationRoleMappingEntity m WHERE m.role.organization = :organization AND m.userId IN :ids"),
   @NamedQuery(
       name = "deleteMappingsByRoleAndUser",
       query =
           "DELETE FROM UserOrganizationRoleMappingEntity m WHERE m.role = :role AND m.userId = :userId"),
+  @NamedQuery(
+      name = "deleteMappingsByOrganizationAndUserIds",
+      query =
+          "DELETE FROM UserOrganizationRoleMappingEntity m WHERE m.role IN (SELECT r FROM OrganizationRoleEntity r WHERE r.organization = :organization) AND m.userId IN :ids"),
+  @NamedQuery(
+      name = "deleteMappingsByOrganizationIds",
+      query =
+          "DELETE FROM UserOrganizationRoleMappingEntity m WHERE m.role IN (SELECT r FROM OrganizationRoleEntity r WHERE r.organization.id IN :ids)"),
   @NamedQuery(
       name = "deleteMappingsByUser",
       query = "DELETE FROM UserOrganizationRoleMappingEntity m WHERE m.userId = :userId")
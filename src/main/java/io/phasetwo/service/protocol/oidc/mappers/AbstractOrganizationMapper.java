@@ -1,8 +1,15 @@
 package io.phasetwo.service.protocol.oidc.mappers;
 
+import com.google.common.base.Strings;
+import io.phasetwo.service.model.OrganizationModel;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.models.ClientModel;
 import org.keycloak.models.ClientSessionContext;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.ProtocolMapperModel;
@@ -66,9 +73,114 @@ public abstract class AbstractOrganizationMapper extends AbstractOIDCProtocolMap
     return helpText;
   }
 
+  static final String COMPACT_CLAIM = "compact.claim";
+  static final String CLIENT_ATTRIBUTE = "client.attribute";
+
+  /** Adds the options of the mappers that can emit a claim for many organizations. */
+  static void addCompactConfig(List<ProviderConfigProperty> config) {
+    ProviderConfigProperty compact = new ProviderConfigProperty();
+    compact.setName(COMPACT_CLAIM);
+    compact.setLabel("Compact claim");
+    compact.setType(ProviderConfigProperty.BOOLEAN_TYPE);
+    compact.setDefaultValue("false");
+    compact.setHelpText(
+        "Store the values shared by organizations once, and group the organizations that have the same values. Use for users that are members of many organizations. Resource servers decode the claim with CompactOrganizationClaim.");
+    config.add(compact);
+
+    ProviderConfigProperty client = new ProviderConfigProperty();
+    client.setName(CLIENT_ATTRIBUTE);
+    client.setLabel("Client organization attribute");
+    client.setType(ProviderConfigProperty.STRING_TYPE);
+    client.setHelpText(
+        "Only include the organizations that have an attribute of this name containing the client id of the client the token is issued to. Leave empty to include all organizations of the user.");
+    config.add(client);
+  }
+
+  static final String INCLUDED_ATTRIBUTES = "included.organization.attributes";
+
+  /** Adds the option to map only some of the attributes of the organizations. */
+  static void addIncludedAttributesConfig(List<ProviderConfigProperty> config) {
+    ProviderConfigProperty property = new ProviderConfigProperty();
+    property.setName(INCLUDED_ATTRIBUTES);
+    property.setLabel("Included Organization Attributes");
+    property.setHelpText(
+        "Names of the organization attributes to map into the token claim, separated by comma. "
+            + "Leave empty to map all attributes.");
+    property.setType(ProviderConfigProperty.STRING_TYPE);
+    config.add(property);
+  }
+
+  /**
+   * Attributes of the organization to map into the token claim, as configured by {@link
+   * #INCLUDED_ATTRIBUTES}. With names configured, only those attributes are loaded, for all the
+   * organizations of the user at once.
+   */
+  static Map<String, List<String>> getIncludedAttributes(
+      KeycloakSession session,
+      RealmModel realm,
+      UserModel user,
+      OrganizationModel organization,
+      ProtocolMapperModel mapperModel) {
+    String included = mapperModel.getConfig().get(INCLUDED_ATTRIBUTES);
+    if (Strings.isNullOrEmpty(included) || included.isBlank()) {
+      return organization.getAttributes();
+    }
+    Set<String> names =
+        Arrays.stream(included.split(","))
+            .map(String::trim)
+            .filter(n -> !n.isEmpty())
+            .collect(Collectors.toSet());
+    return UserOrganizationData.get(session, realm, user)
+        .getAttributes(names)
+        .getOrDefault(organization.getId(), Map.of());
+  }
+
+  static boolean isCompact(ProtocolMapperModel mapperModel) {
+    return Boolean.parseBoolean(mapperModel.getConfig().get(COMPACT_CLAIM));
+  }
+
+  /**
+   * Ids of the organizations of the user that are relevant to the client the token is issued to, as
+   * configured by {@link #CLIENT_ATTRIBUTE}.
+   */
+  static Predicate<String> clientOrganizations(
+      KeycloakSession session, RealmModel realm, UserModel user, ProtocolMapperModel mapperModel) {
+    String attribute = mapperModel.getConfig().get(CLIENT_ATTRIBUTE);
+    ClientModel client = session.getContext().getClient();
+    if (Strings.isNullOrEmpty(attribute) || client == null) return id -> true;
+    Set<String> ids =
+        UserOrganizationData.get(session, realm, user)
+            .getAttributes(Set.of(attribute))
+            .entrySet()
+            .stream()
+            .filter(
+                e -> e.getValue().getOrDefault(attribute, List.of()).contains(client.getClientId()))
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toSet());
+    return ids::contains;
+  }
+
   protected abstract Map<String, Object> getOrganizationClaim(
       KeycloakSession session, RealmModel realm, UserModel user, ProtocolMapperModel mapperModel);
 
+  /**
+   * The claim of this mapper, computed once per session. The ID token, access token and userinfo
+   * response of a request get the same claim.
+   */
+  private Object getClaim(
+      KeycloakSession session, RealmModel realm, UserModel user, ProtocolMapperModel mapperModel) {
+    if (mapperModel.getId() == null) {
+      return getOrganizationClaim(session, realm, user, mapperModel);
+    }
+    String key = UserOrganizationData.attributeKey(realm, user) + ".claim." + mapperModel.getId();
+    Object claim = session.getAttribute(key);
+    if (claim == null) {
+      claim = getOrganizationClaim(session, realm, user, mapperModel);
+      if (claim != null) session.setAttribute(key, claim);
+    }
+    return claim;
+  }
+
   @Override
   protected void setClaim(
       IDToken token,
@@ -78,8 +190,7 @@ public abstract class AbstractOrganizationMapper extends AbstractOIDCProtocolMap
       ClientSessionContext clientSessionCtx) {
     log.debugf("adding org claim to idToken for %s", userSession.getUser().getUsername());
     Object claim =
-        getOrganizationClaim(
-            keycloakSession, userSession.getRealm(), userSession.getUser(), mappingModel);
+        getClaim(keycloakSession, userSession.getRealm(), userSession.getUser(), mappingModel);
     if (claim == null) return;
     OIDCAttributeMapperHelper.mapClaim(token, mappingModel, claim);
   }
@@ -92,10 +203,8 @@ public abstract class AbstractOrganizationMapper extends AbstractOIDCProtocolMap
       KeycloakSession keycloakSession,
       ClientSessionContext clientSessionCtx) {
     log.debugf("adding org claim to accessToken for %s", userSession.getUser().getUsername());
-    UserModel user = userSession.getUser();
     Object claim =
-        getOrganizationClaim(
-            keycloakSession, userSession.getRealm(), userSession.getUser(), mappingModel);
+        getClaim(keycloakSession, userSession.getRealm(), userSession.getUser(), mappingModel);
     if (claim == null) return;
     OIDCAttributeMapperHelper.mapClaim(accessTokenResponse, mappingModel, claim);
   }
@@ -3,6 +3,7 @@ package io.phasetwo.service.protocol.oidc.mappers;
 import com.google.auto.service.AutoService;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import io.phasetwo.service.model.UserOrganizationRoles;
 import io.phasetwo.service.util.ActiveOrganization;
 import java.util.Arrays;
 import java.util.List;
@@ -42,6 +43,7 @@ public class ActiveOrganizationMapper extends AbstractOrganizationMapper {
     property.setDefaultValue("id, name, role, attribute");
     configProperties.add(property);
 
+    addIncludedAttributesConfig(configProperties);
     OIDCAttributeMapperHelper.addAttributeConfig(configProperties, ActiveOrganizationMapper.class);
   }
 
@@ -57,8 +59,8 @@ public class ActiveOrganizationMapper extends AbstractOrganizationMapper {
   @Override
   protected Map<String, Object> getOrganizationClaim(
       KeycloakSession session, RealmModel realm, UserModel user, ProtocolMapperModel mappingModel) {
-    ActiveOrganization activeOrganizationUtil =
-        ActiveOrganization.fromContext(session, realm, user);
+    UserOrganizationData data = UserOrganizationData.get(session, realm, user);
+    ActiveOrganization activeOrganizationUtil = data.getActiveOrganization();
 
     if (!activeOrganizationUtil.isValid()) {
       return Maps.newHashMap();
@@ -77,11 +79,16 @@ public class ActiveOrganizationMapper extends AbstractOrganizationMapper {
     }
 
     if (properties.contains(ROLE)) {
-      claim.put(ROLE, activeOrganizationUtil.getUserActiveOrganizationRoles());
+      UserOrganizationRoles roles =
+          data.getRoles().get(activeOrganizationUtil.getOrganization().getId());
+      claim.put(ROLE, roles != null ? Lists.newArrayList(roles.getRoles()) : Lists.newArrayList());
     }
 
     if (properties.contains(ATTRIBUTE)) {
-      claim.put(ATTRIBUTE, activeOrganizationUtil.getOrganization().getAttributes());
+      claim.put(
+          ATTRIBUTE,
+          getIncludedAttributes(
+              session, realm, user, activeOrganizationUtil.getOrganization(), mappingModel));
     }
 
     log.debugf("created user %s claim %s", user.getUsername(), claim);
@@ -0,0 +1,166 @@
+package io.phasetwo.service.protocol.oidc.mappers;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Compact encoding of the organization claims, for users that are members of many organizations.
+ * The values of all organizations (role names, attribute name and value pairs) are stored once in a
+ * dictionary, and the organizations that have the same values are grouped under the bitset of their
+ * dictionary indexes, encoded as unpadded base64url:
+ *
+ * <pre>
+ * {
+ *   "v": 1,
+ *   "d": [ "view-organization", "manage-organization" ],
+ *   "g": {
+ *     "Aw": [ "5aeb9aeb-97a3-4deb-af9f-516615b59a2d", "e1d0bd35-4f0a-4b3f-b3bc-9b4a4d4f9d41" ],
+ *     "AQ": [ "0f4f4d0a-1b5c-4b2a-9a43-3f0c3a0e3c1d" ]
+ *   }
+ * }
+ * </pre>
+ *
+ * The size of the dictionary and of the groups depends on the distinct values, so only the
+ * organization ids grow with the number of memberships. Resource servers decode the claim with
+ * {@link #decodeRoles} or {@link #decodeAttributes}.
+ */
+public final class CompactOrganizationClaim {
+
+  public static final int VERSION = 1;
+
+  static final String VERSION_KEY = "v";
+  static final String DICTIONARY_KEY = "d";
+  static final String GROUPS_KEY = "g";
+
+  private CompactOrganizationClaim() {}
+
+  /** Encodes the values of each organization, keyed by organization id. */
+  public static Map<String, Object> encode(Map<String, ? extends Collection<?>> organizations) {
+    List<Object> dictionary = new ArrayList<>();
+    Map<Object, Integer> indexes = new HashMap<>();
+    Map<String, List<String>> groups = new LinkedHashMap<>();
+    organizations.forEach(
+        (id, values) -> {
+          BitSet bits = new BitSet();
+          for (Object value : values) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+              index = dictionary.size();
+              dictionary.add(value);
+              indexes.put(value, index);
+            }
+            bits.set(index);
+          }
+          groups.computeIfAbsent(encodeBits(bits), k -> new ArrayList<>()).add(id);
+        });
+    Map<String, Object> claim = new LinkedHashMap<>();
+    claim.put(VERSION_KEY, VERSION);
+    claim.put(DICTIONARY_KEY, dictionary);
+    claim.put(GROUPS_KEY, groups);
+    return claim;
+  }
+
+  /** Encodes the roles of each organization, keyed by organization id. */
+  public static Map<String, Object> encodeRoles(Map<String, ? extends Collection<String>> roles) {
+    return encode(roles);
+  }
+
+  /** Encodes the attributes of each organization, keyed by organization id. */
+  public static Map<String, Object> encodeAttributes(
+      Map<String, Map<String, List<String>>> attributes) {
+    Map<String, List<List<String>>> pairs = new LinkedHashMap<>();
+    attributes.forEach(
+        (id, attrs) -> {
+          List<List<String>> values = new ArrayList<>();
+          attrs.forEach((name, list) -> list.forEach(value -> values.add(List.of(name, value))));
+          pairs.put(id, values);
+        });
+    return encode(pairs);
+  }
+
+  /** Whether the claim is in the compact format, rather than keyed by organization id. */
+  public static boolean isCompact(Map<String, Object> claim) {
+    return claim.containsKey(VERSION_KEY) && claim.containsKey(GROUPS_KEY);
+  }
+
+  /**
+   * Decodes a claim made by {@link #encode}, as parsed from the token JSON.
+   *
+   * @throws IllegalArgumentException if the claim is not a compact organization claim of a
+   *     supported version
+   */
+  public static Map<String, List<Object>> decode(Map<String, Object> claim) {
+    Object version = claim.get(VERSION_KEY);
+    if (!(version instanceof Number) || ((Number) version).intValue() != VERSION) {
+      throw new IllegalArgumentException(
+          String.format("Unsupported compact organization claim version %s", version));
+    }
+    if (!(claim.get(DICTIONARY_KEY) instanceof List) || !(claim.get(GROUPS_KEY) instanceof Map)) {
+      throw new IllegalArgumentException("Malformed compact organization claim");
+    }
+    List<?> dictionary = (List<?>) claim.get(DICTIONARY_KEY);
+    Map<?, ?> groups = (Map<?, ?>) claim.get(GROUPS_KEY);
+    Map<String, List<Object>> organizations = new LinkedHashMap<>();
+    groups.forEach(
+        (bits, ids) -> {
+          BitSet set = decodeBits((String) bits);
+          if (set.length() > dictionary.size()) {
+            throw new IllegalArgumentException("Malformed compact organization claim");
+          }
+          List<Object> values = set.stream().mapToObj(dictionary::get).collect(Collectors.toList());
+          for (Object id : (List<?>) ids) {
+            organizations.put((String) id, values);
+          }
+        });
+    return organizations;
+  }
+
+  /** Role names by organization id, from a compact {@link OrganizationRoleMapper} claim. */
+  public static Map<String, Set<String>> decodeRoles(Map<String, Object> claim) {
+    Map<String, Set<String>> roles = new LinkedHashMap<>();
+    decode(claim)
+        .forEach(
+            (id, values) ->
+                roles.put(
+                    id,
+                    values.stream()
+                        .map(String.class::cast)
+                        .collect(Collectors.toCollection(LinkedHashSet::new))));
+    return roles;
+  }
+
+  /** Attributes by organization id, from a compact {@link OrganizationAttributeMapper} claim. */
+  public static Map<String, Map<String, List<String>>> decodeAttributes(Map<String, Object> claim) {
+    Map<String, Map<String, List<String>>> attributes = new LinkedHashMap<>();
+    decode(claim)
+        .forEach(
+            (id, values) -> {
+              Map<String, List<String>> attrs = new LinkedHashMap<>();
+              for (Object value : values) {
+                List<?> pair = (List<?>) value;
+                attrs
+                    .computeIfAbsent((String) pair.get(0), k -> new ArrayList<>())
+                    .add((String) pair.get(1));
+              }
+              attributes.put(id, attrs);
+            });
+    return attributes;
+  }
+
+  private static String encodeBits(BitSet bits) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray());
+  }
+
+  private static BitSet decodeBits(String bits) {
+    return BitSet.valueOf(Base64.getUrlDecoder().decode(bits));
+  }
+}
@@ -3,9 +3,11 @@ package io.phasetwo.service.protocol.oidc.mappers;
 import com.google.auto.service.AutoService;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.OrganizationModel;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.ProtocolMapperModel;
@@ -26,6 +28,8 @@ public class OrganizationAttributeMapper extends AbstractOrganizationMapper {
   static {
     OIDCAttributeMapperHelper.addAttributeConfig(
         configProperties, OrganizationAttributeMapper.class);
+    addIncludedAttributesConfig(configProperties);
+    addCompactConfig(configProperties);
   }
 
   public OrganizationAttributeMapper() {
@@ -40,16 +44,29 @@ public class OrganizationAttributeMapper extends AbstractOrganizationMapper {
   @Override
   protected Map<String, Object> getOrganizationClaim(
       KeycloakSession session, RealmModel realm, UserModel user, ProtocolMapperModel mappingModel) {
-    OrganizationProvider orgs = session.getProvider(OrganizationProvider.class);
+    Predicate<String> included = clientOrganizations(session, realm, user, mappingModel);
+    List<OrganizationModel> organizations =
+        UserOrganizationData.get(session, realm, user).getOrganizations();
+    if (isCompact(mappingModel)) {
+      Map<String, Map<String, List<String>>> compact = new LinkedHashMap<>();
+      organizations.forEach(
+          o -> {
+            if (included.test(o.getId()))
+              compact.put(o.getId(), getIncludedAttributes(session, realm, user, o, mappingModel));
+          });
+      Map<String, Object> claim = CompactOrganizationClaim.encodeAttributes(compact);
+      log.debugf("created user %s compact claim %s", user.getUsername(), claim);
+      return claim;
+    }
     Map<String, Object> claim = Maps.newHashMap();
-    orgs.getUserOrganizationsStream(realm, user)
-        .forEach(
-            o -> {
-              Map<String, Object> org = Maps.newHashMap();
-              org.put("name", o.getName());
-              org.put("attributes", o.getAttributes());
-              claim.put(o.getId(), org);
-            });
+    organizations.forEach(
+        o -> {
+          if (!included.test(o.getId())) return;
+          Map<String, Object> org = Maps.newHashMap();
+          org.put("name", o.getName());
+          org.put("attributes", getIncludedAttributes(session, realm, user, o, mappingModel));
+          claim.put(o.getId(), org);
+        });
     log.debugf("created user %s claim %s", user.getUsername(), claim);
     return claim;
   }
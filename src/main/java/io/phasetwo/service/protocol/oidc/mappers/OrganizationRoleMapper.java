@@ -3,9 +3,11 @@ package io.phasetwo.service.protocol.oidc.mappers;
 import com.google.auto.service.AutoService;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.UserOrganizationRoles;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.ProtocolMapperModel;
@@ -25,6 +27,7 @@ public class OrganizationRoleMapper extends AbstractOrganizationMapper {
 
   static {
     OIDCAttributeMapperHelper.addAttributeConfig(configProperties, OrganizationRoleMapper.class);
+    addCompactConfig(configProperties);
   }
 
   public OrganizationRoleMapper() {
@@ -48,22 +51,28 @@ public class OrganizationRoleMapper extends AbstractOrganizationMapper {
   @Override
   protected Map<String, Object> getOrganizationClaim(
       KeycloakSession session, RealmModel realm, UserModel user, ProtocolMapperModel mappingModel) {
-    OrganizationProvider orgs = session.getProvider(OrganizationProvider.class);
+    Predicate<String> included = clientOrganizations(session, realm, user, mappingModel);
+    Map<String, UserOrganizationRoles> roles =
+        UserOrganizationData.get(session, realm, user).getRoles();
+    if (isCompact(mappingModel)) {
+      Map<String, List<String>> compact = new LinkedHashMap<>();
+      roles.forEach(
+          (id, o) -> {
+            if (included.test(id)) compact.put(id, o.getRoles());
+          });
+      Map<String, Object> claim = CompactOrganizationClaim.encodeRoles(compact);
+      log.debugf("created user %s compact claim %s", user.getUsername(), claim);
+      return claim;
+    }
     Map<String, Object> claim = Maps.newHashMap();
-    orgs.getUserOrganizationsStream(realm, user)
-        .forEach(
-            o -> {
-              List<String> roles = Lists.newArrayList();
-              o.getRolesStream()
-                  .forEach(
-                      r -> {
-                        if (r.hasRole(user)) roles.add(r.getName());
-                      });
-              Map<String, Object> org = Maps.newHashMap();
-              org.put("name", o.getName());
-              org.put("roles", roles);
-              claim.put(o.getId(), org);
-            });
+    roles.forEach(
+        (id, o) -> {
+          if (!included.test(id)) return;
+          Map<String, Object> org = Maps.newHashMap();
+          org.put("name", o.getOrganizationName());
+          org.put("roles", o.getRoles());
+          claim.put(id, org);
+        });
     log.debugf("created user %s claim %s", user.getUsername(), claim);
     return claim;
   }
@@ -3,7 +3,6 @@ package io.phasetwo.service.protocol.oidc.mappers;
 import com.google.auto.service.AutoService;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import io.phasetwo.service.model.OrganizationProvider;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.jbosslog.JBossLog;
@@ -40,9 +39,9 @@ public class OrganizationSpecificAttributeMapper extends AbstractOrganizationMap
   @Override
   protected Map<String, Object> getOrganizationClaim(
       KeycloakSession session, RealmModel realm, UserModel user, ProtocolMapperModel mappingModel) {
-    OrganizationProvider orgs = session.getProvider(OrganizationProvider.class);
     Map<String, Object> organizationClaim = Maps.newHashMap();
-    orgs.getUserOrganizationsStream(realm, user)
+    UserOrganizationData.get(session, realm, user)
+        .getOrganizations()
         .forEach(
             o -> {
               // add to token only when value is available
@@ -0,0 +1,89 @@
+package io.phasetwo.service.protocol.oidc.mappers;
+
+import io.phasetwo.service.model.OrganizationModel;
+import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.UserOrganizationRoles;
+import io.phasetwo.service.util.ActiveOrganization;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/**
+ * Organization data of a user, loaded at most once per {@link KeycloakSession} and shared by all
+ * organization mappers. The ID token, access token and userinfo response of a request are mapped in
+ * the same session, so they all read the same data.
+ */
+class UserOrganizationData {
+
+  private final KeycloakSession session;
+  private final RealmModel realm;
+  private final UserModel user;
+  private List<OrganizationModel> organizations;
+  private Map<String, UserOrganizationRoles> roles;
+  private ActiveOrganization activeOrganization;
+  private final Map<Set<String>, Map<String, Map<String, List<String>>>> attributes =
+      new HashMap<>();
+
+  private UserOrganizationData(KeycloakSession session, RealmModel realm, UserModel user) {
+    this.session = session;
+    this.realm = realm;
+    this.user = user;
+  }
+
+  static UserOrganizationData get(KeycloakSession session, RealmModel realm, UserModel user) {
+    String key = attributeKey(realm, user);
+    UserOrganizationData data = session.getAttribute(key, UserOrganizationData.class);
+    if (data == null) {
+      data = new UserOrganizationData(session, realm, user);
+      session.setAttribute(key, data);
+    }
+    return data;
+  }
+
+  /** Session attribute prefix for data computed from the organizations of the user. */
+  static String attributeKey(RealmModel realm, UserModel user) {
+    return UserOrganizationData.class.getName() + "." + realm.getId() + "." + user.getId();
+  }
+
+  List<OrganizationModel> getOrganizations() {
+    if (organizations == null) {
+      organizations =
+          session
+              .getProvider(OrganizationProvider.class)
+              .getUserOrganizationsStream(realm, user)
+              .collect(Collectors.toList());
+    }
+    return organizations;
+  }
+
+  /** Organizations of the user, keyed by id, with the names of the roles granted in each. */
+  Map<String, UserOrganizationRoles> getRoles() {
+    if (roles == null) {
+      roles = session.getProvider(OrganizationProvider.class).getUserOrganizationRoles(realm, user);
+    }
+    return roles;
+  }
+
+  /** Attributes with the given names of the organizations of the user, keyed by id. */
+  Map<String, Map<String, List<String>>> getAttributes(Set<String> names) {
+    return attributes.computeIfAbsent(
+        names,
+        k ->
+            session
+                .getProvider(OrganizationProvider.class)
+                .getUserOrganizationAttributes(realm, user, k));
+  }
+
+  ActiveOrganization getActiveOrganization() {
+    if (activeOrganization == null) {
+      activeOrganization =
+          ActiveOrganization.fromOrganizations(session, realm, user, getOrganizations());
+    }
+    return activeOrganization;
+  }
+}
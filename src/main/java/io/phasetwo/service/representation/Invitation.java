@@ -20,6 +20,8 @@ public class Invitation {
   private @Valid String inviterId = null;
   private @Valid String invitationUrl = null;
   private @Valid String organizationId = null;
+  private @Valid String emailStatus = null;
+  private @Valid String expiresAt = null;
   private @Valid List<String> teamIds = Lists.newArrayList();
   private @Valid List<String> roles = Lists.newArrayList();
   private @Valid Map<String, List<String>> attributes = Maps.newHashMap();
@@ -124,6 +126,43 @@ public class Invitation {
     this.organizationId = organizationId;
   }
 
+  public Invitation emailStatus(String emailStatus) {
+    this.emailStatus = emailStatus;
+    return this;
+  }
+
+  @JsonProperty("emailStatus")
+  public String getEmailStatus() {
+    return emailStatus;
+  }
+
+  public void setEmailStatus(String emailStatus) {
+    this.emailStatus = emailStatus;
+  }
+
+  /** ISO 8601 format: YYYY-MM-DDTHH:MM:SSZ, or null if the invitation doesn't expire */
+  public Invitation expiresAt(Date expiresAt) {
+    setExpiresAt(expiresAt);
+    return this;
+  }
+
+  @JsonProperty("expiresAt")
+  public String getExpiresAt() {
+    return expiresAt;
+  }
+
+  public void setExpiresAt(String expiresAt) {
+    this.expiresAt = expiresAt;
+  }
+
+  @JsonIgnore
+  public void setExpiresAt(Date expiresAt) {
+    TimeZone tz = TimeZone.getTimeZone("UTC");
+    DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm'Z'");
+    df.setTimeZone(tz);
+    this.expiresAt = expiresAt == null ? null : df.format(expiresAt);
+  }
+
   public Invitation teamId(String teamId) {
     if (teamIds == null) {
       teamIds = Lists.newArrayList();
@@ -205,6 +244,8 @@ public class Invitation {
         && Objects.equals(inviterId, invitation.inviterId)
         && Objects.equals(organizationId, invitation.organizationId)
         && Objects.equals(invitationUrl, invitation.invitationUrl)
+        && Objects.equals(emailStatus, invitation.emailStatus)
+        && Objects.equals(expiresAt, invitation.expiresAt)
         && Objects.equals(roles, invitation.roles)
         && Objects.equals(teamIds, invitation.teamIds)
         && Objects.equals(attributes, invitation.attributes);
@@ -213,7 +254,16 @@ public class Invitation {
   @Override
   public int hashCode() {
     return Objects.hash(
-        id, email, createdAt, inviterId, organizationId, invitationUrl, roles, attributes);
+        id,
+        email,
+        createdAt,
+        inviterId,
+        organizationId,
+        invitationUrl,
+        emailStatus,
+        expiresAt,
+        roles,
+        attributes);
   }
 
   @Override
@@ -227,6 +277,8 @@ public class Invitation {
     sb.append("    inviterId: ").append(toIndentedString(inviterId)).append("\n");
     sb.append("    organizationId: ").append(toIndentedString(organizationId)).append("\n");
     sb.append("    invitationUrl: ").append(toIndentedString(invitationUrl)).append("\n");
+    sb.append("    emailStatus: ").append(toIndentedString(emailStatus)).append("\n");
+    sb.append("    expiresAt: ").append(toIndentedString(expiresAt)).append("\n");
     sb.append("    teamIds: ").append(toIndentedString(teamIds)).append("\n");
     sb.append("    roles: ").append(toIndentedString(roles)).append("\n");
     sb.append("    attributes: ").append(toIndentedString(attributes)).append("\n");
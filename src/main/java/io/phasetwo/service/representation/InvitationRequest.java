@@ -16,6 +16,7 @@ public class InvitationRequest {
   private @Valid List<String> roles = Lists.newArrayList();
   private String redirectUri = null;
   private @Valid Map<String, List<String>> attributes = Maps.newHashMap();
+  private Integer expiresIn = null;
 
   public InvitationRequest email(String email) {
     this.email = email;
@@ -116,6 +117,21 @@ public class InvitationRequest {
     this.attributes = attributes;
   }
 
+  /** Seconds after which the invitation expires, or 0 if it doesn't. Defaults to the realm's. */
+  public InvitationRequest expiresIn(Integer expiresIn) {
+    this.expiresIn = expiresIn;
+    return this;
+  }
+
+  @JsonProperty("expiresIn")
+  public Integer getExpiresIn() {
+    return expiresIn;
+  }
+
+  public void setExpiresIn(Integer expiresIn) {
+    this.expiresIn = expiresIn;
+  }
+
   @Override
   public boolean equals(java.lang.Object o) {
     if (this == o) {
@@ -130,12 +146,13 @@ public class InvitationRequest {
         && Objects.equals(send, invitationRequest.send)
         && Objects.equals(redirectUri, invitationRequest.redirectUri)
         && Objects.equals(roles, invitationRequest.roles)
-        && Objects.equals(roles, invitationRequest.attributes);
+        && Objects.equals(roles, invitationRequest.attributes)
+        && Objects.equals(expiresIn, invitationRequest.expiresIn);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(email, inviterId, send, redirectUri, roles, attributes);
+    return Objects.hash(email, inviterId, send, redirectUri, roles, attributes, expiresIn);
   }
 
   @Override
@@ -149,6 +166,7 @@ public class InvitationRequest {
     sb.append("    redirectUri: ").append(toIndentedString(redirectUri)).append("\n");
     sb.append("    roles: ").append(toIndentedString(roles)).append("\n");
     sb.append("    attributes: ").append(toIndentedString(attributes)).append("\n");
+    sb.append("    expiresIn: ").append(toIndentedString(expiresIn)).append("\n");
     sb.append("}");
     return sb.toString();
   }
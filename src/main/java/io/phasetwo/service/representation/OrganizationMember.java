@@ -0,0 +1,81 @@
+package io.phasetwo.service.representation;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.Lists;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import java.util.List;
+import java.util.Objects;
+
+public class OrganizationMember {
+
+  private @Valid String id = null;
+  private @Valid List<String> roles = Lists.newArrayList();
+
+  public OrganizationMember id(String id) {
+    this.id = id;
+    return this;
+  }
+
+  @JsonProperty("id")
+  @NotNull
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public OrganizationMember roles(List<String> roles) {
+    this.roles = roles;
+    return this;
+  }
+
+  @JsonProperty("roles")
+  public List<String> getRoles() {
+    return roles;
+  }
+
+  public void setRoles(List<String> roles) {
+    this.roles = roles;
+  }
+
+  @Override
+  public boolean equals(java.lang.Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    OrganizationMember organizationMember = (OrganizationMember) o;
+    return Objects.equals(id, organizationMember.id)
+        && Objects.equals(roles, organizationMember.roles);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, roles);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("class OrganizationMember {\n");
+    sb.append("    id: ").append(toIndentedString(id)).append("\n");
+    sb.append("    roles: ").append(toIndentedString(roles)).append("\n");
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /**
+   * Convert the given object to string with each line indented by 4 spaces (except the first line).
+   */
+  private String toIndentedString(java.lang.Object o) {
+    if (o == null) {
+      return "null";
+    }
+    return o.toString().replace("\n", "\n    ");
+  }
+}
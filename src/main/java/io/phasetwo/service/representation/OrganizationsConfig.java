@@ -1,5 +1,7 @@
 package io.phasetwo.service.representation;
 
+import static io.phasetwo.service.Orgs.ORG_CONFIG_TOKEN_ROLES_MAX_AGE_DEFAULT;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class OrganizationsConfig {
@@ -9,6 +11,16 @@ public class OrganizationsConfig {
   @JsonProperty("sharedIdpsEnabled")
   private boolean sharedIdps = false;
 
+  @JsonProperty("tokenRolesEnabled")
+  private boolean tokenRoles = false;
+
+  @JsonProperty("tokenRolesMaxAge")
+  private int tokenRolesMaxAge = ORG_CONFIG_TOKEN_ROLES_MAX_AGE_DEFAULT;
+
+  /** Seconds after which new invitations expire, or 0 if they don't. */
+  @JsonProperty("invitationTtl")
+  private int invitationTtl = 0;
+
   public boolean isCreateAdminUser() {
     return createAdminUser;
   }
@@ -24,4 +36,28 @@ public class OrganizationsConfig {
   public void setSharedIdps(boolean sharedIdps) {
     this.sharedIdps = sharedIdps;
   }
+
+  public boolean isTokenRoles() {
+    return tokenRoles;
+  }
+
+  public void setTokenRoles(boolean tokenRoles) {
+    this.tokenRoles = tokenRoles;
+  }
+
+  public int getTokenRolesMaxAge() {
+    return tokenRolesMaxAge;
+  }
+
+  public void setTokenRolesMaxAge(int tokenRolesMaxAge) {
+    this.tokenRolesMaxAge = tokenRolesMaxAge;
+  }
+
+  public int getInvitationTtl() {
+    return invitationTtl;
+  }
+
+  public void setInvitationTtl(int invitationTtl) {
+    this.invitationTtl = invitationTtl;
+  }
 }
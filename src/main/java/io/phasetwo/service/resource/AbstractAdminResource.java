@@ -8,6 +8,8 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.Config;
 import org.keycloak.common.ClientConnection;
@@ -31,6 +33,11 @@ import org.keycloak.services.resources.admin.permissions.AdminPermissionEvaluato
 @JBossLog
 public abstract class AbstractAdminResource<T extends AdminAuth> {
 
+  /** Response header with the cursor of the next page, absent on the last page. */
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  private static final Map<Class<?>, Constructor<?>> authConstructors = new ConcurrentHashMap<>();
+
   protected final ClientConnection connection;
   protected final HttpHeaders headers;
   protected final KeycloakSession session;
@@ -74,7 +81,7 @@ public abstract class AbstractAdminResource<T extends AdminAuth> {
     Cors.add(request)
         .allowedOrigins(auth.getToken())
         .allowedMethods(CorsResource.METHODS)
-        .exposedHeaders("Location")
+        .exposedHeaders("Location", NEXT_CURSOR_HEADER)
         .auth()
         .build(response);
   }
@@ -88,6 +95,64 @@ public abstract class AbstractAdminResource<T extends AdminAuth> {
       throw new NotAuthorizedException("Bearer");
     }
 
+    AccessToken token = getVerifiedToken(tokenString);
+    if (token == null) {
+      token = verifyToken(tokenString);
+    }
+
+    RealmManager realmManager = new RealmManager(session);
+    ClientModel client =
+        adminRealm.getName().equals(Config.getAdminRealm())
+            ? this.realm.getMasterAdminClient()
+            : this.realm.getClientByClientId(realmManager.getRealmAdminClientId(this.realm));
+
+    if (client == null) {
+      throw new NotFoundException("Could not find client for authorization");
+    }
+
+    try {
+      auth = (T) getAuthConstructor(getClass()).newInstance(this.realm, token, user, client);
+    } catch (NoSuchMethodException
+        | SecurityException
+        | InstantiationException
+        | IllegalAccessException
+        | IllegalArgumentException
+        | InvocationTargetException ex) {
+      log.error("Failed to instantiate AdminAuth instance", ex);
+    }
+  }
+
+  /**
+   * The token, if it was verified on this node in the last {@link
+   * VerifiedTokenCache#MAX_AGE_SECONDS} seconds and hasn't been evicted since. Sets the admin realm
+   * and the user.
+   */
+  private AccessToken getVerifiedToken(String tokenString) {
+    VerifiedTokenCache.Entry entry = VerifiedTokenCache.get(tokenString);
+    if (entry == null) return null;
+    RealmModel tokenRealm = session.realms().getRealm(entry.getRealmId());
+    UserModel tokenUser =
+        tokenRealm == null || !isTokenCacheEnabled(tokenRealm)
+            ? null
+            : session.users().getUserById(tokenRealm, entry.getUserId());
+    if (tokenUser == null) {
+      VerifiedTokenCache.remove(tokenString);
+      return null;
+    }
+    adminRealm = tokenRealm;
+    user = tokenUser;
+    return entry.getToken();
+  }
+
+  /** Whether the realm has the event listener that evicts the tokens it invalidates. */
+  private static boolean isTokenCacheEnabled(RealmModel realm) {
+    return realm
+        .getEventsListenersStream()
+        .anyMatch(VerifiedTokenCacheEvictorFactory.PROVIDER_ID::equals);
+  }
+
+  /** Verifies the token with its realm, and sets the admin realm and the user. */
+  private AccessToken verifyToken(String tokenString) {
     AccessToken token;
 
     try {
@@ -120,18 +185,20 @@ public abstract class AbstractAdminResource<T extends AdminAuth> {
     }
     session.getContext().setRealm(this.realm);
 
-    ClientModel client =
-        adminRealm.getName().equals(Config.getAdminRealm())
-            ? this.realm.getMasterAdminClient()
-            : this.realm.getClientByClientId(realmManager.getRealmAdminClientId(this.realm));
-
-    if (client == null) {
-      throw new NotFoundException("Could not find client for authorization");
+    user = authResult.getUser();
+    if (isTokenCacheEnabled(adminRealm)) {
+      VerifiedTokenCache.put(tokenString, adminRealm.getId(), user.getId(), authResult.getToken());
     }
+    return authResult.getToken();
+  }
 
-    user = authResult.getUser();
+  /** Constructor of the AdminAuth type argument of the resource class, resolved once per class. */
+  private static Constructor<?> getAuthConstructor(Class<?> resourceClass)
+      throws NoSuchMethodException {
+    Constructor<?> constructor = authConstructors.get(resourceClass);
+    if (constructor != null) return constructor;
 
-    Type genericSuperClass = getClass().getGenericSuperclass();
+    Type genericSuperClass = resourceClass.getGenericSuperclass();
     ParameterizedType parametrizedType = null;
     while (parametrizedType == null) {
       if ((genericSuperClass instanceof ParameterizedType)) {
@@ -141,21 +208,12 @@ public abstract class AbstractAdminResource<T extends AdminAuth> {
       }
     }
 
-    Class clazz = (Class) parametrizedType.getActualTypeArguments()[0];
-
-    try {
-      Constructor<? extends Type> constructor =
-          clazz.getConstructor(
-              RealmModel.class, AccessToken.class, UserModel.class, ClientModel.class);
-      auth = (T) constructor.newInstance(new Object[] {this.realm, token, user, client});
-    } catch (NoSuchMethodException
-        | SecurityException
-        | InstantiationException
-        | IllegalAccessException
-        | IllegalArgumentException
-        | InvocationTargetException ex) {
-      log.error("Failed to instantiate AdminAuth instance", ex);
-    }
+    Class<?> clazz = (Class<?>) parametrizedType.getActualTypeArguments()[0];
+    constructor =
+        clazz.getConstructor(
+            RealmModel.class, AccessToken.class, UserModel.class, ClientModel.class);
+    authConstructors.put(resourceClass, constructor);
+    return constructor;
   }
 
   private void setupEvents() {
@@ -65,6 +65,8 @@ public class Converters {
             .createdAt(e.getCreatedAt())
             .inviterId(e.getInviterId())
             .organizationId(e.getOrganization().getId())
+            .emailStatus(e.getEmailStatus())
+            .expiresAt(e.getExpiresAt())
             .roles(Lists.newArrayList(e.getRoles()));
     Map<String, List<String>> attr = Maps.newHashMap();
     e.getAttributes()
@@ -88,6 +90,8 @@ public class Converters {
             .inviterId(e.getInviter().getId())
             .invitationUrl(e.getUrl())
             .organizationId(e.getOrganization().getId())
+            .emailStatus(e.getEmailStatus() != null ? e.getEmailStatus().name() : null)
+            .expiresAt(e.getExpiresAt())
             .roles(Lists.newArrayList(e.getRoles()));
     i.setAttributes(Maps.newHashMap(e.getAttributes()));
     return i;
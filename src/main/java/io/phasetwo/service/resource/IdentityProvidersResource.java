@@ -58,10 +58,9 @@ public class IdentityProvidersResource extends OrganizationAdminResource {
   @GET
   @Produces(MediaType.APPLICATION_JSON)
   public Stream<IdentityProviderRepresentation> getIdentityProviders() {
-    return realm
+    return organization
         .getIdentityProvidersStream()
         .filter(provider -> canViewIdp())
-        .filter(this::idpInOrg)
         .map(
             provider ->
                 StripSecretsUtils.stripSecrets(
@@ -106,9 +105,8 @@ public class IdentityProvidersResource extends OrganizationAdminResource {
       boolean disable,
       String orgId) {
     if (representation.isEnabled()) {
-      realm
+      organization
           .getIdentityProvidersStream()
-          .filter(provider -> idpInOrg(provider))
           .forEach(
               provider -> {
                 if (disable) provider.setEnabled(false);
@@ -156,6 +154,9 @@ public class IdentityProvidersResource extends OrganizationAdminResource {
 
     Response resp = getIdpResource().create(representation);
     if (resp.getStatus() == Response.Status.CREATED.getStatusCode()) {
+      // creating an identity provider doesn't publish an event
+      IdentityProviderModel idp = realm.getIdentityProviderByAlias(representation.getAlias());
+      if (idp != null) orgs.syncIdentityProvider(realm, idp);
       return createdResponse(representation);
     } else {
       return resp;
@@ -222,12 +223,6 @@ public class IdentityProvidersResource extends OrganizationAdminResource {
     return getIdpResource().importFrom();
   }
 
-  private boolean idpInOrg(IdentityProviderModel provider) {
-    var orgs =
-        IdentityProviders.getAttributeMultivalued(provider.getConfig(), ORG_OWNER_CONFIG_KEY);
-    return orgs.contains(organization.getId());
-  }
-
   private org.keycloak.services.resources.admin.IdentityProvidersResource getIdpResource() {
     OrganizationAdminPermissionEvaluator authEval =
         new OrganizationAdminPermissionEvaluator(organization, auth, permissions);
@@ -4,10 +4,9 @@ import static io.phasetwo.service.resource.Converters.*;
 import static io.phasetwo.service.resource.OrganizationResourceType.*;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Maps;
 import io.phasetwo.service.model.InvitationModel;
 import io.phasetwo.service.model.OrganizationModel;
+import io.phasetwo.service.representation.BulkResponseItem;
 import io.phasetwo.service.representation.Invitation;
 import io.phasetwo.service.representation.InvitationRequest;
 import jakarta.mail.internet.AddressException;
@@ -16,24 +15,24 @@ import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.jbosslog.JBossLog;
-import org.keycloak.email.EmailTemplateProvider;
-import org.keycloak.email.freemarker.FreeMarkerEmailTemplateProvider;
-import org.keycloak.email.freemarker.beans.ProfileBean;
+import org.keycloak.common.util.Time;
 import org.keycloak.events.admin.OperationType;
 import org.keycloak.models.Constants;
-import org.keycloak.models.KeycloakSession;
-import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
 import org.keycloak.models.utils.KeycloakModelUtils;
 
@@ -92,6 +91,7 @@ public class InvitationsResource extends OrganizationAdminResource {
 
       InvitationModel i = organization.addInvitation(email, inviter);
       i.setUrl(link);
+      setExpiresIn(i, invitation);
       if (invitation.getRoles() != null) i.setRoles(invitation.getRoles());
       if (invitation.getAttributes() != null && invitation.getAttributes().size() > 0) {
         invitation
@@ -102,6 +102,7 @@ public class InvitationsResource extends OrganizationAdminResource {
                   i.setAttribute(e.getKey(), e.getValue());
                 });
       }
+      if (invitation.isSend()) i.queueEmail(inviter);
       Invitation o = convertInvitationModelToInvitation(i);
       log.debugf("Made invitation %s", o);
 
@@ -114,95 +115,136 @@ public class InvitationsResource extends OrganizationAdminResource {
 
       URI location = session.getContext().getUri().getAbsolutePathBuilder().path(o.getId()).build();
 
-      if (invitation.isSend()) {
-        try {
-          sendInvitationEmail(email, session, realm, inviter, link, o.getAttributes());
-        } catch (Exception e) {
-          log.warn("Unable to send invitation email", e);
-        }
-      }
-
       return Response.created(location).build();
     } catch (Exception e) {
       throw new InternalServerErrorException(e);
     }
   }
 
-  boolean canSetRoles(Collection<String> roles) {
-    if (roles == null || roles.isEmpty()) return true;
+  @PUT
+  @Path("")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response createInvitations(List<InvitationRequest> representation) {
+    log.debugf(
+        "Create %d invitations for %s %s",
+        representation.size(), realm.getName(), organization.getId());
+    canManage();
+
     Set<String> orgRoles =
         organization.getRolesStream().map(r -> r.getName()).collect(Collectors.toSet());
-    for (String role : roles) {
-      if (!orgRoles.contains(role)) {
-        return false;
-      }
-    }
-    return true;
+    Map<String, UserModel> inviters = new HashMap<>();
+    Map<String, InvitationRequest> requests = new LinkedHashMap<>();
+    Map<String, BulkResponseItem> items = new HashMap<>();
+    List<BulkResponseItem> responseItems = new ArrayList<>();
+
+    // validate the requests as a set
+    representation.forEach(
+        invitation -> {
+          BulkResponseItem item =
+              new BulkResponseItem()
+                  .status(Response.Status.CREATED.getStatusCode())
+                  .item(invitation);
+          responseItems.add(item);
+          try {
+            String email = invitation.getEmail();
+            if (email == null || !isValidEmail(email)) {
+              throw new BadRequestException("Invalid email: " + email);
+            }
+            if (!canSetRoles(invitation.getRoles(), orgRoles)) {
+              throw new BadRequestException("Unknown role in list.");
+            }
+            email = email.toLowerCase();
+            if (requests.containsKey(email)) {
+              throw new ClientErrorException(
+                  String.format("Duplicate invitation for %s.", email), Response.Status.CONFLICT);
+            }
+            String inviterId = Strings.emptyToNull(invitation.getInviterId());
+            if (inviterId != null
+                && inviters.computeIfAbsent(inviterId, id -> session.users().getUserById(realm, id))
+                    == null) {
+              throw new BadRequestException(String.format("Inviter %s not found", inviterId));
+            }
+            requests.put(email, invitation);
+            items.put(email, item);
+          } catch (WebApplicationException ex) {
+            item.setStatus(ex.getResponse().getStatus());
+            item.setError(ex.getMessage());
+          }
+        });
+
+    // existing invitations and members, with one query each per chunk of emails
+    Set<String> invited = organization.getInvitedEmails(requests.keySet());
+    Set<String> members = organization.getMemberEmails(requests.keySet());
+    Map<String, UserModel> invitations = new LinkedHashMap<>();
+    requests.forEach(
+        (email, invitation) -> {
+          BulkResponseItem item = items.get(email);
+          if (invited.contains(email)) {
+            item.setStatus(Response.Status.CONFLICT.getStatusCode());
+            item.setError(String.format("Invitation for %s already exists.", email));
+          } else if (members.contains(email)) {
+            item.setStatus(Response.Status.CONFLICT.getStatusCode());
+            item.setError(String.format("%s is already a member of this organization.", email));
+          } else {
+            String inviterId = Strings.emptyToNull(invitation.getInviterId());
+            invitations.put(email, inviterId == null ? auth.getUser() : inviters.get(inviterId));
+          }
+        });
+
+    List<InvitationModel> added =
+        organization.addInvitations(
+            invitations,
+            i -> {
+              InvitationRequest invitation = requests.get(i.getEmail());
+              i.setUrl(Optional.ofNullable(invitation.getRedirectUri()).orElse(""));
+              setExpiresIn(i, invitation);
+              if (invitation.getRoles() != null) i.setRoles(invitation.getRoles());
+              if (invitation.getAttributes() != null)
+                invitation.getAttributes().forEach(i::setAttribute);
+              if (invitation.isSend()) i.queueEmail(invitations.get(i.getEmail()));
+            });
+    added.forEach(
+        i -> {
+          Invitation o = convertInvitationModelToInvitation(i);
+          items.get(i.getEmail()).setItem(o);
+          adminEvent
+              .resource(INVITATION.name())
+              .operation(OperationType.CREATE)
+              .resourcePath(session.getContext().getUri(), o.getId())
+              .representation(o)
+              .success();
+        });
+
+    return Response.status(207) // <-Multi-Status
+        .location(session.getContext().getUri().getAbsolutePathBuilder().build())
+        .entity(responseItems)
+        .build();
   }
 
-  void sendInvitationEmail(
-      String email,
-      KeycloakSession session,
-      RealmModel realm,
-      UserModel inviter,
-      String link,
-      Map<String, List<String>> attributes)
-      throws Exception {
-    EmailTemplateProvider emailTemplateProvider = session.getProvider(EmailTemplateProvider.class);
-
-    Method sendMethod =
-        FreeMarkerEmailTemplateProvider.class.getDeclaredMethod(
-            "send", String.class, List.class, String.class, Map.class, String.class);
-    sendMethod.setAccessible(true);
-
-    String realmName =
-        Strings.isNullOrEmpty(realm.getDisplayName()) ? realm.getName() : realm.getDisplayName();
-    String orgName =
-        Strings.isNullOrEmpty(organization.getDisplayName())
-            ? organization.getName()
-            : organization.getDisplayName();
-    String inviterName = getInviterName(inviter).orElse("");
-
-    String templateName = "invitation-email.ftl";
-    String subjectKey = "invitationEmailSubject";
-    List<Object> subjectAttributes = ImmutableList.of(realmName, orgName, inviterName);
-    Map<String, Object> bodyAttributes = Maps.newHashMap();
-    bodyAttributes.put("email", email);
-    bodyAttributes.put("realmName", realmName);
-    bodyAttributes.put("orgName", orgName);
-    bodyAttributes.put("inviterName", inviterName);
-    bodyAttributes.put("inviter", new ProfileBean(inviter, session));
-    bodyAttributes.put("link", link);
-    bodyAttributes.put("attributes", attributes);
-
-    emailTemplateProvider.setRealm(realm).setUser(user).setAttribute("realmName", realmName);
-
-    sendMethod.invoke(
-        emailTemplateProvider, subjectKey, subjectAttributes, templateName, bodyAttributes, email);
+  /** Overrides the expiry set from the realm config when the request has its own. */
+  private static void setExpiresIn(InvitationModel i, InvitationRequest invitation) {
+    Integer expiresIn = invitation.getExpiresIn();
+    if (expiresIn == null) return;
+    i.setExpiresAt(
+        expiresIn > 0
+            ? new Date(Time.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expiresIn))
+            : null);
   }
 
-  Optional<String> getInviterName(UserModel user) {
-    if (user == null) return Optional.empty();
-    StringBuilder o = new StringBuilder();
-    if (!Strings.isNullOrEmpty(user.getFirstName())) {
-      o.append(user.getFirstName());
-    }
-    if (!Strings.isNullOrEmpty(user.getLastName())) {
-      if (o.length() > 0) {
-        o.append(" ");
-      }
-      o.append(user.getLastName());
-    }
-    if (!Strings.isNullOrEmpty(user.getEmail())) {
-      if (o.length() > 0) {
-        o.append(" ").append("(");
-      }
-      o.append(user.getEmail());
-      if (o.length() > user.getEmail().length()) {
-        o.append(")");
+  boolean canSetRoles(Collection<String> roles) {
+    return canSetRoles(
+        roles, organization.getRolesStream().map(r -> r.getName()).collect(Collectors.toSet()));
+  }
+
+  private static boolean canSetRoles(Collection<String> roles, Set<String> orgRoles) {
+    if (roles == null || roles.isEmpty()) return true;
+    for (String role : roles) {
+      if (!orgRoles.contains(role)) {
+        return false;
       }
     }
-    return Optional.ofNullable(Strings.emptyToNull(o.toString()));
+    return true;
   }
 
   @GET
@@ -211,26 +253,32 @@ public class InvitationsResource extends OrganizationAdminResource {
   public Stream<Invitation> listInvitations(
       @QueryParam("search") String searchQuery,
       @QueryParam("first") Integer firstResult,
-      @QueryParam("max") Integer maxResults) {
+      @QueryParam("max") Integer maxResults,
+      @QueryParam("cursor") String cursor) {
     log.debugf("Get invitations for %s %s", realm.getName(), organization.getId());
-    Optional<String> search = Optional.ofNullable(searchQuery);
     firstResult = firstResult != null ? firstResult : 0;
     maxResults = maxResults != null ? maxResults : Constants.DEFAULT_MAX_RESULTS;
 
+    if (cursor != null) {
+      int max = maxResults;
+      return page(cursor, after -> organization.searchForInvitationsPage(searchQuery, after, max))
+          .map(i -> convertInvitationModelToInvitation(i));
+    }
+
     return organization
-        .getInvitationsStream()
-        .filter(i -> !search.isPresent() || i.getEmail().contains(search.get()))
-        .skip(firstResult)
-        .limit(maxResults)
+        .searchForInvitationsStream(searchQuery, firstResult, maxResults)
         .map(i -> convertInvitationModelToInvitation(i));
   }
 
   @GET
   @Path("count")
   @Produces(MediaType.APPLICATION_JSON)
-  public Long countInvitations() {
-    log.debugf("countInvitations %s %s", realm.getName(), organization.getId());
-    return organization.getInvitationsCount();
+  public Long countInvitations(@QueryParam("search") String searchQuery) {
+    log.debugf("countInvitations %s %s [%s]", realm.getName(), organization.getId(), searchQuery);
+    if (Strings.isNullOrEmpty(searchQuery)) {
+      return organization.getInvitationsCount();
+    }
+    return organization.searchForInvitationsCount(searchQuery);
   }
 
   @GET
@@ -260,17 +308,7 @@ public class InvitationsResource extends OrganizationAdminResource {
       inviter = auth.getUser();
     }
 
-    try {
-      sendInvitationEmail(
-          invitation.getEmail(),
-          session,
-          realm,
-          inviter,
-          Optional.ofNullable(invitation.getUrl()).orElse(""),
-          invitation.getAttributes());
-    } catch (Exception e) {
-      log.warn("Unable to send invitation email", e);
-    }
+    invitation.queueEmail(inviter);
     return Response.noContent().build();
   }
 
@@ -279,13 +317,7 @@ public class InvitationsResource extends OrganizationAdminResource {
   public Response removeInvitation(@PathParam("invitationId") String invitationId) {
     canManage();
 
-    // inefficient
-    InvitationModel invitation =
-        organization
-            .getInvitationsStream()
-            .filter(i -> i.getId().equals(invitationId))
-            .findAny()
-            .orElse(null);
+    InvitationModel invitation = organization.getInvitation(invitationId);
     if (invitation == null)
       throw new NotFoundException(String.format("No invitation with id %s", invitationId));
 
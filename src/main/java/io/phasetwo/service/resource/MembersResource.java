@@ -6,12 +6,24 @@ import static org.keycloak.events.EventType.UPDATE_PROFILE;
 import static org.keycloak.models.utils.ModelToRepresentation.*;
 
 import com.google.common.base.Strings;
+import io.phasetwo.service.model.MembershipGrants;
 import io.phasetwo.service.model.OrganizationModel;
+import io.phasetwo.service.model.OrganizationRoleModel;
+import io.phasetwo.service.representation.BulkResponseItem;
+import io.phasetwo.service.representation.OrganizationMember;
 import io.phasetwo.service.util.ActiveOrganization;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.events.EventBuilder;
@@ -36,21 +48,28 @@ public class MembersResource extends OrganizationAdminResource {
   public Stream<UserRepresentation> getMembers(
       @QueryParam("search") String searchQuery,
       @QueryParam("first") Integer firstResult,
-      @QueryParam("max") Integer maxResults) {
+      @QueryParam("max") Integer maxResults,
+      @QueryParam("cursor") String cursor) {
     log.debugf("Get members for %s %s [%s]", realm.getName(), organization.getId(), searchQuery);
     firstResult = firstResult != null ? firstResult : 0;
-    maxResults = maxResults != null ? maxResults : Constants.DEFAULT_MAX_RESULTS;
-    return organization
-        .searchForMembersStream(searchQuery, firstResult, maxResults)
-        .map(m -> toRepresentation(session, realm, m));
+    int max = maxResults != null ? maxResults : Constants.DEFAULT_MAX_RESULTS;
+    Stream<UserModel> members =
+        cursor != null
+            ? page(cursor, after -> organization.searchForMembersPage(searchQuery, after, max))
+            : organization.searchForMembersStream(searchQuery, firstResult, max);
+    return members.map(m -> toRepresentation(session, realm, m));
   }
 
   @GET
   @Path("count")
   @Produces(MediaType.APPLICATION_JSON)
-  public Long getMembersCount() {
-    log.debugf("Get members count for %s %s", realm.getName(), organization.getId());
-    return organization.getMembersCount();
+  public Long getMembersCount(@QueryParam("search") String searchQuery) {
+    log.debugf(
+        "Get members count for %s %s [%s]", realm.getName(), organization.getId(), searchQuery);
+    if (Strings.isNullOrEmpty(searchQuery)) {
+      return organization.getMembersCount();
+    }
+    return organization.searchForMembersCount(searchQuery);
   }
 
   @DELETE
@@ -60,10 +79,12 @@ public class MembersResource extends OrganizationAdminResource {
 
     log.debugf("Remove member %s from %s %s", userId, realm.getName(), organization.getId());
     UserModel member = session.users().getUserById(realm, userId);
-    if (!Strings.isNullOrEmpty(member.getUsername())
-        && member
-            .getUsername()
-            .equals(OrganizationResourceProviderFactory.getDefaultAdminUsername(organization))) {
+    revokeMembership(member);
+    return Response.noContent().build();
+  }
+
+  private void revokeMembership(UserModel member) {
+    if (isDefaultAdmin(member)) {
       throw new ForbiddenException("Cannot remove default organization user.");
     }
 
@@ -73,15 +94,7 @@ public class MembersResource extends OrganizationAdminResource {
         ActiveOrganization.fromContext(session, realm, member);
     if (activeOrganizationUtil.isValid()
         && activeOrganizationUtil.isCurrentActiveOrganization(organization.getId())) {
-      member.setAttribute(ACTIVE_ORGANIZATION, new ArrayList<>());
-
-      EventBuilder event = new EventBuilder(realm, session, connection);
-      event
-          .event(UPDATE_PROFILE)
-          .user(user)
-          .detail(
-              "removed_active_organization_id", activeOrganizationUtil.getOrganization().getId())
-          .success();
+      clearActiveOrganization(member, activeOrganizationUtil.getOrganization().getId());
     }
 
     organization.revokeMembership(member);
@@ -89,9 +102,26 @@ public class MembersResource extends OrganizationAdminResource {
         .resource(ORGANIZATION_MEMBERSHIP.name())
         .operation(OperationType.DELETE)
         .resourcePath(session.getContext().getUri())
-        .representation(userId)
+        .representation(member.getId())
+        .success();
+  }
+
+  private boolean isDefaultAdmin(UserModel member) {
+    return !Strings.isNullOrEmpty(member.getUsername())
+        && member
+            .getUsername()
+            .equals(OrganizationResourceProviderFactory.getDefaultAdminUsername(organization));
+  }
+
+  private void clearActiveOrganization(UserModel member, String organizationId) {
+    member.setAttribute(ACTIVE_ORGANIZATION, new ArrayList<>());
+
+    EventBuilder event = new EventBuilder(realm, session, connection);
+    event
+        .event(UPDATE_PROFILE)
+        .user(user)
+        .detail("removed_active_organization_id", organizationId)
         .success();
-    return Response.noContent().build();
   }
 
   @GET
@@ -131,6 +161,163 @@ public class MembersResource extends OrganizationAdminResource {
     }
   }
 
+  @PUT
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response addMembers(List<OrganizationMember> representation) {
+    log.debugf(
+        "Add %d members for %s %s", representation.size(), realm.getName(), organization.getId());
+    canManage();
+
+    Set<String> roleNames =
+        organization
+            .getRolesStream()
+            .map(OrganizationRoleModel::getName)
+            .collect(Collectors.toSet());
+    Map<String, UserModel> users = getUsers(representation);
+    Map<UserModel, Set<String>> memberRoles = new LinkedHashMap<>();
+    List<BulkResponseItem> responseItems = new ArrayList<>();
+
+    representation.forEach(
+        m -> {
+          BulkResponseItem item =
+              new BulkResponseItem().status(Response.Status.CREATED.getStatusCode()).item(m);
+          try {
+            UserModel member = m.getId() == null ? null : users.get(m.getId());
+            if (member == null) throw new NotFoundException("User not found");
+            List<String> roles = m.getRoles() != null ? m.getRoles() : List.of();
+            if (!roles.isEmpty()) canManageRoles();
+            roles.stream()
+                .filter(r -> !roleNames.contains(r))
+                .findFirst()
+                .ifPresent(
+                    r -> {
+                      throw new BadRequestException(String.format("Role %s doesn't exist", r));
+                    });
+            memberRoles.computeIfAbsent(member, u -> new LinkedHashSet<>()).addAll(roles);
+          } catch (Exception ex) {
+            item.setStatus(Response.Status.BAD_REQUEST.getStatusCode());
+            item.setError(ex.getMessage());
+          }
+          responseItems.add(item);
+        });
+
+    // users who already were members only get their missing roles, and no membership event
+    MembershipGrants grants = organization.grantMemberships(memberRoles);
+    grants
+        .getMemberIds()
+        .forEach(
+            id ->
+                adminEvent
+                    .resource(ORGANIZATION_MEMBERSHIP.name())
+                    .operation(OperationType.CREATE)
+                    .resourcePath(session.getContext().getUri(), id)
+                    .representation(id)
+                    .success());
+    grants
+        .getRoles()
+        .forEach(
+            (id, names) ->
+                names.forEach(
+                    name ->
+                        adminEvent
+                            .resource(ORGANIZATION_ROLE_MAPPING.name())
+                            .operation(OperationType.CREATE)
+                            .resourcePath("orgs", organization.getId(), "roles", name, "users", id)
+                            .representation(id)
+                            .success()));
+
+    return Response.status(207) // <-Multi-Status
+        .location(session.getContext().getUri().getAbsolutePathBuilder().build())
+        .entity(responseItems)
+        .build();
+  }
+
+  @PATCH
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response removeMembers(List<OrganizationMember> representation) {
+    log.debugf(
+        "Remove %d members from %s %s",
+        representation.size(), realm.getName(), organization.getId());
+    canManage();
+
+    Map<String, UserModel> users = getUsers(representation);
+    Map<BulkResponseItem, UserModel> itemMembers = new LinkedHashMap<>();
+    List<BulkResponseItem> responseItems = new ArrayList<>();
+
+    representation.forEach(
+        m -> {
+          BulkResponseItem item =
+              new BulkResponseItem().status(Response.Status.NO_CONTENT.getStatusCode()).item(m);
+          try {
+            UserModel member = m.getId() == null ? null : users.get(m.getId());
+            if (member == null) throw new NotFoundException("User not found");
+            if (isDefaultAdmin(member)) {
+              throw new ForbiddenException("Cannot remove default organization user.");
+            }
+            itemMembers.put(item, member);
+          } catch (Exception ex) {
+            item.setStatus(Response.Status.BAD_REQUEST.getStatusCode());
+            item.setError(ex.getMessage());
+          }
+          responseItems.add(item);
+        });
+
+    Set<String> memberIds =
+        itemMembers.values().stream().map(UserModel::getId).collect(Collectors.toSet());
+    Set<String> active = organization.getActiveMemberIds(memberIds);
+    Set<String> revoked = organization.revokeMemberships(itemMembers.values());
+    itemMembers.forEach(
+        (item, member) -> {
+          // a user listed twice is only revoked once
+          if (!revoked.remove(member.getId())) {
+            item.setStatus(Response.Status.BAD_REQUEST.getStatusCode());
+            item.setError(new NotFoundException().getMessage());
+            return;
+          }
+          if (active.contains(member.getId())) {
+            clearActiveOrganization(
+                session.users().getUserById(realm, member.getId()), organization.getId());
+          }
+          adminEvent
+              .resource(ORGANIZATION_MEMBERSHIP.name())
+              .operation(OperationType.DELETE)
+              .resourcePath(session.getContext().getUri(), member.getId())
+              .representation(member.getId())
+              .success();
+        });
+
+    return Response.status(207) // <-Multi-Status
+        .location(session.getContext().getUri().getAbsolutePathBuilder().build())
+        .entity(responseItems)
+        .build();
+  }
+
+  /** Users of the items by id, looking each user up once. Ids of unknown users are left out. */
+  private Map<String, UserModel> getUsers(List<OrganizationMember> members) {
+    Map<String, UserModel> users = new HashMap<>();
+    members.stream()
+        .map(OrganizationMember::getId)
+        .filter(Objects::nonNull)
+        .distinct()
+        .forEach(
+            id -> {
+              UserModel user = session.users().getUserById(realm, id);
+              if (user != null) users.put(id, user);
+            });
+    return users;
+  }
+
+  private void canManageRoles() {
+    if (!auth.hasManageOrgs() && !auth.hasOrgManageRoles(organization)) {
+      throw new NotAuthorizedException(
+          String.format(
+              "User %s doesn't have permission to manage roles in org %s",
+              auth.getUser().getId(), organization.getName()));
+    }
+  }
+
   private void canManage() {
     if (!auth.hasManageOrgs() && !auth.hasOrgManageMembers(organization)) {
       throw new NotAuthorizedException(
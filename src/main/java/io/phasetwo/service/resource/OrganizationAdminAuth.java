@@ -1,16 +1,25 @@
 package io.phasetwo.service.resource;
 
-import com.google.common.collect.ImmutableList;
+import static io.phasetwo.service.Orgs.ORG_CONFIG_TOKEN_ROLES_KEY;
+import static io.phasetwo.service.Orgs.ORG_CONFIG_TOKEN_ROLES_MAX_AGE_DEFAULT;
+import static io.phasetwo.service.Orgs.ORG_CONFIG_TOKEN_ROLES_MAX_AGE_KEY;
+
+import com.google.common.collect.ImmutableSet;
 import io.phasetwo.service.model.InvitationModel;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationRoleModel;
 import io.phasetwo.service.model.jpa.entity.ExtOrganizationEntity;
 import io.phasetwo.service.model.jpa.entity.InvitationEntity;
 import io.phasetwo.service.model.jpa.entity.OrganizationMemberEntity;
+import io.phasetwo.service.protocol.oidc.mappers.CompactOrganizationClaim;
 import jakarta.ws.rs.NotAuthorizedException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 import lombok.extern.jbosslog.JBossLog;
+import org.keycloak.common.util.Time;
 import org.keycloak.models.AdminRoles;
 import org.keycloak.models.ClientModel;
 import org.keycloak.models.RealmModel;
@@ -27,6 +36,12 @@ public class OrganizationAdminAuth extends AdminAuth {
   public static final String ROLE_VIEW_ORGANIZATION = "view-organizations";
   public static final String ROLE_MANAGE_ORGANIZATION = "manage-organizations";
 
+  // org roles and memberships of the logged-in user, by org id. loaded once per request
+  private final Map<String, Set<String>> orgRoles = new HashMap<>();
+  private final Map<String, Boolean> orgMemberships = new HashMap<>();
+  private Map<String, Set<String>> tokenOrgRoles;
+  private boolean tokenOrgRolesRead;
+
   public OrganizationAdminAuth(
       RealmModel realm, AccessToken token, UserModel user, ClientModel client) {
     super(realm, token, user, client);
@@ -172,7 +187,7 @@ public class OrganizationAdminAuth extends AdminAuth {
    *     or they are a member of the organization.
    */
   boolean hasOrgViewOrg(OrganizationModel org) {
-    return hasOrgRole(org, ORG_ROLE_VIEW_ORGANIZATION) || org.hasMembership(getUser());
+    return hasOrgRole(org, ORG_ROLE_VIEW_ORGANIZATION) || isOrgMember(org);
   }
 
   /**
@@ -289,35 +304,92 @@ public class OrganizationAdminAuth extends AdminAuth {
 
   static String ORGANIZATIONS_CLAIM = "organizations";
 
-  private List<String> getOrganizationRoles(OrganizationModel org) {
-    Object o = getToken().getOtherClaims().get(ORGANIZATIONS_CLAIM);
-    if (o == null || !(o instanceof Map)) return ImmutableList.of();
-    Map<String, Object> orgs = (Map<String, Object>) o;
-    Object os = orgs.get(org.getId());
-    if (os == null || !(os instanceof Map)) return ImmutableList.of();
-    Map<String, Object> osrg = (Map<String, Object>) os;
-    Object rs = osrg.get("roles");
-    if (rs == null || !(rs instanceof List)) return ImmutableList.of();
-    return (List<String>) rs;
+  /**
+   * Roles of the logged-in user by org id, from the organizations claim of the token. Null when the
+   * token can't be used to authorize: the realm doesn't allow it, the token was issued by another
+   * realm or longer ago than the max age, or it has no organizations claim.
+   */
+  private Map<String, Set<String>> getTokenOrgRoles() {
+    if (!tokenOrgRolesRead) {
+      tokenOrgRolesRead = true;
+      tokenOrgRoles = readTokenOrgRoles();
+    }
+    return tokenOrgRoles;
   }
 
-  private boolean hasOrgRoleInToken(OrganizationModel org, String roleName) {
-    return (getOrganizationRoles(org).contains(roleName));
+  @SuppressWarnings("unchecked")
+  private Map<String, Set<String>> readTokenOrgRoles() {
+    RealmModel realm = getRealm();
+    if (!realm.getAttribute(ORG_CONFIG_TOKEN_ROLES_KEY, false)) return null;
+    AccessToken token = getToken();
+    if (token.getIssuer() == null || !token.getIssuer().endsWith("/realms/" + realm.getName())) {
+      return null;
+    }
+    int maxAge =
+        realm.getAttribute(
+            ORG_CONFIG_TOKEN_ROLES_MAX_AGE_KEY, ORG_CONFIG_TOKEN_ROLES_MAX_AGE_DEFAULT);
+    if (token.getIat() == null || Time.currentTime() - token.getIat() > maxAge) {
+      log.debugf(
+          "token of %s older than %d seconds. checking org roles", getUser().getId(), maxAge);
+      return null;
+    }
+    Object o = token.getOtherClaims().get(ORGANIZATIONS_CLAIM);
+    if (!(o instanceof Map)) return null;
+    Map<String, Object> claim = (Map<String, Object>) o;
+    try {
+      if (CompactOrganizationClaim.isCompact(claim)) {
+        return CompactOrganizationClaim.decodeRoles(claim);
+      }
+      Map<String, Set<String>> roles = new HashMap<>();
+      claim.forEach(
+          (id, org) -> {
+            if (!(org instanceof Map)) return;
+            Object rs = ((Map<String, Object>) org).get("roles");
+            if (!(rs instanceof List)) return;
+            roles.put(
+                id,
+                ((List<Object>) rs)
+                    .stream().map(String::valueOf).collect(ImmutableSet.toImmutableSet()));
+          });
+      return roles;
+    } catch (RuntimeException e) {
+      log.debugf(
+          "unreadable %s claim. checking org roles. %s", ORGANIZATIONS_CLAIM, e.getMessage());
+      return null;
+    }
   }
 
   private boolean hasOrgRole(OrganizationModel org, String roleName) {
-    /*
-    if (!hasOrgRoleInToken(org, roleName)) {
-      log.debugf("%s not in token %s", roleName, getToken().getOtherClaims());
-      return false;
-    }
-    */
-    OrganizationRoleModel role = org.getRoleByName(roleName);
-    boolean has = (role != null && role.hasRole(getUser()));
+    boolean has = getOrgRoleNames(org).contains(roleName);
     log.debugf("%s has role %s? %b", getUser().getId(), roleName, has);
     return has;
   }
 
+  /**
+   * Names of the roles of the logged-in user in the org. Read from the token when the realm allows
+   * it and the token has the org, otherwise loaded in one query per request.
+   */
+  private Set<String> getOrgRoleNames(OrganizationModel org) {
+    Map<String, Set<String>> tokenRoles = getTokenOrgRoles();
+    if (tokenRoles != null && tokenRoles.containsKey(org.getId())) {
+      return tokenRoles.get(org.getId());
+    }
+    return orgRoles.computeIfAbsent(
+        org.getId(),
+        id -> {
+          Stream<OrganizationRoleModel> roles = org.getRolesByUserStream(getUser());
+          if (roles == null) return ImmutableSet.of();
+          return roles.map(OrganizationRoleModel::getName).collect(ImmutableSet.toImmutableSet());
+        });
+  }
+
+  private boolean isOrgMember(OrganizationModel org) {
+    // the organizations claim has every org the user is a member of
+    Map<String, Set<String>> tokenRoles = getTokenOrgRoles();
+    if (tokenRoles != null && tokenRoles.containsKey(org.getId())) return true;
+    return orgMemberships.computeIfAbsent(org.getId(), id -> org.hasMembership(getUser()));
+  }
+
   private void requireOrgRole(OrganizationModel org, String roleName) {
     if (!hasOrgRole(org, roleName)) {
       throw new NotAuthorizedException(
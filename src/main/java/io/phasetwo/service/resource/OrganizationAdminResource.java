@@ -1,9 +1,14 @@
 package io.phasetwo.service.resource;
 
+import io.phasetwo.service.model.Cursor;
 import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.Page;
 import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.BadRequestException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.connections.jpa.JpaConnectionProvider;
 import org.keycloak.models.KeycloakSession;
@@ -34,6 +39,23 @@ public class OrganizationAdminResource extends AbstractAdminResource<Organizatio
     }
   }
 
+  /**
+   * Fetches the page after the cursor query parameter, an empty value being the first page, and
+   * sets the cursor of the next page in the response.
+   */
+  protected final <T> Stream<T> page(String cursor, Function<Cursor, Page<T>> fetch) {
+    Page<T> page;
+    try {
+      page = fetch.apply(Cursor.decode(cursor));
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("Invalid cursor");
+    }
+    if (page.getNext() != null) {
+      session.getContext().getHttpResponse().setHeader(NEXT_CURSOR_HEADER, page.getNext().encode());
+    }
+    return page.getItems().stream();
+  }
+
   protected final void init() {
     this.em = session.getProvider(JpaConnectionProvider.class).getEntityManager();
     this.orgs = session.getProvider(OrganizationProvider.class);
@@ -1,5 +1,6 @@
 package io.phasetwo.service.resource;
 
+import static io.phasetwo.service.Orgs.ACTIVE_ORGANIZATION;
 import static io.phasetwo.service.Orgs.KC_ORGS_SKIP_MIGRATION;
 import static io.phasetwo.service.Orgs.ORG_CONFIG_CREATE_ADMIN_USER_KEY;
 import static io.phasetwo.service.resource.OrganizationAdminAuth.DEFAULT_ORG_ROLES;
@@ -10,8 +11,11 @@ import static io.phasetwo.service.resource.OrganizationAdminAuth.ROLE_VIEW_ORGAN
 import com.google.auto.service.AutoService;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationProvider;
-import io.phasetwo.service.model.OrganizationRoleModel;
 import io.phasetwo.service.util.IdentityProviders;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.Config;
 import org.keycloak.models.AdminRoles;
@@ -79,6 +83,12 @@ public class OrganizationResourceProviderFactory implements RealmResourceProvide
           } else if (event instanceof OrganizationModel.OrganizationRemovedEvent) {
             log.debug("OrganizationRemovedEvent");
             organizationRemoved((OrganizationModel.OrganizationRemovedEvent) event);
+          } else if (event instanceof RealmModel.IdentityProviderUpdatedEvent) {
+            log.debug("IdentityProviderUpdatedEvent");
+            identityProviderUpdated((RealmModel.IdentityProviderUpdatedEvent) event);
+          } else if (event instanceof RealmModel.IdentityProviderRemovedEvent) {
+            log.debug("IdentityProviderRemovedEvent");
+            identityProviderRemoved((RealmModel.IdentityProviderRemovedEvent) event);
           }
         });
   }
@@ -115,6 +125,8 @@ public class OrganizationResourceProviderFactory implements RealmResourceProvide
     RealmManager manager = new RealmManager(event.getKeycloakSession());
     addMasterAdminRoles(manager, realm);
     if (!realm.getName().equals(Config.getAdminRealm())) addRealmAdminRoles(manager, realm);
+    // imported identity providers publish no event
+    event.getKeycloakSession().getProvider(OrganizationProvider.class).syncIdentityProviders(realm);
   }
 
   private void addMasterAdminRoles(RealmManager manager, RealmModel realm) {
@@ -154,13 +166,29 @@ public class OrganizationResourceProviderFactory implements RealmResourceProvide
   }
 
   private void realmRemoved(RealmModel.RealmRemovedEvent event) {
+    VerifiedTokenCache.removeRealm(event.getRealm().getId());
     event
         .getKeycloakSession()
         .getProvider(OrganizationProvider.class)
         .removeOrganizations(event.getRealm());
   }
 
+  private void identityProviderUpdated(RealmModel.IdentityProviderUpdatedEvent event) {
+    event
+        .getKeycloakSession()
+        .getProvider(OrganizationProvider.class)
+        .syncIdentityProvider(event.getRealm(), event.getUpdatedIdentityProvider());
+  }
+
+  private void identityProviderRemoved(RealmModel.IdentityProviderRemovedEvent event) {
+    event
+        .getKeycloakSession()
+        .getProvider(OrganizationProvider.class)
+        .removeIdentityProvider(event.getRealm(), event.getRemovedIdentityProvider());
+  }
+
   private void userRemoved(UserModel.UserRemovedEvent event) {
+    VerifiedTokenCache.removeUser(event.getRealm().getId(), event.getUser().getId());
     OrganizationProvider orgs = event.getKeycloakSession().getProvider(OrganizationProvider.class);
     orgs.getUserOrganizationsStream(event.getRealm(), event.getUser())
         .forEach(
@@ -201,16 +229,13 @@ public class OrganizationResourceProviderFactory implements RealmResourceProvide
       // other defaults? email? emailVerified? attributes?
       user.setEmail(String.format("%s@noreply.phasetwo.io", adminUsername)); // todo dynamic email?
       user.setEmailVerified(true);
-      org.grantMembership(user);
-      for (String role : DEFAULT_ORG_ROLES) {
-        OrganizationRoleModel roleModel = org.getRoleByName(role);
-        roleModel.grantRole(user);
-      }
+      // the membership and role mappings are written with one batch per table
+      org.grantMemberships(Map.of(user, List.of(DEFAULT_ORG_ROLES)));
     }
   }
 
   private void organizationRemoved(OrganizationModel.OrganizationRemovedEvent event) {
-    // TODO anything else to do? does cascade take care of it?
+    // in the removing transaction, so that none of it is lost if the removal commits
 
     // remove the idp associations for this org
     OrganizationModel org = event.getOrganization();
@@ -223,22 +248,32 @@ public class OrganizationResourceProviderFactory implements RealmResourceProvide
           e.getMessage());
     }
 
+    // clear the active organization of the users that had it active
+    try {
+      event
+          .getKeycloakSession()
+          .users()
+          .searchForUserByUserAttributeStream(event.getRealm(), ACTIVE_ORGANIZATION, org.getId())
+          .collect(Collectors.toList())
+          .forEach(user -> user.setAttribute(ACTIVE_ORGANIZATION, new ArrayList<>()));
+    } catch (Exception e) {
+      log.warnf(
+          "Couldn't clear active organization on organizationRemoved. Likely because this follows a realmRemoved event. %s",
+          e.getMessage());
+    }
+
     // delete default admin user
+    String adminUsername = getDefaultAdminUsername(org);
     try {
       UserModel user =
-          event
-              .getKeycloakSession()
-              .users()
-              .getUserByUsername(
-                  event.getRealm(), getDefaultAdminUsername(event.getOrganization()));
+          event.getKeycloakSession().users().getUserByUsername(event.getRealm(), adminUsername);
       if (user != null) {
         boolean removed = event.getKeycloakSession().users().removeUser(event.getRealm(), user);
-        log.debugf(
-            "User removed on deletion of org %s? %b", event.getOrganization().getId(), removed);
+        log.debugf("User removed on deletion of org %s? %b", org.getId(), removed);
       } else {
-        log.warnf(
+        log.debugf(
             "Default org admin %s for org %s doesn't exist. Skipping deletion on org removal.",
-            getDefaultAdminUsername(event.getOrganization()), event.getOrganization().getId());
+            adminUsername, org.getId());
       }
     } catch (Exception e) {
       log.warnf(
@@ -248,6 +283,10 @@ public class OrganizationResourceProviderFactory implements RealmResourceProvide
   }
 
   public static String getDefaultAdminUsername(OrganizationModel org) {
-    return String.format("org-admin-%s", org.getId());
+    return getDefaultAdminUsername(org.getId());
+  }
+
+  public static String getDefaultAdminUsername(String orgId) {
+    return String.format("org-admin-%s", orgId);
   }
 }
@@ -1,7 +1,11 @@
 package io.phasetwo.service.resource;
 
 import static io.phasetwo.service.Orgs.ORG_CONFIG_CREATE_ADMIN_USER_KEY;
+import static io.phasetwo.service.Orgs.ORG_CONFIG_INVITATION_TTL_KEY;
 import static io.phasetwo.service.Orgs.ORG_CONFIG_SHARED_IDPS_KEY;
+import static io.phasetwo.service.Orgs.ORG_CONFIG_TOKEN_ROLES_KEY;
+import static io.phasetwo.service.Orgs.ORG_CONFIG_TOKEN_ROLES_MAX_AGE_DEFAULT;
+import static io.phasetwo.service.Orgs.ORG_CONFIG_TOKEN_ROLES_MAX_AGE_KEY;
 import static io.phasetwo.service.Orgs.ORG_OWNER_CONFIG_KEY;
 import static io.phasetwo.service.Orgs.ORG_SHARED_IDP_KEY;
 import static io.phasetwo.service.resource.Converters.convertOrganizationModelToOrganization;
@@ -16,6 +20,7 @@ import io.phasetwo.service.importexport.representation.KeycloakOrgsRepresentatio
 import io.phasetwo.service.importexport.representation.OrganizationRepresentation;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.UserOrganizationRoles;
 import io.phasetwo.service.representation.Organization;
 import io.phasetwo.service.representation.OrganizationsConfig;
 import jakarta.validation.Valid;
@@ -42,6 +47,7 @@ import org.keycloak.models.Constants;
 import org.keycloak.models.KeycloakSession;
 import org.keycloak.models.ModelDuplicateException;
 import org.keycloak.models.ModelException;
+import org.keycloak.models.UserModel;
 import org.keycloak.models.utils.KeycloakModelUtils;
 import org.keycloak.services.ErrorResponse;
 import org.keycloak.services.resources.admin.AdminEventBuilder;
@@ -71,15 +77,12 @@ public class OrganizationsResource extends OrganizationAdminResource {
   @Produces(MediaType.APPLICATION_JSON)
   public Response me() {
     Map<String, Object> claim = Maps.newHashMap();
+    Map<String, UserOrganizationRoles> userRoles = orgs.getUserOrganizationRoles(realm, user);
     orgs.getUserOrganizationsStream(realm, user)
         .forEach(
             o -> {
-              List<String> roles = Lists.newArrayList();
-              o.getRolesStream()
-                  .forEach(
-                      r -> {
-                        if (r.hasRole(user)) roles.add(r.getName());
-                      });
+              UserOrganizationRoles r = userRoles.get(o.getId());
+              List<String> roles = r != null ? r.getRoles() : Lists.newArrayList();
               Map<String, Object> org = Maps.newHashMap();
               org.put("name", o.getName());
               if (o.getDisplayName() != null) org.put("displayName", o.getDisplayName());
@@ -98,7 +101,8 @@ public class OrganizationsResource extends OrganizationAdminResource {
       @QueryParam("search") String search,
       @QueryParam("first") Integer firstResult,
       @QueryParam("max") Integer maxResults,
-      @QueryParam("q") String searchQuery) {
+      @QueryParam("q") String searchQuery,
+      @QueryParam("cursor") String cursor) {
     firstResult = firstResult != null ? firstResult : 0;
     maxResults =
         (maxResults != null && maxResults <= Constants.DEFAULT_MAX_RESULTS)
@@ -115,12 +119,21 @@ public class OrganizationsResource extends OrganizationAdminResource {
       searchAttributes.put("name", search.trim());
     }
 
-    return orgs.searchForOrganizationStream(
-            realm,
-            searchAttributes,
-            firstResult,
-            maxResults,
-            auth.hasViewOrgs() ? Optional.empty() : Optional.of(auth.getUser()))
+    Optional<UserModel> member =
+        auth.hasViewOrgs() ? Optional.empty() : Optional.of(auth.getUser());
+    Stream<OrganizationModel> results;
+    if (cursor != null) {
+      int max = maxResults;
+      results =
+          page(
+              cursor,
+              after -> orgs.searchForOrganizationPage(realm, searchAttributes, after, max, member));
+    } else {
+      results =
+          orgs.searchForOrganizationStream(
+              realm, searchAttributes, firstResult, maxResults, member);
+    }
+    return results
         .filter(m -> (auth.hasViewOrgs() || auth.hasOrgViewOrg(m)))
         .map(m -> convertOrganizationModelToOrganization(m));
   }
@@ -181,6 +194,9 @@ public class OrganizationsResource extends OrganizationAdminResource {
 
     realm.setAttribute(ORG_CONFIG_CREATE_ADMIN_USER_KEY, body.isCreateAdminUser());
     realm.setAttribute(ORG_CONFIG_SHARED_IDPS_KEY, body.isSharedIdps());
+    realm.setAttribute(ORG_CONFIG_TOKEN_ROLES_KEY, body.isTokenRoles());
+    realm.setAttribute(ORG_CONFIG_TOKEN_ROLES_MAX_AGE_KEY, body.getTokenRolesMaxAge());
+    realm.setAttribute(ORG_CONFIG_INVITATION_TTL_KEY, body.getInvitationTtl());
 
     return Response.ok(body).build();
   }
@@ -212,6 +228,11 @@ public class OrganizationsResource extends OrganizationAdminResource {
     var representation = new OrganizationsConfig();
     representation.setCreateAdminUser(realm.getAttribute(ORG_CONFIG_CREATE_ADMIN_USER_KEY, true));
     representation.setSharedIdps(realm.getAttribute(ORG_CONFIG_SHARED_IDPS_KEY, false));
+    representation.setTokenRoles(realm.getAttribute(ORG_CONFIG_TOKEN_ROLES_KEY, false));
+    representation.setTokenRolesMaxAge(
+        realm.getAttribute(
+            ORG_CONFIG_TOKEN_ROLES_MAX_AGE_KEY, ORG_CONFIG_TOKEN_ROLES_MAX_AGE_DEFAULT));
+    representation.setInvitationTtl(realm.getAttribute(ORG_CONFIG_INVITATION_TTL_KEY, 0));
 
     return Response.ok(representation).build();
   }
@@ -16,6 +16,7 @@ import java.util.function.Consumer;
 import java.util.stream.Stream;
 import lombok.extern.jbosslog.JBossLog;
 import org.keycloak.events.admin.OperationType;
+import org.keycloak.models.Constants;
 import org.keycloak.models.UserModel;
 import org.keycloak.representations.idm.UserRepresentation;
 
@@ -77,8 +78,17 @@ public class RoleResource extends OrganizationAdminResource {
   @GET
   @Path("users")
   @Produces(MediaType.APPLICATION_JSON)
-  public Stream<UserRepresentation> users() {
-    return role.getUserMappingsStream().map(m -> toRepresentation(session, realm, m));
+  public Stream<UserRepresentation> users(
+      @QueryParam("max") Integer maxResults, @QueryParam("cursor") String cursor) {
+    Stream<UserModel> users =
+        cursor != null
+            ? page(
+                cursor,
+                after ->
+                    role.getUserMappingsPage(
+                        after, maxResults != null ? maxResults : Constants.DEFAULT_MAX_RESULTS))
+            : role.getUserMappingsStream();
+    return users.map(m -> toRepresentation(session, realm, m));
   }
 
   @GET
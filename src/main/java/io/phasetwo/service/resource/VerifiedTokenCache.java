@@ -0,0 +1,100 @@
+package io.phasetwo.service.resource;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.keycloak.common.util.Time;
+import org.keycloak.representations.AccessToken;
+
+/**
+ * Bearer tokens verified on this node, keyed by the SHA-256 hash of the token, so that clients
+ * calling the resources many times with the same token skip the signature verification. An entry is
+ * kept until the token expires, and for at most {@link #MAX_AGE_SECONDS}. Tokens are only cached
+ * for the realms that have the {@link VerifiedTokenCacheEvictorFactory} event listener, which
+ * evicts them on logout, revoked grants and admin changes to users, sessions, clients and the
+ * realm. Removed users and realms are evicted right away. Nothing else is checked on a hit, and
+ * changes made on another node, or sessions that expire, are only seen once the entry is gone.
+ */
+class VerifiedTokenCache {
+
+  static final int MAX_AGE_SECONDS = 10;
+  private static final int MAX_SIZE = 10000;
+
+  static class Entry {
+    private final String realmId;
+    private final String userId;
+    private final String sessionId;
+    private final AccessToken token;
+    private final long expiresAt;
+
+    private Entry(String realmId, String userId, AccessToken token) {
+      this.realmId = realmId;
+      this.userId = userId;
+      this.sessionId = token.getSessionId();
+      this.token = token;
+      this.expiresAt = token.getExp() == null ? Long.MAX_VALUE : token.getExp() * 1000L;
+    }
+
+    String getRealmId() {
+      return realmId;
+    }
+
+    String getUserId() {
+      return userId;
+    }
+
+    AccessToken getToken() {
+      return token;
+    }
+  }
+
+  private static final Cache<String, Entry> cache =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_SIZE)
+          .expireAfterWrite(MAX_AGE_SECONDS, TimeUnit.SECONDS)
+          .build();
+
+  private VerifiedTokenCache() {}
+
+  static Entry get(String tokenString) {
+    String key = hash(tokenString);
+    Entry entry = cache.getIfPresent(key);
+    if (entry != null && Time.currentTimeMillis() >= entry.expiresAt) {
+      cache.invalidate(key);
+      return null;
+    }
+    return entry;
+  }
+
+  static void put(String tokenString, String realmId, String userId, AccessToken token) {
+    cache.put(hash(tokenString), new Entry(realmId, userId, token));
+  }
+
+  static void remove(String tokenString) {
+    cache.invalidate(hash(tokenString));
+  }
+
+  static void removeUser(String realmId, String userId) {
+    cache
+        .asMap()
+        .values()
+        .removeIf(e -> e.getRealmId().equals(realmId) && e.getUserId().equals(userId));
+  }
+
+  static void removeSession(String realmId, String sessionId) {
+    cache
+        .asMap()
+        .values()
+        .removeIf(e -> e.getRealmId().equals(realmId) && sessionId.equals(e.sessionId));
+  }
+
+  static void removeRealm(String realmId) {
+    cache.asMap().values().removeIf(e -> e.getRealmId().equals(realmId));
+  }
+
+  private static String hash(String tokenString) {
+    return Hashing.sha256().hashString(tokenString, StandardCharsets.UTF_8).toString();
+  }
+}
@@ -0,0 +1,90 @@
+package io.phasetwo.service.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.keycloak.events.Event;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.admin.AdminEvent;
+import org.keycloak.events.admin.OperationType;
+import org.keycloak.models.AbstractKeycloakTransaction;
+import org.keycloak.models.KeycloakSession;
+
+/**
+ * Evicts the {@link VerifiedTokenCache} entries that a logout, a revoked grant or an admin change
+ * may have invalidated, once the transaction that made the change commits, so that a request
+ * running in between can't cache the token again.
+ */
+public class VerifiedTokenCacheEvictor implements EventListenerProvider {
+
+  private final KeycloakSession session;
+  private final List<Runnable> evictions = new ArrayList<>();
+
+  public VerifiedTokenCacheEvictor(KeycloakSession session) {
+    this.session = session;
+  }
+
+  @Override
+  public void onEvent(Event event) {
+    if (event.getUserId() == null) return;
+    switch (event.getType()) {
+      case LOGOUT -> {
+        if (event.getSessionId() != null) {
+          evict(() -> VerifiedTokenCache.removeSession(event.getRealmId(), event.getSessionId()));
+        } else {
+          evict(() -> VerifiedTokenCache.removeUser(event.getRealmId(), event.getUserId()));
+        }
+      }
+      case REVOKE_GRANT, USER_DISABLED_BY_PERMANENT_LOCKOUT, USER_DISABLED_BY_TEMPORARY_LOCKOUT ->
+          evict(() -> VerifiedTokenCache.removeUser(event.getRealmId(), event.getUserId()));
+      default -> {}
+    }
+  }
+
+  @Override
+  public void onEvent(AdminEvent event, boolean includeRepresentation) {
+    if (event.getResourceType() == null
+        || event.getResourcePath() == null
+        || event.getOperationType() == OperationType.CREATE) return;
+    String realmId = event.getRealmId();
+    String[] path = event.getResourcePath().split("/");
+    switch (event.getResourceType()) {
+      case USER -> {
+        // users/{id}, and its sessions, consents, credentials and logout
+        if (path.length > 1 && path[0].equals("users")) {
+          evict(() -> VerifiedTokenCache.removeUser(realmId, path[1]));
+        }
+      }
+      case USER_SESSION ->
+          evict(() -> VerifiedTokenCache.removeSession(realmId, path[path.length - 1]));
+      case REALM, CLIENT -> {
+        // disabled clients, and the not-before and logout-all of the realm and its clients
+        evict(() -> VerifiedTokenCache.removeRealm(realmId));
+      }
+      default -> {}
+    }
+  }
+
+  private void evict(Runnable eviction) {
+    if (evictions.isEmpty()) {
+      session
+          .getTransactionManager()
+          .enlistAfterCompletion(
+              new AbstractKeycloakTransaction() {
+                @Override
+                protected void commitImpl() {
+                  evictions.forEach(Runnable::run);
+                  evictions.clear();
+                }
+
+                @Override
+                protected void rollbackImpl() {
+                  evictions.clear();
+                }
+              });
+    }
+    evictions.add(eviction);
+  }
+
+  @Override
+  public void close() {}
+}
@@ -0,0 +1,38 @@
+package io.phasetwo.service.resource;
+
+import com.google.auto.service.AutoService;
+import org.keycloak.Config;
+import org.keycloak.events.EventListenerProvider;
+import org.keycloak.events.EventListenerProviderFactory;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
+
+/**
+ * Event listener that lets the organization resources cache the bearer tokens they verify. Tokens
+ * of a realm are only cached once it is added to the event listeners of the realm, so that the
+ * cache hears about the logouts and revocations that invalidate them.
+ */
+@AutoService(EventListenerProviderFactory.class)
+public class VerifiedTokenCacheEvictorFactory implements EventListenerProviderFactory {
+
+  public static final String PROVIDER_ID = "orgs-verified-token-cache";
+
+  @Override
+  public String getId() {
+    return PROVIDER_ID;
+  }
+
+  @Override
+  public EventListenerProvider create(KeycloakSession session) {
+    return new VerifiedTokenCacheEvictor(session);
+  }
+
+  @Override
+  public void init(Config.Scope config) {}
+
+  @Override
+  public void postInit(KeycloakSessionFactory factory) {}
+
+  @Override
+  public void close() {}
+}
@@ -5,83 +5,140 @@ import static io.phasetwo.service.Orgs.ACTIVE_ORGANIZATION;
 import com.google.common.collect.Lists;
 import io.phasetwo.service.model.OrganizationModel;
 import io.phasetwo.service.model.OrganizationProvider;
+import io.phasetwo.service.model.UserOrganizationRoles;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 import lombok.Getter;
 import org.jboss.logging.Logger;
+import org.keycloak.executors.ExecutorsProvider;
 import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.KeycloakSessionFactory;
 import org.keycloak.models.RealmModel;
 import org.keycloak.models.UserModel;
+import org.keycloak.models.utils.KeycloakModelUtils;
 
+/**
+ * Resolves the active organization of a user from the active organization attribute, falling back
+ * to the first organization of the user. Resolving doesn't write anything, as it happens on the
+ * token path. An attribute that points to an organization the user is no longer a member of is
+ * cleared asynchronously, in a transaction of its own.
+ */
 public class ActiveOrganization {
 
   private static final Logger log = Logger.getLogger(ActiveOrganization.class);
+  private static final String REPAIR_EXECUTOR = "orgs-active-organization-repair";
+  // realm and user ids of the repairs that are queued or running
+  private static final Set<String> pendingRepairs = ConcurrentHashMap.newKeySet();
+
   private final RealmModel realm;
   private final UserModel user;
   private final OrganizationProvider organizationProvider;
+  private final boolean userHasOrganization;
   @Getter() private final OrganizationModel organization;
 
   public static ActiveOrganization fromContext(
       KeycloakSession session, RealmModel realm, UserModel user) {
-    return new ActiveOrganization(session, realm, user);
+    return fromOrganizations(
+        session,
+        realm,
+        user,
+        session
+            .getProvider(OrganizationProvider.class)
+            .getUserOrganizationsStream(realm, user)
+            .collect(Collectors.toList()));
+  }
+
+  /** Same as {@link #fromContext}, with the organizations of the user already loaded. */
+  public static ActiveOrganization fromOrganizations(
+      KeycloakSession session,
+      RealmModel realm,
+      UserModel user,
+      List<OrganizationModel> userOrganizations) {
+    String activeId = user.getFirstAttribute(ACTIVE_ORGANIZATION);
+    OrganizationModel active =
+        activeId == null
+            ? null
+            : userOrganizations.stream()
+                .filter(o -> o.getId().equals(activeId))
+                .findFirst()
+                .orElse(null);
+    if (activeId != null && active == null) {
+      log.warnf("%s doesn't belong to this organization", user.getUsername());
+      scheduleRepair(session, realm, user, activeId);
+    }
+    if (active == null && !userOrganizations.isEmpty()) {
+      active = userOrganizations.get(0);
+    }
+    return new ActiveOrganization(session, realm, user, active, !userOrganizations.isEmpty());
   }
 
-  private ActiveOrganization(KeycloakSession session, RealmModel realm, UserModel user) {
+  private ActiveOrganization(
+      KeycloakSession session,
+      RealmModel realm,
+      UserModel user,
+      OrganizationModel organization,
+      boolean userHasOrganization) {
     this.realm = realm;
     this.user = user;
     this.organizationProvider = session.getProvider(OrganizationProvider.class);
-    this.organization =
-        userHasActiveOrganizationAttribute()
-            ? initializeActiveOrganization()
-            : initializeDefaultActiveOrganization();
-    clearOutdatedActiveOrganizationAttribute();
-  }
-
-  private boolean userHasActiveOrganizationAttribute() {
-    return user.getAttributes().containsKey(ACTIVE_ORGANIZATION);
+    this.organization = organization;
+    this.userHasOrganization = userHasOrganization;
   }
 
-  private OrganizationModel initializeActiveOrganization() {
-    return organizationProvider.getOrganizationById(realm, getActiveOrganizationIdFromAttribute());
-  }
-
-  private OrganizationModel initializeDefaultActiveOrganization() {
-    Stream<OrganizationModel> userOrganizations =
-        organizationProvider.getUserOrganizationsStream(realm, user);
-    return userOrganizations.findFirst().orElse(null);
-  }
-
-  private void clearOutdatedActiveOrganizationAttribute() {
-    if (!userHasOrganization() && userHasActiveOrganizationAttribute()) {
-      user.setAttribute(ACTIVE_ORGANIZATION, new ArrayList<>());
-    } else if (organizationProvider
-        .getUserOrganizationsStream(realm, user)
-        .noneMatch(org -> org.getId().equals(getActiveOrganizationIdFromAttribute()))) {
-      log.warnf("%s doesn't belong to this organization", user.getUsername());
-      user.setAttribute(ACTIVE_ORGANIZATION, new ArrayList<>());
+  private static void scheduleRepair(
+      KeycloakSession session, RealmModel realm, UserModel user, String staleId) {
+    String key = realm.getId() + "." + user.getId();
+    if (!pendingRepairs.add(key)) return;
+    KeycloakSessionFactory factory = session.getKeycloakSessionFactory();
+    String realmId = realm.getId();
+    String userId = user.getId();
+    try {
+      session
+          .getProvider(ExecutorsProvider.class)
+          .getExecutor(REPAIR_EXECUTOR)
+          .execute(
+              () -> {
+                try {
+                  KeycloakModelUtils.runJobInTransaction(
+                      factory, s -> repair(s, realmId, userId, staleId));
+                } catch (Exception e) {
+                  log.warnf(e, "Error clearing active organization of user %s", userId);
+                } finally {
+                  pendingRepairs.remove(key);
+                }
+              });
+    } catch (RejectedExecutionException e) {
+      pendingRepairs.remove(key);
+      log.warnf("Couldn't schedule clearing active organization of user %s", userId);
     }
   }
 
-  public boolean userHasOrganization() {
-    return organizationProvider.getUserOrganizationsStream(realm, user).findFirst().isPresent();
+  private static void repair(
+      KeycloakSession session, String realmId, String userId, String staleId) {
+    RealmModel realm = session.realms().getRealm(realmId);
+    if (realm == null) return;
+    UserModel user = session.users().getUserById(realm, userId);
+    // the user may have switched organizations since
+    if (user == null || !staleId.equals(user.getFirstAttribute(ACTIVE_ORGANIZATION))) return;
+    OrganizationModel org =
+        session.getProvider(OrganizationProvider.class).getOrganizationById(realm, staleId);
+    if (org != null && org.hasMembership(user)) return;
+    log.debugf("clearing active organization %s of user %s", staleId, user.getUsername());
+    user.setAttribute(ACTIVE_ORGANIZATION, new ArrayList<>());
   }
 
-  private String getActiveOrganizationIdFromAttribute() {
-    return user.getFirstAttribute(ACTIVE_ORGANIZATION);
+  public boolean userHasOrganization() {
+    return userHasOrganization;
   }
 
   public List<String> getUserActiveOrganizationRoles() {
-    List<String> userOrganizationRoles = Lists.newArrayList();
-    organization
-        .getRolesStream()
-        .forEach(
-            role -> {
-              if (role.hasRole(user)) {
-                userOrganizationRoles.add(role.getName());
-              }
-            });
-    return userOrganizationRoles;
+    UserOrganizationRoles roles =
+        organizationProvider.getUserOrganizationRoles(realm, user).get(organization.getId());
+    return roles != null ? Lists.newArrayList(roles.getRoles()) : Lists.newArrayList();
   }
 
   public boolean isCurrentActiveOrganization(String organizationId) {
@@ -1,5 +1,7 @@
 package io.phasetwo.service.util;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -23,6 +25,21 @@ public final class Domains {
         .anyMatch(it -> it.equals(userEmailDomain) || isSubDomainOf(userEmailDomain, it));
   }
 
+  /**
+   * The domain followed by each of its parent domains, most specific first. {@code a.b.com} gives
+   * {@code [a.b.com, b.com, com]}.
+   */
+  public static List<String> withParentDomains(String domain) {
+    List<String> domains = new ArrayList<>();
+    domains.add(domain);
+    int dot = domain.indexOf('.');
+    while (dot >= 0) {
+      domains.add(domain.substring(dot + 1));
+      dot = domain.indexOf('.', dot + 1);
+    }
+    return domains;
+  }
+
   private static boolean isSubDomainOf(String subdomain, String orgDomain) {
     return subdomain.endsWith("." + orgDomain);
   }
@@ -0,0 +1,111 @@
+package io.phasetwo.service.util;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import io.phasetwo.service.model.InvitationModel;
+import io.phasetwo.service.model.OrganizationModel;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.keycloak.email.EmailException;
+import org.keycloak.email.EmailTemplateProvider;
+import org.keycloak.email.freemarker.FreeMarkerEmailTemplateProvider;
+import org.keycloak.email.freemarker.beans.ProfileBean;
+import org.keycloak.models.KeycloakSession;
+import org.keycloak.models.RealmModel;
+import org.keycloak.models.UserModel;
+
+/** Renders and sends the invitation email. */
+public class InvitationEmails {
+
+  private static final String TEMPLATE_NAME = "invitation-email.ftl";
+  private static final String SUBJECT_KEY = "invitationEmailSubject";
+
+  // the send method that takes the recipient address is protected
+  private static final Method SEND_METHOD = getSendMethod();
+
+  private static Method getSendMethod() {
+    try {
+      Method method =
+          FreeMarkerEmailTemplateProvider.class.getDeclaredMethod(
+              "send", String.class, List.class, String.class, Map.class, String.class);
+      method.setAccessible(true);
+      return method;
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static void send(
+      KeycloakSession session, RealmModel realm, InvitationModel invitation, UserModel inviter)
+      throws EmailException {
+    OrganizationModel organization = invitation.getOrganization();
+    String email = invitation.getEmail();
+    String realmName =
+        Strings.isNullOrEmpty(realm.getDisplayName()) ? realm.getName() : realm.getDisplayName();
+    String orgName =
+        Strings.isNullOrEmpty(organization.getDisplayName())
+            ? organization.getName()
+            : organization.getDisplayName();
+    String inviterName = getInviterName(inviter).orElse("");
+
+    List<Object> subjectAttributes = ImmutableList.of(realmName, orgName, inviterName);
+    Map<String, Object> bodyAttributes = Maps.newHashMap();
+    bodyAttributes.put("email", email);
+    bodyAttributes.put("realmName", realmName);
+    bodyAttributes.put("orgName", orgName);
+    bodyAttributes.put("inviterName", inviterName);
+    if (inviter != null) bodyAttributes.put("inviter", new ProfileBean(inviter, session));
+    bodyAttributes.put("link", Optional.ofNullable(invitation.getUrl()).orElse(""));
+    bodyAttributes.put("attributes", invitation.getAttributes());
+
+    EmailTemplateProvider emailTemplateProvider =
+        session
+            .getProvider(EmailTemplateProvider.class)
+            .setRealm(realm)
+            .setUser(inviter)
+            .setAttribute("realmName", realmName);
+
+    try {
+      SEND_METHOD.invoke(
+          emailTemplateProvider,
+          SUBJECT_KEY,
+          subjectAttributes,
+          TEMPLATE_NAME,
+          bodyAttributes,
+          email);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof EmailException) throw (EmailException) e.getCause();
+      throw new EmailException(e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new EmailException(e);
+    }
+  }
+
+  public static Optional<String> getInviterName(UserModel user) {
+    if (user == null) return Optional.empty();
+    StringBuilder o = new StringBuilder();
+    if (!Strings.isNullOrEmpty(user.getFirstName())) {
+      o.append(user.getFirstName());
+    }
+    if (!Strings.isNullOrEmpty(user.getLastName())) {
+      if (o.length() > 0) {
+        o.append(" ");
+      }
+      o.append(user.getLastName());
+    }
+    if (!Strings.isNullOrEmpty(user.getEmail())) {
+      if (o.length() > 0) {
+        o.append(" ").append("(");
+      }
+      o.append(user.getEmail());
+      if (o.length() > user.getEmail().length()) {
+        o.append(")");
+      }
+    }
+    return Optional.ofNullable(Strings.emptyToNull(o.toString()));
+  }
+}
@@ -84,15 +84,28 @@ public abstract class AbstractOrganizationTest {
   public static Keycloak keycloak;
   public static ResteasyClient resteasyClient;
 
+  protected static final int INVITATION_PURGE_INTERVAL = 5;
+  protected static final int IDENTITY_PROVIDER_SYNC_INTERVAL = 5;
+
   public static final KeycloakContainer container =
       new KeycloakContainer(KEYCLOAK_IMAGE)
           .withContextPath("/auth")
           .withReuse(true)
           .withProviderClassesFrom("target/classes")
           .withProviderLibsFrom(getDeps())
+          .withEnv(
+              "KC_SPI_ORGANIZATION_PROVIDER_PROVIDER",
+              System.getProperty("organization-provider", "jpa-organization"))
+          .withEnv(
+              "KC_SPI_ORGANIZATION_PROVIDER_JPA_ORGANIZATION_INVITATION_PURGE_INTERVAL",
+              String.valueOf(INVITATION_PURGE_INTERVAL))
+          .withEnv(
+              "KC_SPI_ORGANIZATION_PROVIDER_JPA_ORGANIZATION_IDENTITY_PROVIDER_SYNC_INTERVAL",
+              String.valueOf(IDENTITY_PROVIDER_SYNC_INTERVAL))
           .withAccessToHost(true);
 
   protected static final int WEBHOOK_SERVER_PORT = 8083;
+  protected static final int SMTP_SERVER_PORT = 8025;
 
   static {
     container.start();
@@ -100,7 +113,7 @@ public abstract class AbstractOrganizationTest {
 
   @BeforeAll
   public static void beforeAll() {
-    Testcontainers.exposeHostPorts(WEBHOOK_SERVER_PORT);
+    Testcontainers.exposeHostPorts(WEBHOOK_SERVER_PORT, SMTP_SERVER_PORT);
     resteasyClient =
         new ResteasyClientBuilderImpl()
             .disableTrustManager()
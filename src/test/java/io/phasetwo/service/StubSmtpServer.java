@@ -0,0 +1,109 @@
+package io.phasetwo.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.extern.jbosslog.JBossLog;
+
+/**
+ * Accepts the messages sent by the Keycloak container, and keeps them in memory. It speaks just
+ * enough SMTP for the Keycloak email sender, without authentication or TLS.
+ */
+@JBossLog
+public class StubSmtpServer implements AutoCloseable {
+
+  /** A received message. */
+  public static class Message {
+    private final List<String> recipients;
+    private final String data;
+
+    Message(List<String> recipients, String data) {
+      this.recipients = recipients;
+      this.data = data;
+    }
+
+    public List<String> getRecipients() {
+      return recipients;
+    }
+
+    public String getData() {
+      return data;
+    }
+  }
+
+  private final ServerSocket serverSocket;
+  private final List<Message> messages = new CopyOnWriteArrayList<>();
+
+  public StubSmtpServer(int port) throws IOException {
+    serverSocket = new ServerSocket(port);
+    Thread.ofVirtual().name("stub-smtp").start(this::accept);
+  }
+
+  public List<Message> getMessages() {
+    return messages;
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        Thread.ofVirtual().start(() -> handle(socket));
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) log.warn("stub smtp: accept failed", e);
+      }
+    }
+  }
+
+  private void handle(Socket socket) {
+    try (socket;
+        BufferedReader in =
+            new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+      out.print("220 stub ESMTP\r\n");
+      out.flush();
+      List<String> recipients = new CopyOnWriteArrayList<>();
+      String line;
+      while ((line = in.readLine()) != null) {
+        String command = line.toUpperCase();
+        if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+          out.print("250 stub\r\n");
+        } else if (command.startsWith("RCPT TO:")) {
+          recipients.add(line.substring(8).trim().replaceAll("[<>]", ""));
+          out.print("250 OK\r\n");
+        } else if (command.startsWith("DATA")) {
+          out.print("354 End data with <CR><LF>.<CR><LF>\r\n");
+          out.flush();
+          StringBuilder data = new StringBuilder();
+          while ((line = in.readLine()) != null && !line.equals(".")) {
+            data.append(line).append("\n");
+          }
+          messages.add(new Message(List.copyOf(recipients), data.toString()));
+          recipients.clear();
+          out.print("250 OK\r\n");
+        } else if (command.startsWith("QUIT")) {
+          out.print("221 Bye\r\n");
+          out.flush();
+          return;
+        } else {
+          // MAIL FROM, RSET, NOOP
+          out.print("250 OK\r\n");
+        }
+        out.flush();
+      }
+    } catch (IOException e) {
+      log.warn("stub smtp: connection failed", e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+  }
+}
@@ -0,0 +1,151 @@
+package io.phasetwo.service.auth.invitation;
+
+import static io.phasetwo.service.Helpers.createUserWithCredentials;
+import static io.phasetwo.service.Helpers.deleteUser;
+import static io.phasetwo.service.Helpers.objectMapper;
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+import io.phasetwo.client.openapi.model.OrganizationRepresentation;
+import io.phasetwo.service.AbstractOrganizationTest;
+import io.phasetwo.service.representation.InvitationRequest;
+import io.restassured.filter.cookie.CookieFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import jakarta.ws.rs.core.Response.Status;
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.jbosslog.JBossLog;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RequiredActionProviderSimpleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+/** Accepting some invitations and declining the rest on the invitations form of a login. */
+@JBossLog
+class InvitationRequiredActionTest extends AbstractOrganizationTest {
+
+  private static final String CLIENT_ID = "invitation-test-client";
+  private static final String REDIRECT_URI = "http://localhost:3000/callback";
+  private static final Pattern FORM_ACTION = Pattern.compile("<form[^>]* action=\"([^\"]+)\"");
+
+  @Test
+  void testAcceptSomeAndDeclineTheRest() throws Exception {
+    createPublicClient(CLIENT_ID);
+    registerRequiredAction();
+    UserRepresentation user =
+        createUserWithCredentials(keycloak, REALM, "invited", "pass", "invited@example.com");
+    user.setEmailVerified(true);
+    keycloak.realm(REALM).users().get(user.getId()).update(user);
+
+    String accepted = createOrganization("accepted");
+    String declined = createOrganization("declined");
+    String expired = createOrganization("expired");
+    createOrgRole(accepted, "accepted-role");
+    createOrgRole(declined, "declined-role");
+    invite(accepted, new InvitationRequest().roles(List.of("accepted-role")));
+    invite(declined, new InvitationRequest().roles(List.of("declined-role")));
+    invite(expired, new InvitationRequest().expiresIn(4));
+
+    try {
+      // log in, which shows the invitations form
+      CookieFilter cookies = new CookieFilter();
+      Response response =
+          given()
+              .filter(cookies)
+              .queryParam("client_id", CLIENT_ID)
+              .queryParam("redirect_uri", REDIRECT_URI)
+              .queryParam("response_type", "code")
+              .queryParam("scope", "openid")
+              .get(getAuthUrl() + "/realms/" + REALM + "/protocol/openid-connect/auth");
+      assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+      response =
+          submit(
+              cookies,
+              response,
+              given().formParam("username", "invited").formParam("password", "pass"));
+      assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+      String form = response.getBody().asString();
+      assertThat(form, containsString("org-" + accepted));
+      assertThat(form, containsString("org-" + declined));
+      assertThat(form, containsString("org-" + expired));
+
+      // the expired invitation is left out even though it was selected
+      Thread.sleep(4500);
+      response =
+          submit(cookies, response, given().formParam("orgs", accepted).formParam("orgs", expired));
+      assertThat(response.getStatusCode(), is(Status.FOUND.getStatusCode()));
+      assertThat(response.getHeader("Location"), startsWith(REDIRECT_URI));
+    } finally {
+      keycloak
+          .realm(REALM)
+          .flows()
+          .removeRequiredAction(InvitationRequiredActionFactory.PROVIDER_ID);
+    }
+
+    // membership and role of the accepted invitation
+    assertThat(getMemberStatus(accepted, user.getId()), is(Status.NO_CONTENT.getStatusCode()));
+    checkUserRole(accepted, "accepted-role", user.getId(), Status.NO_CONTENT.getStatusCode());
+    assertThat(getInvitationCount(accepted), is(0L));
+
+    // nothing from the declined one, which is removed
+    assertThat(getMemberStatus(declined, user.getId()), is(Status.NOT_FOUND.getStatusCode()));
+    checkUserRole(declined, "declined-role", user.getId(), Status.NOT_FOUND.getStatusCode());
+    assertThat(getInvitationCount(declined), is(0L));
+
+    // nor from the expired one
+    assertThat(getMemberStatus(expired, user.getId()), is(Status.NOT_FOUND.getStatusCode()));
+
+    deleteOrganization(accepted);
+    deleteOrganization(declined);
+    deleteOrganization(expired);
+    deleteUser(keycloak, REALM, user.getId());
+    deleteClient(CLIENT_ID);
+  }
+
+  private void registerRequiredAction() {
+    RequiredActionProviderSimpleRepresentation action =
+        new RequiredActionProviderSimpleRepresentation();
+    action.setProviderId(InvitationRequiredActionFactory.PROVIDER_ID);
+    action.setName("Invitations");
+    keycloak.realm(REALM).flows().registerRequiredAction(action);
+  }
+
+  private String createOrganization(String name) throws IOException {
+    return createOrganization(
+            new OrganizationRepresentation().name(name).domains(List.of(name + ".com")))
+        .getId();
+  }
+
+  private void invite(String orgId, InvitationRequest request) throws IOException {
+    Response response = postRequest(request.email("invited@example.com"), orgId, "invitations");
+    assertThat(response.getStatusCode(), is(Status.CREATED.getStatusCode()));
+  }
+
+  private int getMemberStatus(String orgId, String userId) {
+    return getRequest(orgId, "members", userId).getStatusCode();
+  }
+
+  private long getInvitationCount(String orgId) throws IOException {
+    Response response = getRequest(orgId, "invitations", "count");
+    return objectMapper().readValue(response.getBody().asString(), Long.class);
+  }
+
+  /** Posts the form of the page, and follows the redirect to the next page, if any. */
+  private static Response submit(CookieFilter cookies, Response page, RequestSpecification form) {
+    Matcher matcher = FORM_ACTION.matcher(page.getBody().asString());
+    assertThat(matcher.find(), is(true));
+    String action = matcher.group(1).replace("&amp;", "&");
+    Response response = form.filter(cookies).redirects().follow(false).post(action);
+    String location = response.getHeader("Location");
+    if (response.getStatusCode() != Status.FOUND.getStatusCode()
+        || location.startsWith(REDIRECT_URI)) {
+      return response;
+    }
+    return given().filter(cookies).get(location);
+  }
+}
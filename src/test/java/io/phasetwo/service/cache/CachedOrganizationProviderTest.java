@@ -0,0 +1,218 @@
+package io.phasetwo.service.cache;
+
+import static io.phasetwo.service.Helpers.createUser;
+import static io.phasetwo.service.Helpers.deleteUser;
+import static io.phasetwo.service.Helpers.getOrganizationEvents;
+import static io.phasetwo.service.Helpers.loadJson;
+import static io.phasetwo.service.Helpers.objectMapper;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.phasetwo.client.openapi.model.OrganizationDomainRepresentation;
+import io.phasetwo.client.openapi.model.OrganizationRepresentation;
+import io.phasetwo.client.openapi.model.OrganizationRoleRepresentation;
+import io.phasetwo.service.AbstractOrganizationTest;
+import io.phasetwo.service.importexport.representation.KeycloakOrgsRepresentation;
+import io.phasetwo.service.representation.Organization;
+import io.restassured.response.Response;
+import jakarta.ws.rs.core.Response.Status;
+import java.io.IOException;
+import java.util.List;
+import lombok.extern.jbosslog.JBossLog;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.AdminEventRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+/**
+ * Reads after writes, with the {@code cached-organization} provider. The surefire execution of this
+ * package starts the container with that provider. Every test warms the cache with a read before
+ * the write, so that a missed invalidation shows up as a stale read.
+ */
+@JBossLog
+class CachedOrganizationProviderTest extends AbstractOrganizationTest {
+
+  @Test
+  void testReadAfterUpdate() throws IOException {
+    OrganizationRepresentation org =
+        createOrganization(
+            new OrganizationRepresentation().name("cached").domains(List.of("cached.com")));
+    String id = org.getId();
+    assertThat(getOrganization(id).getName(), is("cached"));
+    assertThat(getDomainNames(id), contains("cached.com"));
+
+    org.name("cached-renamed").domains(List.of("renamed.com", "other.net"));
+    Response response = putRequest(org, id);
+    assertThat(response.getStatusCode(), is(Status.NO_CONTENT.getStatusCode()));
+
+    // the update event is built from the organization read in the updating session
+    AdminEventRepresentation update =
+        getOrganizationEvents(keycloak)
+            .filter(e -> e.getOperationType().equals("UPDATE"))
+            .filter(e -> e.getResourcePath().endsWith(id))
+            .findFirst()
+            .orElseThrow();
+    Organization updated = objectMapper().readValue(update.getRepresentation(), Organization.class);
+    assertThat(updated.getName(), is("cached-renamed"));
+    assertThat(updated.getDomains(), containsInAnyOrder("renamed.com", "other.net"));
+
+    // and in the following requests
+    assertThat(getOrganization(id).getName(), is("cached-renamed"));
+    assertThat(getDomainNames(id), containsInAnyOrder("renamed.com", "other.net"));
+
+    deleteOrganization(id);
+  }
+
+  @Test
+  void testRolesAfterUpdate() throws IOException {
+    String id = createDefaultOrg().getId();
+    assertThat(getRoleNames(id), not(hasItem("cached-role")));
+
+    createOrgRole(id, "cached-role");
+    assertThat(getRoleNames(id), hasItem("cached-role"));
+
+    Response response = deleteRequest(id, "roles", "cached-role");
+    assertThat(response.getStatusCode(), is(Status.NO_CONTENT.getStatusCode()));
+    assertThat(getRoleNames(id), not(hasItem("cached-role")));
+
+    deleteOrganization(id);
+  }
+
+  @Test
+  void testMembershipsAfterUpdate() throws IOException {
+    String id = createDefaultOrg().getId();
+    UserRepresentation user = createUser(keycloak, REALM, "cached-member");
+    assertThat(getUserOrganizationIds(user.getId()), empty());
+    assertThat(
+        getRequest(id, "members", user.getId()).getStatusCode(),
+        is(Status.NOT_FOUND.getStatusCode()));
+
+    Response response = putRequest("foo", id, "members", user.getId());
+    assertThat(response.getStatusCode(), is(Status.CREATED.getStatusCode()));
+    assertThat(getUserOrganizationIds(user.getId()), contains(id));
+    assertThat(
+        getRequest(id, "members", user.getId()).getStatusCode(),
+        is(Status.NO_CONTENT.getStatusCode()));
+
+    response = deleteRequest(id, "members", user.getId());
+    assertThat(response.getStatusCode(), is(Status.NO_CONTENT.getStatusCode()));
+    assertThat(getUserOrganizationIds(user.getId()), empty());
+    assertThat(
+        getRequest(id, "members", user.getId()).getStatusCode(),
+        is(Status.NOT_FOUND.getStatusCode()));
+
+    deleteUser(keycloak, REALM, user.getId());
+    deleteOrganization(id);
+  }
+
+  @Test
+  void testRoleMappingsAfterUpdate() throws IOException {
+    String id = createDefaultOrg().getId();
+    UserRepresentation user = createUser(keycloak, REALM, "cached-mapping");
+    Response response = putRequest("foo", id, "members", user.getId());
+    assertThat(response.getStatusCode(), is(Status.CREATED.getStatusCode()));
+    createOrgRole(id, "cached-mapped");
+    checkUserRole(id, "cached-mapped", user.getId(), Status.NOT_FOUND.getStatusCode());
+    assertThat(getUserRoleNames(user.getId(), id), not(hasItem("cached-mapped")));
+
+    grantUserRole(id, "cached-mapped", user.getId());
+    checkUserRole(id, "cached-mapped", user.getId(), Status.NO_CONTENT.getStatusCode());
+    assertThat(getUserRoleNames(user.getId(), id), hasItem("cached-mapped"));
+
+    revokeUserRole(id, "cached-mapped", user.getId());
+    checkUserRole(id, "cached-mapped", user.getId(), Status.NOT_FOUND.getStatusCode());
+    assertThat(getUserRoleNames(user.getId(), id), not(hasItem("cached-mapped")));
+
+    deleteUser(keycloak, REALM, user.getId());
+    deleteOrganization(id);
+  }
+
+  @Test
+  void testReadAfterRemoval() throws IOException {
+    String id = createDefaultOrg().getId();
+    UserRepresentation user = createUser(keycloak, REALM, "cached-removed");
+    Response response = putRequest("foo", id, "members", user.getId());
+    assertThat(response.getStatusCode(), is(Status.CREATED.getStatusCode()));
+    assertThat(getRequest(id).getStatusCode(), is(Status.OK.getStatusCode()));
+    assertThat(getUserOrganizationIds(user.getId()), contains(id));
+
+    deleteOrganization(id);
+
+    assertThat(getRequest(id).getStatusCode(), is(Status.NOT_FOUND.getStatusCode()));
+    assertThat(getUserOrganizationIds(user.getId()), empty());
+
+    deleteUser(keycloak, REALM, user.getId());
+  }
+
+  @Test
+  void testMembershipReadInTheImportingSession() {
+    String realm = "org-realm";
+    importRealm(
+        loadJson(
+            getClass()
+                .getResourceAsStream(
+                    "/orgs/invitations-test/org-invitations-import-existing-member-test-realm.json"),
+            RealmRepresentation.class),
+        keycloak);
+    try {
+      // the invitation is for a member granted earlier in the same import
+      Response response =
+          importOrgs(
+              loadJson(
+                  getClass()
+                      .getResourceAsStream(
+                          "/orgs/invitations-test/org-invitations-import-existing-member-test.json"),
+                  KeycloakOrgsRepresentation.class),
+              keycloak,
+              realm);
+      assertThat(response.getStatusCode(), is(Status.BAD_REQUEST.getStatusCode()));
+    } finally {
+      keycloak.realm(realm).remove();
+    }
+  }
+
+  private OrganizationRepresentation getOrganization(String id) throws IOException {
+    Response response = getRequest(id);
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+    return objectMapper()
+        .readValue(response.getBody().asString(), OrganizationRepresentation.class);
+  }
+
+  private List<String> getDomainNames(String id) throws IOException {
+    Response response = getRequest(id, "domains");
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+    List<OrganizationDomainRepresentation> domains =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    return domains.stream().map(OrganizationDomainRepresentation::getDomainName).toList();
+  }
+
+  private List<String> getRoleNames(String id) throws IOException {
+    Response response = getRequest(id, "roles");
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+    List<OrganizationRoleRepresentation> roles =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    return roles.stream().map(OrganizationRoleRepresentation::getName).toList();
+  }
+
+  private List<String> getUserOrganizationIds(String userId) throws IOException {
+    Response response = givenSpec("users", userId, "orgs").when().get().andReturn();
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+    List<OrganizationRepresentation> orgs =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    return orgs.stream().map(OrganizationRepresentation::getId).toList();
+  }
+
+  private List<String> getUserRoleNames(String userId, String orgId) throws IOException {
+    Response response = givenSpec("users", userId, "orgs", orgId, "roles").when().get().andReturn();
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+    List<OrganizationRoleRepresentation> roles =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    return roles.stream().map(OrganizationRoleRepresentation::getName).toList();
+  }
+}
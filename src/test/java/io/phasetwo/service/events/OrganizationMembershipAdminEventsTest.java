@@ -5,11 +5,13 @@ import static io.phasetwo.service.Helpers.createUser;
 import static io.phasetwo.service.Helpers.deleteUser;
 import static io.phasetwo.service.Helpers.getOrganizationEvents;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import io.phasetwo.client.openapi.model.OrganizationRepresentation;
 import io.phasetwo.service.AbstractOrganizationTest;
+import io.phasetwo.service.representation.OrganizationMember;
 import io.phasetwo.service.resource.OrganizationResourceType;
 import java.io.IOException;
 import java.util.List;
@@ -66,6 +68,47 @@ class OrganizationMembershipAdminEventsTest extends AbstractOrganizationTest {
     deleteUser(keycloak, REALM, user.getId());
   }
 
+  @Test
+  void organizationBulkMembershipEventsTest() throws IOException {
+    var user1 = createUser(keycloak, REALM, "johndoe");
+    var user2 = createUser(keycloak, REALM, "johndow");
+
+    // add one member, then both of them
+    putRequest(
+        List.of(new OrganizationMember().id(user1.getId())), organization.getId(), "members");
+    putRequest(
+        List.of(
+            new OrganizationMember().id(user1.getId()), new OrganizationMember().id(user2.getId())),
+        organization.getId(),
+        "members");
+
+    // remove both of them, and then again
+    List<OrganizationMember> members =
+        List.of(
+            new OrganizationMember().id(user1.getId()), new OrganizationMember().id(user2.getId()));
+    patchRequest(members, organization.getId() + "/members");
+    patchRequest(members, organization.getId() + "/members");
+
+    // one event per membership granted or revoked
+    assertThat(membershipEvents("CREATE"), containsInAnyOrder(user1.getId(), user2.getId()));
+    assertThat(membershipEvents("DELETE"), containsInAnyOrder(user1.getId(), user2.getId()));
+
+    deleteUser(keycloak, REALM, user1.getId());
+    deleteUser(keycloak, REALM, user2.getId());
+  }
+
+  private List<String> membershipEvents(String operationType) {
+    return getOrganizationEvents(keycloak)
+        .filter(
+            e ->
+                e.getResourceType()
+                    .equals(OrganizationResourceType.ORGANIZATION_MEMBERSHIP.toString()))
+        .filter(e -> e.getOperationType().equals(operationType))
+        // the representation is the user id, as a json string
+        .map(e -> e.getRepresentation().replace("\"", ""))
+        .toList();
+  }
+
   @AfterEach
   public void afterEach() {
     getOrganizationEvents(keycloak)
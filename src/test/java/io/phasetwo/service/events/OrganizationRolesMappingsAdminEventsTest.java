@@ -12,6 +12,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import io.phasetwo.client.openapi.model.OrganizationRepresentation;
 import io.phasetwo.service.AbstractOrganizationTest;
+import io.phasetwo.service.representation.OrganizationMember;
 import io.phasetwo.service.representation.OrganizationRole;
 import io.phasetwo.service.resource.OrganizationResourceType;
 import java.io.IOException;
@@ -132,6 +133,38 @@ class OrganizationRolesMappingsAdminEventsTest extends AbstractOrganizationTest
     assertThat(deleteEvents, hasSize(1));
   }
 
+  @Test
+  void bulkMembersRoleMappingEventsTest() throws IOException {
+    // grant roles to the existing member, and then one of them again
+    putRequest(
+        List.of(
+            new OrganizationMember()
+                .id(user.getId())
+                .roles(List.of(ORG_ROLE_VIEW_ORGANIZATION, ORG_ROLE_MANAGE_ORGANIZATION))),
+        organization.getId(),
+        "members");
+    putRequest(
+        List.of(
+            new OrganizationMember().id(user.getId()).roles(List.of(ORG_ROLE_VIEW_ORGANIZATION))),
+        organization.getId(),
+        "members");
+
+    // one event per role granted
+    var createEvents =
+        getOrganizationEvents(keycloak)
+            .filter(
+                adminEventRepresentation ->
+                    adminEventRepresentation
+                        .getResourceType()
+                        .equals(OrganizationResourceType.ORGANIZATION_ROLE_MAPPING.toString()))
+            .filter(
+                adminEventRepresentation ->
+                    adminEventRepresentation.getOperationType().equals("CREATE"))
+            .toList();
+
+    assertThat(createEvents, hasSize(2));
+  }
+
   @AfterEach
   public void afterEach() {
     getOrganizationEvents(keycloak)
@@ -0,0 +1,127 @@
+package io.phasetwo.service.globalconfig;
+
+import static io.phasetwo.service.Helpers.objectMapper;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.phasetwo.service.AbstractOrganizationTest;
+import io.phasetwo.service.representation.BulkResponseItem;
+import io.phasetwo.service.representation.Invitation;
+import io.phasetwo.service.representation.InvitationRequest;
+import io.phasetwo.service.representation.OrganizationsConfig;
+import io.restassured.response.Response;
+import jakarta.ws.rs.core.Response.Status;
+import java.io.IOException;
+import java.util.List;
+import lombok.extern.jbosslog.JBossLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@JBossLog
+public class InvitationTtlTest extends AbstractOrganizationTest {
+
+  @Test
+  void testInvitationExpiry() throws Exception {
+    setInvitationTtl(3600);
+    var url = getAuthUrl() + "/realms/master/orgs/config";
+    OrganizationsConfig config =
+        objectMapper().readValue(getRequest(url).getBody().asString(), OrganizationsConfig.class);
+    assertThat(config.getInvitationTtl(), is(3600));
+
+    String id = createDefaultOrg().getId();
+
+    // the realm's time to live
+    Invitation invitation = createInvitation(id, new InvitationRequest().email("jdoe@example.com"));
+    assertThat(invitation.getExpiresAt(), notNullValue());
+
+    // the invitation's own, or none
+    invitation =
+        createInvitation(id, new InvitationRequest().email("never@example.com").expiresIn(0));
+    assertThat(invitation.getExpiresAt(), nullValue());
+    invitation =
+        createInvitation(id, new InvitationRequest().email("soon@example.com").expiresIn(1));
+    assertThat(invitation.getExpiresAt(), notNullValue());
+
+    // the purge removes the expired invitation on its next run
+    Response response = getRequest(id, "invitations", invitation.getId());
+    assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
+    long deadline = System.currentTimeMillis() + 6 * INVITATION_PURGE_INTERVAL * 1000L;
+    while (response.statusCode() == Status.OK.getStatusCode()
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(500);
+      response = getRequest(id, "invitations", invitation.getId());
+    }
+    assertThat(response.statusCode(), is(Status.NOT_FOUND.getStatusCode()));
+    response = getRequest(id, "invitations", "count");
+    assertThat(objectMapper().readValue(response.getBody().asString(), Long.class), is(2L));
+
+    deleteOrganization(id);
+  }
+
+  @Test
+  void testReinviteExpired() throws Exception {
+    String id = createDefaultOrg().getId();
+
+    Invitation single =
+        createInvitation(id, new InvitationRequest().email("single@example.com").expiresIn(1));
+    Invitation bulk =
+        createInvitation(id, new InvitationRequest().email("bulk@example.com").expiresIn(1));
+    // expired, whether or not the purge has run yet
+    Thread.sleep(1500);
+
+    // the expired invitation is replaced instead of conflicting
+    Invitation invitation =
+        createInvitation(id, new InvitationRequest().email("single@example.com").expiresIn(0));
+    assertThat(invitation.getId(), not(single.getId()));
+    assertThat(invitation.getExpiresAt(), nullValue());
+
+    Response response =
+        putRequest(
+            List.of(
+                new InvitationRequest().email("bulk@example.com"),
+                new InvitationRequest().email("single@example.com")),
+            id,
+            "invitations");
+    assertThat(response.getStatusCode(), is(207));
+    List<BulkResponseItem> items =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(items, hasSize(2));
+    assertThat(items.get(0).getStatus(), is(Status.CREATED.getStatusCode()));
+    assertThat(items.get(1).getStatus(), is(Status.CONFLICT.getStatusCode()));
+
+    response = getRequest(id, "invitations", bulk.getId());
+    assertThat(response.statusCode(), is(Status.NOT_FOUND.getStatusCode()));
+    response = getRequest(id, "invitations", "count");
+    assertThat(objectMapper().readValue(response.getBody().asString(), Long.class), is(2L));
+
+    deleteOrganization(id);
+  }
+
+  private Invitation createInvitation(String orgId, InvitationRequest request) throws IOException {
+    Response response = postRequest(request, orgId, "invitations");
+    assertThat(response.statusCode(), is(Status.CREATED.getStatusCode()));
+    String loc = response.getHeader("Location");
+    response = getRequest(orgId, "invitations", loc.substring(loc.lastIndexOf("/") + 1));
+    assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
+    return objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+  }
+
+  private void setInvitationTtl(int ttl) throws JsonProcessingException {
+    var url = getAuthUrl() + "/realms/master/orgs/config";
+    var orgConfig = new OrganizationsConfig();
+    orgConfig.setInvitationTtl(ttl);
+    var responseOrgsConfig = putRequest(orgConfig, url);
+    assertThat(responseOrgsConfig.getStatusCode(), is(Status.OK.getStatusCode()));
+  }
+
+  @AfterEach
+  public void afterEach() throws JsonProcessingException {
+    setInvitationTtl(0);
+  }
+}
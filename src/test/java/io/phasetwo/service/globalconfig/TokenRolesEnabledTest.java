@@ -0,0 +1,94 @@
+package io.phasetwo.service.globalconfig;
+
+import static io.phasetwo.service.Helpers.createUserWithCredentials;
+import static io.phasetwo.service.Helpers.deleteUser;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.phasetwo.service.AbstractOrganizationTest;
+import io.phasetwo.service.protocol.oidc.mappers.OrganizationRoleMapper;
+import io.phasetwo.service.representation.OrganizationsConfig;
+import io.phasetwo.service.resource.OrganizationAdminAuth;
+import io.restassured.response.Response;
+import jakarta.ws.rs.core.Response.Status;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.extern.jbosslog.JBossLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.ProtocolMappersResource;
+import org.keycloak.protocol.oidc.OIDCLoginProtocol;
+import org.keycloak.protocol.oidc.mappers.OIDCAttributeMapperHelper;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.ProtocolMapperRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+@JBossLog
+public class TokenRolesEnabledTest extends AbstractOrganizationTest {
+
+  private static final String MAPPER_NAME = "test-token-roles-mapper";
+
+  @Test
+  void testAuthorizeFromTokenRoles() throws Exception {
+    String id = createDefaultOrg().getId();
+    UserRepresentation user = createUserWithCredentials(keycloak, REALM, "jdoe", "pass");
+    Response response = putRequest("foo", id, "members", user.getId());
+    assertThat(response.getStatusCode(), is(Status.CREATED.getStatusCode()));
+    grantUserRole(id, OrganizationAdminAuth.ORG_ROLE_VIEW_MEMBERS, user.getId());
+
+    ClientRepresentation client = keycloak.realm(REALM).clients().findByClientId(ADMIN_CLI).get(0);
+    ProtocolMappersResource mappers =
+        keycloak.realm(REALM).clients().get(client.getId()).getProtocolMappers();
+    ProtocolMapperRepresentation mapper = new ProtocolMapperRepresentation();
+    mapper.setProtocol(OIDCLoginProtocol.LOGIN_PROTOCOL);
+    mapper.setProtocolMapper(OrganizationRoleMapper.PROVIDER_ID);
+    mapper.setName(MAPPER_NAME);
+    Map<String, String> config = new HashMap<>();
+    config.put(OIDCAttributeMapperHelper.TOKEN_CLAIM_NAME, "organizations");
+    config.put(OIDCAttributeMapperHelper.INCLUDE_IN_ACCESS_TOKEN, "true");
+    mapper.setConfig(config);
+    mappers.createMapper(mapper).close();
+
+    setTokenRolesConfig(true, 300);
+    Keycloak userKeycloak = getKeycloak(REALM, ADMIN_CLI, user.getUsername(), "pass");
+    response = getRequest(userKeycloak, id, "members");
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+
+    // the token still has the revoked role, and is trusted until it's older than the max age
+    revokeUserRole(id, OrganizationAdminAuth.ORG_ROLE_VIEW_MEMBERS, user.getId());
+    response = getRequest(userKeycloak, id, "members");
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+
+    // every token is too old
+    setTokenRolesConfig(true, -1);
+    response = getRequest(userKeycloak, id, "members");
+    assertThat(response.getStatusCode(), is(Status.UNAUTHORIZED.getStatusCode()));
+
+    // disabled
+    setTokenRolesConfig(false, 300);
+    response = getRequest(userKeycloak, id, "members");
+    assertThat(response.getStatusCode(), is(Status.UNAUTHORIZED.getStatusCode()));
+
+    mappers.getMappers().stream()
+        .filter(m -> MAPPER_NAME.equals(m.getName()))
+        .forEach(m -> mappers.delete(m.getId()));
+    deleteUser(keycloak, REALM, user.getId());
+    deleteOrganization(id);
+  }
+
+  private void setTokenRolesConfig(boolean enabled, int maxAge) throws JsonProcessingException {
+    var url = getAuthUrl() + "/realms/master/orgs/config";
+    var orgConfig = new OrganizationsConfig();
+    orgConfig.setTokenRoles(enabled);
+    orgConfig.setTokenRolesMaxAge(maxAge);
+    var responseOrgsConfig = putRequest(orgConfig, url);
+    assertThat(responseOrgsConfig.getStatusCode(), is(Status.OK.getStatusCode()));
+  }
+
+  @AfterEach
+  public void afterEach() throws JsonProcessingException {
+    setTokenRolesConfig(false, 300);
+  }
+}
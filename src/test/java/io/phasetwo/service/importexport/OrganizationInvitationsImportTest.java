@@ -291,6 +291,48 @@ public class OrganizationInvitationsImportTest extends AbstractOrganizationTest
             });
   }
 
+  @Test
+  void testRealmRemovalRemovesOrganizations() throws IOException {
+    // a fixed id, so that anything left behind shows up in the realm imported again
+    RealmRepresentation testRealm =
+        loadJson(
+            getClass()
+                .getResourceAsStream(
+                    "/orgs/invitations-test/org-invitations-import-test-realm.json"),
+            RealmRepresentation.class);
+    testRealm.setId("org-realm-removal");
+    importRealm(testRealm, keycloak);
+
+    // organizations with roles, members, role mappings and invitations
+    KeycloakOrgsRepresentation orgsRepresentation =
+        loadJson(
+            getClass()
+                .getResourceAsStream("/orgs/invitations-test/org-invitations-import-test.json"),
+            KeycloakOrgsRepresentation.class);
+    var orgsImportResponse = importOrgs(orgsRepresentation, keycloak, realm);
+    assertThat(orgsImportResponse.getStatusCode(), is(Response.Status.OK.getStatusCode()));
+
+    keycloak.realm(realm).remove();
+    importRealm(testRealm, keycloak);
+
+    var response =
+        given()
+            .baseUri(container.getAuthServerUrl())
+            .basePath("realms/" + realm + "/orgs")
+            .contentType("application/json")
+            .auth()
+            .oauth2(keycloak.tokenManager().getAccessTokenString())
+            .and()
+            .when()
+            .get()
+            .then()
+            .extract()
+            .response();
+    List<OrganizationRepresentation> organizations =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(organizations, hasSize(0));
+  }
+
   @AfterEach
   public void afterEach() {
     // delete realm
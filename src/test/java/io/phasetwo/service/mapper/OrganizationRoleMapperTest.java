@@ -7,7 +7,9 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
+import io.phasetwo.client.openapi.model.OrganizationRepresentation;
 import io.phasetwo.service.AbstractOrganizationTest;
+import io.phasetwo.service.protocol.oidc.mappers.CompactOrganizationClaim;
 import io.phasetwo.service.protocol.oidc.mappers.OrganizationRoleMapper;
 import io.phasetwo.service.resource.OrganizationAdminAuth;
 import io.restassured.response.Response;
@@ -15,9 +17,11 @@ import jakarta.ws.rs.core.Response.Status;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import lombok.extern.jbosslog.JBossLog;
 import org.junit.jupiter.api.Test;
 import org.keycloak.TokenVerifier;
+import org.keycloak.admin.client.resource.ProtocolMappersResource;
 import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.protocol.oidc.OIDCLoginProtocol;
 import org.keycloak.protocol.oidc.mappers.OIDCAttributeMapperHelper;
@@ -30,6 +34,7 @@ import org.keycloak.representations.idm.UserRepresentation;
 class OrganizationRoleMapperTest extends AbstractOrganizationTest {
 
   public static final String CLAIM = "organizations";
+  public static final String COMPACT_CLAIM = "organizations_compact";
 
   @Test
   void shouldConfigureOrganizationRoleOidcProtocolMapper() throws Exception {
@@ -88,6 +93,67 @@ class OrganizationRoleMapperTest extends AbstractOrganizationTest {
     deleteOrganization(keycloak, id);
   }
 
+  @Test
+  void shouldEncodeCompactOrganizationRoleClaim() throws Exception {
+    String id1 = createOrganization(new OrganizationRepresentation().name("compact-1")).getId();
+    String id2 = createOrganization(new OrganizationRepresentation().name("compact-2")).getId();
+
+    final UserRepresentation user = createUserWithCredentials(keycloak, REALM, "jdoe", "pass");
+
+    for (String id : List.of(id1, id2)) {
+      Response response = putRequest("foo", id, "members", user.getId());
+      assertThat(response.getStatusCode(), is(Status.CREATED.getStatusCode()));
+    }
+    grantUserRole(id1, OrganizationAdminAuth.ORG_ROLE_VIEW_ORGANIZATION, user.getId());
+    grantUserRole(id1, OrganizationAdminAuth.ORG_ROLE_MANAGE_ORGANIZATION, user.getId());
+    grantUserRole(id2, OrganizationAdminAuth.ORG_ROLE_VIEW_ORGANIZATION, user.getId());
+
+    RealmResource realm = keycloak.realm(REALM);
+    ClientRepresentation client = realm.clients().findByClientId(ADMIN_CLI).get(0);
+
+    ProtocolMapperRepresentation mapper = new ProtocolMapperRepresentation();
+    mapper.setProtocol(OIDCLoginProtocol.LOGIN_PROTOCOL);
+    mapper.setProtocolMapper(OrganizationRoleMapper.PROVIDER_ID);
+    mapper.setName("test-oidc-compact-role-mapper");
+    Map<String, String> config = new HashMap<>();
+    config.put(OIDCAttributeMapperHelper.TOKEN_CLAIM_NAME, COMPACT_CLAIM);
+    config.put(OIDCAttributeMapperHelper.INCLUDE_IN_ACCESS_TOKEN, "true");
+    config.put("compact.claim", "true");
+    mapper.setConfig(config);
+    realm.clients().get(client.getId()).getProtocolMappers().createMapper(mapper).close();
+
+    keycloak = getKeycloak(REALM, ADMIN_CLI, user.getUsername(), "pass");
+
+    TokenVerifier<AccessToken> verifier =
+        TokenVerifier.create(keycloak.tokenManager().getAccessTokenString(), AccessToken.class);
+    verifier.parse();
+    AccessToken accessToken = verifier.getToken();
+
+    Map<String, Object> claim =
+        (Map<String, Object>) accessToken.getOtherClaims().get(COMPACT_CLAIM);
+    assertNotNull(claim);
+    Map<String, Set<String>> roles = CompactOrganizationClaim.decodeRoles(claim);
+    assertThat(
+        roles.get(id1),
+        is(
+            Set.of(
+                OrganizationAdminAuth.ORG_ROLE_VIEW_ORGANIZATION,
+                OrganizationAdminAuth.ORG_ROLE_MANAGE_ORGANIZATION)));
+    assertThat(roles.get(id2), is(Set.of(OrganizationAdminAuth.ORG_ROLE_VIEW_ORGANIZATION)));
+
+    // change authorization
+    keycloak =
+        getKeycloak(REALM, ADMIN_CLI, container.getAdminUsername(), container.getAdminPassword());
+    ProtocolMappersResource mappers =
+        keycloak.realm(REALM).clients().get(client.getId()).getProtocolMappers();
+    mappers.getMappers().stream()
+        .filter(m -> "test-oidc-compact-role-mapper".equals(m.getName()))
+        .forEach(m -> mappers.delete(m.getId()));
+    deleteUser(keycloak, REALM, user.getId());
+    deleteOrganization(keycloak, id1);
+    deleteOrganization(keycloak, id2);
+  }
+
   private static void configureCustomOidcProtocolMapper(
       RealmResource realm, ClientRepresentation client) {
     ProtocolMapperRepresentation mapper = new ProtocolMapperRepresentation();
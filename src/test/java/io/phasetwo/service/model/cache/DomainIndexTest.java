@@ -0,0 +1,48 @@
+package io.phasetwo.service.model.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+import org.junit.jupiter.api.Test;
+
+class DomainIndexTest {
+
+  private final DomainIndex index =
+      DomainIndex.builder()
+          .add("example.com", "parent", true)
+          .add("eng.example.com", "child", true)
+          .add("unverified.com", "unverified", false)
+          .add("Mixed.Case.org", "mixed", true)
+          .build();
+
+  @Test
+  void testExactMatch() {
+    assertThat(index.lookup("example.com", false, false), contains("parent"));
+    assertThat(index.lookup("eng.example.com", false, false), contains("child"));
+    assertThat(index.lookup("mixed.case.org", false, false), contains("mixed"));
+    assertThat(index.lookup("other.com", false, false), empty());
+  }
+
+  @Test
+  void testSubdomainMatch() {
+    // without parent domains, a subdomain only matches its own organizations
+    assertThat(index.lookup("dev.eng.example.com", false, false), empty());
+    assertThat(index.lookup("sales.example.com", false, false), empty());
+
+    // with them, the most specific domain comes first
+    assertThat(index.lookup("dev.eng.example.com", false, true), contains("child", "parent"));
+    assertThat(index.lookup("eng.example.com", false, true), contains("child", "parent"));
+    assertThat(index.lookup("sales.example.com", false, true), contains("parent"));
+    // a suffix that isn't on a label boundary is not a parent domain
+    assertThat(index.lookup("notexample.com", false, true), empty());
+  }
+
+  @Test
+  void testUnverifiedMatch() {
+    assertThat(index.lookup("unverified.com", false, false), contains("unverified"));
+    assertThat(index.lookup("unverified.com", true, false), empty());
+    assertThat(index.lookup("a.unverified.com", false, true), contains("unverified"));
+    assertThat(index.lookup("a.unverified.com", true, true), empty());
+  }
+}
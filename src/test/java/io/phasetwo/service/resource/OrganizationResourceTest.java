@@ -10,7 +10,9 @@ import static io.phasetwo.service.Helpers.deleteWebhook;
 import static io.phasetwo.service.Helpers.objectMapper;
 import static io.phasetwo.service.Helpers.removeEventListener;
 import static io.phasetwo.service.Orgs.ACTIVE_ORGANIZATION;
+import static io.phasetwo.service.Orgs.ORG_OWNER_CONFIG_KEY;
 import static io.phasetwo.service.protocol.oidc.mappers.ActiveOrganizationMapper.INCLUDED_ORGANIZATION_PROPERTIES;
+import static io.restassured.RestAssured.given;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
@@ -20,6 +22,7 @@ import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.oneOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -39,9 +42,12 @@ import io.phasetwo.client.openapi.model.OrganizationRoleRepresentation;
 import io.phasetwo.client.openapi.model.PortalLinkRepresentation;
 import io.phasetwo.service.AbstractOrganizationTest;
 import io.phasetwo.service.LegacySimpleHttp;
+import io.phasetwo.service.StubSmtpServer;
+import io.phasetwo.service.representation.BulkResponseItem;
 import io.phasetwo.service.representation.Invitation;
 import io.phasetwo.service.representation.InvitationRequest;
 import io.phasetwo.service.representation.LinkIdp;
+import io.phasetwo.service.representation.OrganizationMember;
 import io.phasetwo.service.representation.OrganizationRole;
 import io.phasetwo.service.representation.SwitchOrganization;
 import io.restassured.http.Header;
@@ -51,8 +57,10 @@ import jakarta.ws.rs.core.Response.Status;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import lombok.extern.jbosslog.JBossLog;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
@@ -64,6 +72,7 @@ import org.keycloak.admin.client.Keycloak;
 import org.keycloak.common.VerificationException;
 import org.keycloak.representations.AccessToken;
 import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.keycloak.util.JsonSerialization;
 
@@ -208,7 +217,7 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
                 new OrganizationRepresentation()
                     .name("qux")
                     .domains(List.of("baz.com"))
-                    .attributes(Map.of("foo", List.of("bar"))))
+                    .attributes(Map.of("foo", List.of("bar"), "tier", List.of("gold"))))
             .getId());
 
     Response response = givenSpec().when().queryParam("search", "foo").get().andReturn();
@@ -253,6 +262,13 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
     assertThat(orgs, notNullValue());
     assertThat(orgs, hasSize(2));
 
+    // every attribute filter has to match
+    response = givenSpec().when().queryParam("q", "foo:bar tier:Gold").get().andReturn();
+    assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
+    orgs = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(orgs, hasSize(1));
+    assertThat(orgs.get(0).getName(), is("qux"));
+
     // Search attributes and name
     response =
         givenSpec().when().queryParam("search", "qu").queryParam("q", "foo:bar").get().andReturn();
@@ -473,6 +489,18 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
     assertThat(members, hasItem(hasProperty("username", is("johndoe"))));
     assertThat(members, hasItem(hasProperty("username", is("johndow"))));
 
+    // count members with the same search
+    response = getRequest(id, "members/count?search=john");
+    assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
+    Long count = objectMapper().readValue(response.getBody().asString(), Long.class);
+    assertThat(count, is(2L));
+
+    // paginate the search
+    response = getRequest(id, "members?search=john&first=1&max=1");
+    assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
+    members = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(members, hasSize(1));
+
     response = getRequest(id, "members?search=jack,jill");
     assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
     members = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
@@ -504,6 +532,11 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
     assertThat(members, notNullValue());
     assertThat(members, hasSize(0));
 
+    response = getRequest(id, "members/count?search=,, ,");
+    assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
+    count = objectMapper().readValue(response.getBody().asString(), Long.class);
+    assertThat(count, is(0L));
+
     response = getRequest(id, "members?search= ,, jack , ");
     assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
     members = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
@@ -517,6 +550,25 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
     assertThat(members, notNullValue());
     assertThat(members, hasSize(5));
 
+    // walk the members with a cursor
+    Set<String> usernames = new HashSet<>();
+    String cursor = "";
+    int pages = 0;
+    while (cursor != null) {
+      response = getRequest(id, "members?max=2&cursor=" + cursor);
+      assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
+      members = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+      assertThat(members.size(), lessThanOrEqualTo(2));
+      members.forEach(m -> usernames.add(m.getUsername()));
+      cursor = response.getHeader("X-Next-Cursor");
+      pages++;
+    }
+    assertThat(pages, is(3));
+    assertThat(usernames, hasSize(5));
+
+    response = getRequest(id, "members?cursor=not-a-cursor");
+    assertThat(response.statusCode(), is(Status.BAD_REQUEST.getStatusCode()));
+
     // delete user
     deleteUser(keycloak, REALM, user1.getId());
     deleteUser(keycloak, REALM, user2.getId());
@@ -527,6 +579,140 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
     deleteOrganization(id);
   }
 
+  @Test
+  void testBulkMembers() throws IOException {
+    OrganizationRepresentation org = createDefaultOrg();
+    String id = org.getId();
+
+    UserRepresentation user1 = createUser(keycloak, REALM, "johndoe");
+    UserRepresentation user2 = createUser(keycloak, REALM, "johndow");
+
+    // add members, one with a role, one unknown user and one unknown role
+    List<OrganizationMember> memberList =
+        List.of(
+            new OrganizationMember().id(user1.getId()),
+            new OrganizationMember()
+                .id(user2.getId())
+                .roles(List.of(OrganizationAdminAuth.ORG_ROLE_VIEW_MEMBERS)),
+            new OrganizationMember().id("unknown"),
+            new OrganizationMember().id(user1.getId()).roles(List.of("unknown")));
+    Response response = putRequest(memberList, id, "members");
+    assertThat(response.getStatusCode(), is(207));
+    List<BulkResponseItem> items =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(items, hasSize(4));
+    assertThat(items.get(0).getStatus(), is(Status.CREATED.getStatusCode()));
+    assertThat(items.get(1).getStatus(), is(Status.CREATED.getStatusCode()));
+    assertThat(items.get(2).getStatus(), is(Status.BAD_REQUEST.getStatusCode()));
+    assertThat(items.get(3).getStatus(), is(Status.BAD_REQUEST.getStatusCode()));
+
+    response = getRequest(id, "members", user1.getId());
+    assertThat(response.getStatusCode(), is(Status.NO_CONTENT.getStatusCode()));
+    response = getRequest(id, "members", user2.getId());
+    assertThat(response.getStatusCode(), is(Status.NO_CONTENT.getStatusCode()));
+    response =
+        getRequest(
+            id, "roles", OrganizationAdminAuth.ORG_ROLE_VIEW_MEMBERS, "users", user2.getId());
+    assertThat(response.getStatusCode(), is(Status.NO_CONTENT.getStatusCode()));
+
+    // adding existing members again is not an error
+    response = putRequest(memberList.subList(0, 2), id, "members");
+    assertThat(response.getStatusCode(), is(207));
+    items = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(items.get(0).getStatus(), is(Status.CREATED.getStatusCode()));
+    assertThat(items.get(1).getStatus(), is(Status.CREATED.getStatusCode()));
+
+    response = getRequest(id, "members/count");
+    Long count = objectMapper().readValue(response.getBody().asString(), Long.class);
+    assertThat(count, is(3L)); // including org admin default
+
+    // remove members
+    response =
+        patchRequest(
+            List.of(
+                new OrganizationMember().id(user1.getId()), new OrganizationMember().id("unknown")),
+            id + "/members");
+    assertThat(response.getStatusCode(), is(207));
+    items = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(items.get(0).getStatus(), is(Status.NO_CONTENT.getStatusCode()));
+    assertThat(items.get(1).getStatus(), is(Status.BAD_REQUEST.getStatusCode()));
+
+    response = getRequest(id, "members", user1.getId());
+    assertThat(response.getStatusCode(), is(Status.NOT_FOUND.getStatusCode()));
+
+    // remove a member with a role, a user who isn't a member anymore and the default admin
+    UserRepresentation admin =
+        keycloak.realm(REALM).users().search("org-admin-%s".formatted(id)).get(0);
+    response =
+        patchRequest(
+            List.of(
+                new OrganizationMember().id(user2.getId()),
+                new OrganizationMember().id(user1.getId()),
+                new OrganizationMember().id(admin.getId())),
+            id + "/members");
+    assertThat(response.getStatusCode(), is(207));
+    items = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(items.get(0).getStatus(), is(Status.NO_CONTENT.getStatusCode()));
+    assertThat(items.get(1).getStatus(), is(Status.BAD_REQUEST.getStatusCode()));
+    assertThat(items.get(2).getStatus(), is(Status.BAD_REQUEST.getStatusCode()));
+
+    response = getRequest(id, "members", user2.getId());
+    assertThat(response.getStatusCode(), is(Status.NOT_FOUND.getStatusCode()));
+    response =
+        getRequest(
+            id, "roles", OrganizationAdminAuth.ORG_ROLE_VIEW_MEMBERS, "users", user2.getId());
+    assertThat(response.getStatusCode(), is(Status.NOT_FOUND.getStatusCode()));
+    response = getRequest(id, "members", admin.getId());
+    assertThat(response.getStatusCode(), is(Status.NO_CONTENT.getStatusCode()));
+
+    deleteUser(keycloak, REALM, user1.getId());
+    deleteUser(keycloak, REALM, user2.getId());
+    deleteOrganization(id);
+  }
+
+  @Test
+  void testDeleteOrgWithChildren() throws IOException {
+    OrganizationRepresentation org =
+        createOrganization(
+            new OrganizationRepresentation()
+                .name("children")
+                .domains(List.of("children.com"))
+                .attributes(Map.of("foo", List.of("bar"))));
+    String id = org.getId();
+
+    // a member with a role, and an invitation with a role and an attribute
+    UserRepresentation user = createUser(keycloak, REALM, "childmember");
+    createOrgRole(id, "child-role");
+    Response response =
+        putRequest(
+            List.of(new OrganizationMember().id(user.getId()).roles(List.of("child-role"))),
+            id,
+            "members");
+    assertThat(response.getStatusCode(), is(207));
+    response =
+        postRequest(
+            new InvitationRequest()
+                .email("child@example.com")
+                .roles(List.of("child-role"))
+                .attribute("foo", "bar"),
+            id,
+            "invitations");
+    assertThat(response.getStatusCode(), is(Status.CREATED.getStatusCode()));
+
+    // the organization row can only go once no row refers to it anymore
+    response = deleteRequest(id);
+    assertThat(response.getStatusCode(), is(Status.NO_CONTENT.getStatusCode()));
+    assertThat(getRequest(id).getStatusCode(), is(Status.NOT_FOUND.getStatusCode()));
+
+    response = givenSpec("users", user.getId(), "orgs").when().get().andReturn();
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+    List<OrganizationRepresentation> orgs =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(orgs, empty());
+
+    deleteUser(keycloak, REALM, user.getId());
+  }
+
   @Test
   void testDuplicateRoles() throws IOException {
     OrganizationRepresentation org = createDefaultOrg();
@@ -1253,6 +1439,176 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
     deleteOrganization(id);
   }
 
+  @Test
+  void testSearchInvitations() throws IOException {
+    OrganizationRepresentation org = createDefaultOrg();
+    String id = org.getId();
+
+    for (String email : List.of("johndoe@example.com", "janedoe@example.com", "bob@example.org")) {
+      Response response = postRequest(new InvitationRequest().email(email), id, "invitations");
+      assertThat(response.statusCode(), is(Status.CREATED.getStatusCode()));
+    }
+
+    // search, in creation order
+    Response response =
+        givenSpec(keycloak, id, "invitations").when().queryParam("search", "DOE").get().andReturn();
+    assertThat(response.statusCode(), is(Status.OK.getStatusCode()));
+    List<Invitation> invites =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(invites, hasSize(2));
+    assertThat(invites.get(0).getEmail(), is("johndoe@example.com"));
+    assertThat(invites.get(1).getEmail(), is("janedoe@example.com"));
+
+    response =
+        givenSpec(keycloak, id, "invitations")
+            .when()
+            .queryParam("search", "doe")
+            .queryParam("first", 1)
+            .queryParam("max", 1)
+            .get()
+            .andReturn();
+    invites = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(invites, hasSize(1));
+    assertThat(invites.get(0).getEmail(), is("janedoe@example.com"));
+
+    // count
+    response =
+        givenSpec(keycloak, id, "invitations", "count")
+            .when()
+            .queryParam("search", "doe")
+            .get()
+            .andReturn();
+    assertThat(objectMapper().readValue(response.getBody().asString(), Long.class), is(2L));
+    response = getRequest(id, "invitations", "count");
+    assertThat(objectMapper().readValue(response.getBody().asString(), Long.class), is(3L));
+
+    // remove one, then it is gone
+    String bobId = getInvitationId(id, "bob@example.org");
+    response = deleteRequest(id, "invitations", bobId);
+    assertThat(response.statusCode(), is(Status.NO_CONTENT.getStatusCode()));
+    response = deleteRequest(id, "invitations", bobId);
+    assertThat(response.statusCode(), is(Status.NOT_FOUND.getStatusCode()));
+
+    response = getRequest(id, "invitations", "count");
+    assertThat(objectMapper().readValue(response.getBody().asString(), Long.class), is(2L));
+
+    deleteOrganization(id);
+  }
+
+  private String getInvitationId(String orgId, String email) throws IOException {
+    Response response =
+        givenSpec(keycloak, orgId, "invitations")
+            .when()
+            .queryParam("search", email)
+            .get()
+            .andReturn();
+    List<Invitation> invites =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(invites, hasSize(1));
+    return invites.get(0).getId();
+  }
+
+  @Test
+  void testBulkInvitations() throws IOException {
+    OrganizationRepresentation org = createDefaultOrg();
+    String id = org.getId();
+
+    UserRepresentation user1 =
+        createUserWithCredentials(keycloak, REALM, "user1", "pass", "member@example.com");
+    Response response = putRequest("foo", id, "members", user1.getId());
+    assertThat(response.getStatusCode(), is(Status.CREATED.getStatusCode()));
+    response = postRequest(new InvitationRequest().email("invited@example.com"), id, "invitations");
+    assertThat(response.statusCode(), is(Status.CREATED.getStatusCode()));
+
+    List<InvitationRequest> invitationList =
+        List.of(
+            new InvitationRequest().email("johndoe@example.com").attribute("foo", "bar"),
+            new InvitationRequest()
+                .email("JaneDoe@example.com")
+                .roles(List.of(OrganizationAdminAuth.ORG_ROLE_VIEW_MEMBERS)),
+            new InvitationRequest().email("johndoe@example.com"),
+            new InvitationRequest().email("invited@example.com"),
+            new InvitationRequest().email("member@example.com"),
+            new InvitationRequest().email("not an email"),
+            new InvitationRequest().email("roles@example.com").roles(List.of("unknown")));
+    response = putRequest(invitationList, id, "invitations");
+    assertThat(response.getStatusCode(), is(207));
+    List<BulkResponseItem> items =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(items, hasSize(7));
+    assertThat(items.get(0).getStatus(), is(Status.CREATED.getStatusCode()));
+    assertThat(items.get(1).getStatus(), is(Status.CREATED.getStatusCode()));
+    assertThat(items.get(2).getStatus(), is(Status.CONFLICT.getStatusCode()));
+    assertThat(items.get(3).getStatus(), is(Status.CONFLICT.getStatusCode()));
+    assertThat(items.get(4).getStatus(), is(Status.CONFLICT.getStatusCode()));
+    assertThat(items.get(5).getStatus(), is(Status.BAD_REQUEST.getStatusCode()));
+    assertThat(items.get(6).getStatus(), is(Status.BAD_REQUEST.getStatusCode()));
+
+    response = getRequest(id, "invitations");
+    List<Invitation> invites =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(invites, hasSize(3));
+    Invitation johndoe =
+        invites.stream().filter(i -> i.getEmail().equals("johndoe@example.com")).findFirst().get();
+    assertThat(johndoe.getAttributes().get("foo"), is(List.of("bar")));
+    Invitation janedoe =
+        invites.stream().filter(i -> i.getEmail().equals("janedoe@example.com")).findFirst().get();
+    assertThat(janedoe.getRoles(), is(List.of(OrganizationAdminAuth.ORG_ROLE_VIEW_MEMBERS)));
+
+    deleteUser(keycloak, REALM, user1.getId());
+    deleteOrganization(id);
+  }
+
+  @Test
+  void testInvitationEmailIsSentInBackground() throws Exception {
+    OrganizationRepresentation org = createDefaultOrg();
+    String id = org.getId();
+
+    RealmRepresentation realm = keycloak.realm(REALM).toRepresentation();
+    Map<String, String> smtpServer = realm.getSmtpServer();
+    realm.setSmtpServer(
+        ImmutableMap.of(
+            "host",
+            "host.testcontainers.internal",
+            "port",
+            String.valueOf(SMTP_SERVER_PORT),
+            "from",
+            "noreply@example.com"));
+    keycloak.realm(REALM).update(realm);
+
+    try (StubSmtpServer smtp = new StubSmtpServer(SMTP_SERVER_PORT)) {
+      InvitationRequest inv = new InvitationRequest().email("johndoe@example.com").send(true);
+      Response response = postRequest(inv, id, "invitations");
+      assertThat(response.statusCode(), is(Status.CREATED.getStatusCode()));
+      String loc = response.getHeader("Location");
+      String inviteId = loc.substring(loc.lastIndexOf("/") + 1);
+
+      // the email is sent after the invitation is created
+      Invitation invite = null;
+      for (int n = 0; n < 30; n++) {
+        response = getRequest(id, "invitations", inviteId);
+        invite = objectMapper().readValue(response.getBody().asString(), Invitation.class);
+        if ("SENT".equals(invite.getEmailStatus())) break;
+        Thread.sleep(500l);
+      }
+      assertThat(invite.getEmailStatus(), is("SENT"));
+      assertThat(smtp.getMessages(), hasSize(1));
+      assertThat(smtp.getMessages().get(0).getRecipients(), hasItem("johndoe@example.com"));
+
+      // resending queues the email again
+      response = putRequest("foo", id, "invitations", inviteId, "resend-email");
+      assertThat(response.statusCode(), is(Status.NO_CONTENT.getStatusCode()));
+      for (int n = 0; n < 30 && smtp.getMessages().size() < 2; n++) {
+        Thread.sleep(500l);
+      }
+      assertThat(smtp.getMessages(), hasSize(2));
+    } finally {
+      realm.setSmtpServer(smtpServer);
+      keycloak.realm(REALM).update(realm);
+      deleteOrganization(id);
+    }
+  }
+
   @Test
   void testListOrgsByMember() throws IOException {
     OrganizationRepresentation org = createDefaultOrg();
@@ -1310,6 +1666,46 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
     }
   }
 
+  @Test
+  void testTokenRejectedAfterLogout() {
+    // tokens are only cached with the event listener that evicts them
+    RealmRepresentation realm = keycloak.realm(REALM).toRepresentation();
+    List<String> listeners = realm.getEventsListeners();
+    List<String> enabled = new ArrayList<>(listeners);
+    enabled.add(VerifiedTokenCacheEvictorFactory.PROVIDER_ID);
+    realm.setEventsListeners(enabled);
+    keycloak.realm(REALM).update(realm);
+
+    Keycloak adminKeycloak =
+        getKeycloak(REALM, ADMIN_CLI, container.getAdminUsername(), container.getAdminPassword());
+    try {
+      String token = adminKeycloak.tokenManager().getAccessTokenString();
+
+      // the verified token is cached on the first request
+      assertThat(getWithToken(token).getStatusCode(), is(Status.OK.getStatusCode()));
+      assertThat(getWithToken(token).getStatusCode(), is(Status.OK.getStatusCode()));
+
+      // reusing it after the session ends is rejected
+      adminKeycloak.tokenManager().logout();
+      assertThat(getWithToken(token).getStatusCode(), is(Status.UNAUTHORIZED.getStatusCode()));
+    } finally {
+      adminKeycloak.close();
+      realm.setEventsListeners(listeners);
+      keycloak.realm(REALM).update(realm);
+    }
+  }
+
+  private Response getWithToken(String token) {
+    return given()
+        .baseUri(container.getAuthServerUrl())
+        .basePath("realms/" + REALM + "/orgs")
+        .auth()
+        .oauth2(token)
+        .when()
+        .get()
+        .andReturn();
+  }
+
   @Test
   void testLinkIdp() throws IOException {
     OrganizationRepresentation org = createDefaultOrg();
@@ -1379,6 +1775,58 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
     keycloak.realm(REALM).identityProviders().get(alias1).remove();
   }
 
+  @Test
+  void testIdpCreatedThroughKeycloakAdminApi() throws Exception {
+    OrganizationRepresentation org = createDefaultOrg();
+    String id = org.getId();
+
+    // no event is published for identity providers created outside of the organization api
+    String alias1 = "keycloak-admin-provider-1";
+    org.keycloak.representations.idm.IdentityProviderRepresentation idp =
+        new org.keycloak.representations.idm.IdentityProviderRepresentation();
+    idp.setAlias(alias1);
+    idp.setProviderId("oidc");
+    idp.setEnabled(true);
+    idp.setFirstBrokerLoginFlowAlias("first broker login");
+    idp.setConfig(
+        new ImmutableMap.Builder<String, String>()
+            .put("syncMode", "FORCE")
+            .put("authorizationUrl", "https://foo.com")
+            .put("tokenUrl", "https://foo.com")
+            .put("clientAuthMethod", "client_secret_post")
+            .put("clientId", "aabbcc")
+            .put("clientSecret", "112233")
+            .put(ORG_OWNER_CONFIG_KEY, id)
+            .build());
+    keycloak.realm(REALM).identityProviders().create(idp).close();
+
+    // the scheduled sync adds it to the organization
+    Response response = getRequest(id, "idps");
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+    List<IdentityProviderRepresentation> idps =
+        objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    long deadline = System.currentTimeMillis() + 6 * IDENTITY_PROVIDER_SYNC_INTERVAL * 1000L;
+    while (idps.isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(500);
+      response = getRequest(id, "idps");
+      idps = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    }
+    assertThat(idps, hasSize(1));
+    assertThat(idps.get(0).getAlias(), is(alias1));
+
+    response = getRequest(id, "idps", alias1);
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+
+    // removing it through the Keycloak admin api removes it from the organization
+    keycloak.realm(REALM).identityProviders().get(alias1).remove();
+    response = getRequest(id, "idps");
+    assertThat(response.getStatusCode(), is(Status.OK.getStatusCode()));
+    idps = objectMapper().readValue(response.getBody().asString(), new TypeReference<>() {});
+    assertThat(idps, empty());
+
+    deleteOrganization(id);
+  }
+
   @Test
   void testAddGetDeleteIdps() throws IOException {
     OrganizationRepresentation org = createDefaultOrg();
@@ -1982,17 +2430,15 @@ class OrganizationResourceTest extends AbstractOrganizationTest {
     // verify attribute
     validateActiveOrganizationFromUserAttributes(getUser(user.getId()), true, org3Id);
 
-    // delete organization
+    // delete organization, which clears the attribute in the same transaction
     deleteOrganization(org3Id);
+    validateActiveOrganizationFromUserAttributes(getUser(user.getId()), false, null);
 
-    // re-authenticate for lazy removal
+    // re-authenticate
     kc = getKeycloak(REALM, "test-ui", "user", "password");
     validateActiveOrganizationFromAccessToken(
         kc.tokenManager().getAccessTokenString(), false, null);
 
-    // verify attribute is removed
-    validateActiveOrganizationFromUserAttributes(getUser(user.getId()), false, null);
-
     deleteUser(keycloak, REALM, user.getId());
     deleteClient("test-ui");
     deleteClientScope(ACTIVE_ORG_CLAIM);
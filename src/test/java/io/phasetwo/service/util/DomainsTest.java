@@ -0,0 +1,25 @@
+package io.phasetwo.service.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class DomainsTest {
+
+  @Test
+  void testWithParentDomains() {
+    assertThat(Domains.withParentDomains("a.b.com"), contains("a.b.com", "b.com", "com"));
+    assertThat(Domains.withParentDomains("com"), contains("com"));
+  }
+
+  @Test
+  void testSupportsDomain() {
+    Set<String> domains = Set.of("example.com");
+    assertThat(Domains.supportsDomain(domains, "example.com"), is(true));
+    assertThat(Domains.supportsDomain(domains, "eng.example.com"), is(true));
+    assertThat(Domains.supportsDomain(domains, "notexample.com"), is(false));
+  }
+}